@@ -0,0 +1,91 @@
+package pchess.bench;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import pchess.core.enums.PlayerType;
+import pchess.games.PawnBattle;
+import pchess.gui.GameScreen;
+
+/**
+ * Benchmark of game screen painting. A game screen shows Pawn Battle games
+ * of increasing width and is painted in an image, measuring three kinds of
+ * paint: a full paint that draws board layer again (as after a resize or a
+ * color change), a full paint with cached board layer (as after a window is
+ * uncovered) and a paint of two squares (as after a movement). Times are
+ * taken from paint metric of game screen. Benchmark can run headless.
+ * <p>
+ * Usage: {@code PaintBenchmark [screen width] [screen height] [paints]}.
+ */
+public class PaintBenchmark {
+
+    /**
+     * Numbers of columns measured.
+     */
+    private static final int[] COLUMNS = {4, 8, 16, 24, 32};
+
+    /**
+     * Private constructor. This class only has static methods.
+     */
+    private PaintBenchmark() {
+    }
+
+    /**
+     * Paints a screen several times and returns mean paint time.
+     *
+     * @param screen screen to paint.
+     * @param image image where screen is painted.
+     * @param paints number of paints.
+     * @param relayout if true, board layer is drawn again in each paint.
+     * @param squares if true, only two squares are painted.
+     * @return mean paint time in microseconds.
+     */
+    private static double measure(GameScreen screen, BufferedImage image, int paints,
+            boolean relayout, boolean squares) {
+        int sq = screen.getHeight() / 10;
+        long time = 0;
+        for (int i = 0; i < paints; i++) {
+            if (relayout) {
+                screen.setCoordinateDrawing(true);
+            }
+            Graphics2D g = image.createGraphics();
+            if (squares) {
+                g.clipRect(screen.getWidth() / 2 - sq, screen.getHeight() / 2 - sq, sq, 2 * sq);
+            }
+            screen.paint(g);
+            g.dispose();
+            time += screen.getLastPaintTime();
+        }
+        return time / 1e3 / paints;
+    }
+
+    /**
+     * Runs benchmark.
+     *
+     * @param args screen width (default 1600), screen height (default 400)
+     * and number of paints of each kind (default 200).
+     */
+    public static void main(String[] args) {
+        int width = (args.length > 0 ? Integer.parseInt(args[0]) : 1600);
+        int height = (args.length > 1 ? Integer.parseInt(args[1]) : 400);
+        int paints = (args.length > 2 ? Integer.parseInt(args[2]) : 200);
+
+        GameScreen screen = new GameScreen(null);
+        screen.setSize(width, height);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+
+        System.out.printf("screen %dx%d, %d paints%n", width, height, paints);
+        System.out.printf("%-7s %16s %16s %16s%n", "columns", "relayout (us)",
+                "full (us)", "two squares (us)");
+        PlayerType h = PlayerType.HUMAN;
+        for (int columns : COLUMNS) {
+            screen.setGame(new PawnBattle(h, h, columns));
+            measure(screen, image, paints, true, false);
+            double relayout = measure(screen, image, paints, true, false);
+            double full = measure(screen, image, paints, false, false);
+            double squares = measure(screen, image, paints, false, true);
+            System.out.printf("%-7d %16.1f %16.1f %16.1f%n", columns, relayout, full, squares);
+        }
+        screen.setGame(null);
+    }
+
+}
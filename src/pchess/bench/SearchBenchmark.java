@@ -0,0 +1,268 @@
+package pchess.bench;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import pchess.core.ComputerPlayer;
+import pchess.core.Movement;
+import pchess.core.enums.PieceColor;
+import pchess.core.enums.PlayerType;
+import pchess.engine.SearchLimits;
+import pchess.games.BishopAgainstPawn;
+import pchess.games.KillerKnight;
+import pchess.games.KillerQueen;
+import pchess.games.KillerRook;
+import pchess.games.KingDuel;
+import pchess.games.KnightAgainstPawn;
+import pchess.games.PawnBattle;
+import pchess.games.PreChessGame;
+
+/**
+ * Benchmark of computer player search. For each prechess game, search depth
+ * is chosen so that a single thread search takes a target time, and then
+ * time to reach that depth is measured with 1, 2, 4, 8 and 16 threads.
+ * Heap allocation of single thread searches is also checked: once a
+ * player has searched a position, searching it again (with an empty
+ * transposition table) must allocate nothing per node. Allocation is
+ * measured at two depths, and benchmark exits with status 1 if allocated
+ * bytes grow with number of nodes.
+ * <p>
+ * Usage: {@code SearchBenchmark [target time in ms] [positions per game]}.
+ */
+public class SearchBenchmark {
+
+    /**
+     * Numbers of threads measured.
+     */
+    private static final int[] THREADS = {1, 2, 4, 8, 16};
+
+    /**
+     * Seed used to choose benchmark positions, so that all runs search the
+     * same positions.
+     */
+    private static final long SEED = 2017;
+
+    /**
+     * Maximum number of random movements played before a benchmark position.
+     */
+    private static final int OPENING = 8;
+
+    /**
+     * Maximum growth of allocated bytes per node, between two search
+     * depths, taken as no allocation per node. Allocation done once per
+     * search changes slightly with depth, while allocating one object per
+     * node adds at least 16 bytes per node.
+     */
+    private static final double ALLOCATION_TOLERANCE = 0.5;
+
+    /**
+     * Private constructor. This class only has static methods.
+     */
+    private SearchBenchmark() {
+    }
+
+    /**
+     * Returns one game of each prechess variant.
+     *
+     * @return games to measure.
+     */
+    private static PreChessGame[] games() {
+        PlayerType c = PlayerType.COMPUTER;
+        return new PreChessGame[]{
+            new KingDuel(c, c, 40),
+            new PawnBattle(c, c, 8),
+            new KnightAgainstPawn(c, c, PieceColor.WHITE),
+            new BishopAgainstPawn(c, c, PieceColor.WHITE),
+            new KillerQueen(c, c, 12),
+            new KillerRook(c, c, 12),
+            new KillerKnight(c, c, 12)};
+    }
+
+    /**
+     * Makes a new game in a benchmark position.
+     *
+     * @param game game to copy.
+     * @param position position index.
+     * @return new game.
+     */
+    private static PreChessGame position(PreChessGame game, int position) {
+        PreChessGame g = game.newGame();
+        g.startGame();
+        Random random = new Random(SEED + position);
+        int plies = (position == 0 ? 0 : random.nextInt(OPENING) + 1);
+        for (int i = 0; i < plies && !g.isGameOver(); i++) {
+            Movement[] moves = g.getCurrentPlayer().getMovements();
+            moves[random.nextInt(moves.length)].doMove();
+            g.passMove();
+        }
+        return g;
+    }
+
+    /**
+     * Result of searching all benchmark positions of a game.
+     */
+    private static class Result {
+
+        /**
+         * Total time in nanoseconds.
+         */
+        long time;
+
+        /**
+         * Total visited nodes.
+         */
+        long nodes;
+
+        /**
+         * Minimum completed depth.
+         */
+        int depth = Integer.MAX_VALUE;
+    }
+
+    /**
+     * Searches all benchmark positions of a game to a fixed depth. Each
+     * search uses a new player, so transposition table is empty.
+     *
+     * @param game game to measure.
+     * @param positions number of positions.
+     * @param depth search depth.
+     * @param threads number of search threads.
+     * @return search result.
+     */
+    private static Result measure(PreChessGame game, int positions, int depth, int threads) {
+        ComputerPlayer.setThreads(threads);
+        Result result = new Result();
+        for (int i = 0; i < positions; i++) {
+            PreChessGame g = position(game, i);
+            if (g.isGameOver()) {
+                continue;
+            }
+            ComputerPlayer player = (ComputerPlayer) g.getCurrentPlayer();
+            long start = System.nanoTime();
+            player.search(new SearchLimits(0, 0, depth));
+            result.time += System.nanoTime() - start;
+            result.nodes += player.getNodeCount();
+            result.depth = Math.min(result.depth, player.getCompletedDepth());
+        }
+        return result;
+    }
+
+    /**
+     * Measures bytes allocated by single thread searches. Each position is
+     * searched once to create player buffers and transposition table, table
+     * is cleared and position is searched again, measuring bytes allocated
+     * by calling thread. Allocation done once per search (for instance,
+     * chessboard copy and returned movement) is included, so result is not
+     * 0, but it must not grow with number of nodes.
+     *
+     * @param game game to measure.
+     * @param positions number of positions.
+     * @param depth search depth.
+     * @return allocated bytes, number of nodes and number of searches, or
+     * {@code null} if JVM can't measure thread allocation.
+     */
+    private static long[] allocation(PreChessGame game, int positions, int depth) {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+        com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) bean;
+        long thread = Thread.currentThread().getId();
+        ComputerPlayer.setThreads(1);
+        long bytes = 0;
+        long nodes = 0;
+        long searches = 0;
+        for (int i = 0; i < positions; i++) {
+            PreChessGame g = position(game, i);
+            if (g.isGameOver()) {
+                continue;
+            }
+            ComputerPlayer player = (ComputerPlayer) g.getCurrentPlayer();
+            SearchLimits limits = new SearchLimits(0, 0, depth);
+            player.search(limits);
+            player.getTranspositionTable().clear();
+            long start = mx.getThreadAllocatedBytes(thread);
+            player.search(limits);
+            bytes += mx.getThreadAllocatedBytes(thread) - start;
+            nodes += player.getNodeCount();
+            searches++;
+        }
+        return new long[]{bytes, nodes, searches};
+    }
+
+    /**
+     * Checks that searches of a game allocate nothing per node: allocated
+     * bytes are measured at depth 1 and at benchmark depth, and their
+     * difference must not grow with number of nodes. Games whose searches
+     * don't visit more nodes at benchmark depth (for instance, positions
+     * decided by a solved table) can't be checked.
+     *
+     * @param game game to measure.
+     * @param positions number of positions.
+     * @param depth benchmark depth.
+     * @return false if allocation grows with number of nodes.
+     */
+    private static boolean checkAllocation(PreChessGame game, int positions, int depth) {
+        long[] shallow = allocation(game, positions, 1);
+        long[] deep = allocation(game, positions, depth);
+        if (deep == null) {
+            System.out.printf("%-22s %5d allocation not measured%n", game.getName(), depth);
+            return true;
+        }
+        long nodes = deep[1] - shallow[1];
+        long perSearch = (deep[2] == 0 ? 0 : deep[0] / deep[2]);
+        if (nodes <= 0) {
+            System.out.printf("%-22s %5d allocation %d bytes/search, not checked%n",
+                    game.getName(), depth, perSearch);
+            return true;
+        }
+        double growth = (double) (deep[0] - shallow[0]) / nodes;
+        boolean ok = (growth <= ALLOCATION_TOLERANCE);
+        System.out.printf("%-22s %5d allocation %d bytes/search, %.3f bytes/node growth %s%n",
+                game.getName(), depth, perSearch, growth, (ok ? "ok" : "FAILED"));
+        return ok;
+    }
+
+    /**
+     * Runs benchmark.
+     *
+     * @param args target single thread time in milliseconds (default 1000)
+     * and number of positions per game (default 4). Exits with status 1 if
+     * searches of some game allocate per node.
+     */
+    public static void main(String[] args) {
+        long target = (args.length > 0 ? Long.parseLong(args[0]) : 1000) * 1000000L;
+        int positions = (args.length > 1 ? Integer.parseInt(args[1]) : 4);
+
+        System.out.printf("%d processors, target %d ms, %d positions per game%n",
+                Runtime.getRuntime().availableProcessors(), target / 1000000, positions);
+        System.out.printf("%-22s %5s %7s %10s %12s %12s %8s%n", "game", "depth",
+                "threads", "time (ms)", "nodes", "nodes/s", "speedup");
+
+        boolean allocationOk = true;
+        for (PreChessGame game : games()) {
+            measure(game, positions, 2, 1);
+
+            int depth = 1;
+            Result base = measure(game, positions, depth, 1);
+            while (base.time < target && depth < SearchLimits.MAX_DEPTH
+                    && base.depth == depth) {
+                depth++;
+                base = measure(game, positions, depth, 1);
+            }
+
+            allocationOk &= checkAllocation(game, positions, depth);
+            for (int threads : THREADS) {
+                Result r = (threads == 1 ? base : measure(game, positions, depth, threads));
+                System.out.printf("%-22s %5d %7d %10.1f %12d %12.0f %8.2f%n",
+                        game.getName(), r.depth, threads, r.time / 1e6, r.nodes,
+                        r.nodes / (r.time / 1e9), (double) base.time / r.time);
+            }
+        }
+        ComputerPlayer.setThreads(Runtime.getRuntime().availableProcessors());
+        if (!allocationOk) {
+            System.out.println("Searches allocate per node");
+            System.exit(1);
+        }
+    }
+
+}
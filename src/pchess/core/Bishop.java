@@ -8,12 +8,6 @@ import pchess.core.enums.PieceColor;
  */
 class Bishop extends Piece {
 
-    /**
-     * Vector that defines bishop movements.
-     */
-    private static final int[][] BISHOP_MOVE
-            = {{-1, -1}, {-1, 1}, {1, -1}, {1, 1}};
-
     /**
      * Constructor. Makes a new bishop.
      *
@@ -25,7 +19,7 @@ class Bishop extends Piece {
 
     @Override
     public void defLegalMove() {
-        defLegalMove(BISHOP_MOVE);
+        defLegalMove(false);
     }
 
 }
@@ -0,0 +1,543 @@
+package pchess.core;
+
+import pchess.core.enums.PieceColor;
+import pchess.core.enums.PieceType;
+
+/**
+ * Bitboard representation of a chessboard position. Each square is a bit of a
+ * {@code long}, numbered as {@code row * nColumns + column} with internal
+ * rows and columns, so this representation is used by {@code ChessBoard}
+ * whenever its squares fit in 64 bits.
+ * <p>
+ * Occupancy is kept per color and per piece type. Pieces are also kept by
+ * their index in {@code ChessBoard} piece lists, so that movements are
+ * generated in the same order {@code Piece.defLegalMove} defines them.
+ * Bitboard is updated by {@code ChessBoard} whenever a piece moves.
+ */
+public class BitBoard {
+
+    /**
+     * Color index for white pieces.
+     */
+    static final int WHITE = 0;
+
+    /**
+     * Color index for black pieces.
+     */
+    static final int BLACK = 1;
+
+    /**
+     * Number of rows.
+     */
+    private final int nRows;
+
+    /**
+     * Number of columns.
+     */
+    private final int nColumns;
+
+    /**
+     * Mask with all chessboard squares.
+     */
+    private final long boardMask;
+
+    /**
+     * Mask of first column.
+     */
+    private final long firstColumn;
+
+    /**
+     * Mask of last column.
+     */
+    private final long lastColumn;
+
+    /**
+     * King movements by square.
+     */
+    private final long[] kingMask;
+
+    /**
+     * Knight movements by square.
+     */
+    private final long[] knightMask;
+
+    /**
+     * Rays by direction and square. A ray contains all squares from a square
+     * (excluded) to chessboard border in that direction.
+     */
+    private final long[][] rays;
+
+    /**
+     * Occupancy by color.
+     */
+    private final long[] colorOcc;
+
+    /**
+     * Occupancy by color and piece type ordinal.
+     */
+    private final long[][] typeOcc;
+
+    /**
+     * Piece types by color and piece index.
+     */
+    private final PieceType[][] types;
+
+    /**
+     * Piece squares by color and piece index, -1 for pieces out of game.
+     */
+    private final int[][] squares;
+
+    /**
+     * Pawn first move flags by color and piece index.
+     */
+    private final boolean[][] firstMove;
+
+
+    /**
+     * Constructor. Makes a bitboard with same position of a chessboard.
+     *
+     * @param board chessboard to represent.
+     */
+    BitBoard(ChessBoard board) {
+        nRows = board.getNRows();
+        nColumns = board.getNColumns();
+        int n = nRows * nColumns;
+        boardMask = (n == 64 ? -1L : (1L << n) - 1);
+
+        long fc = 0;
+        for (int i = 0; i < nRows; i++) {
+            fc |= 1L << (i * nColumns);
+        }
+        firstColumn = fc;
+        lastColumn = fc << (nColumns - 1);
+
+        BoardGeometry geometry = board.getGeometry();
+        kingMask = geometry.kingMasks;
+        knightMask = geometry.knightMasks;
+        rays = geometry.rayMasks;
+
+        colorOcc = new long[2];
+        typeOcc = new long[2][PieceType.values().length];
+        types = new PieceType[2][];
+        squares = new int[2][];
+        firstMove = new boolean[2][];
+        load(WHITE, board.getWhitePieces());
+        load(BLACK, board.getBlackPieces());
+    }
+
+    /**
+     * Returns true if a chessboard with given dimensions fits in a bitboard.
+     *
+     * @param nRows number of rows.
+     * @param nColumns number of columns.
+     * @return true if chessboard has at most 64 squares.
+     */
+    static boolean fits(int nRows, int nColumns) {
+        return nRows * nColumns <= 64;
+    }
+
+    private void load(int color, Piece[] pieces) {
+        types[color] = new PieceType[pieces.length];
+        squares[color] = new int[pieces.length];
+        firstMove[color] = new boolean[pieces.length];
+        for (int i = 0; i < pieces.length; i++) {
+            Piece p = pieces[i];
+            types[color][i] = p.getPieceType();
+            if (p instanceof Pawn) {
+                firstMove[color][i] = ((Pawn) p).hasFirstMove();
+            }
+            if (p.isLiving()) {
+                int sq = index(p.getSquare());
+                squares[color][i] = sq;
+                set(color, p.getPieceType(), sq);
+            } else {
+                squares[color][i] = -1;
+            }
+        }
+    }
+
+    /**
+     * Returns bit index of a square.
+     *
+     * @param square a square.
+     * @return bit index of square.
+     */
+    int index(Square square) {
+        return square.getInternalRow() * nColumns + square.getInternalColumn();
+    }
+
+    /**
+     * Returns color index for a piece color.
+     *
+     * @param pc piece color.
+     * @return color index.
+     */
+    static int colorIndex(PieceColor pc) {
+        return (pc == PieceColor.WHITE ? WHITE : BLACK);
+    }
+
+    private void set(int color, PieceType type, int sq) {
+        long b = 1L << sq;
+        colorOcc[color] |= b;
+        typeOcc[color][type.ordinal()] |= b;
+    }
+
+    private void clear(int color, PieceType type, int sq) {
+        long b = ~(1L << sq);
+        colorOcc[color] &= b;
+        typeOcc[color][type.ordinal()] &= b;
+    }
+
+    /**
+     * Moves a piece, capturing opponent piece in destination square.
+     *
+     * @param color color index of moved piece.
+     * @param piece index of moved piece.
+     * @param to destination square index.
+     * @param captured index of captured piece, or -1 if there is no capture.
+     */
+    void move(int color, int piece, int to, int captured) {
+        PieceType type = types[color][piece];
+        if (captured >= 0) {
+            int opp = 1 - color;
+            clear(opp, types[opp][captured], to);
+            squares[opp][captured] = -1;
+        }
+        clear(color, type, squares[color][piece]);
+        set(color, type, to);
+        squares[color][piece] = to;
+        firstMove[color][piece] = false;
+    }
+
+    /**
+     * Takes back a movement done with {@code move}.
+     *
+     * @param color color index of moved piece.
+     * @param piece index of moved piece.
+     * @param from square index where piece stayed before movement.
+     * @param captured index of captured piece, or -1 if there was no capture.
+     * @param pawnFirstMove pawn first move flag before movement.
+     */
+    void unmove(int color, int piece, int from, int captured, boolean pawnFirstMove) {
+        PieceType type = types[color][piece];
+        int to = squares[color][piece];
+        clear(color, type, to);
+        set(color, type, from);
+        squares[color][piece] = from;
+        firstMove[color][piece] = pawnFirstMove;
+        if (captured >= 0) {
+            int opp = 1 - color;
+            set(opp, types[opp][captured], to);
+            squares[opp][captured] = to;
+        }
+    }
+
+    /**
+     * Returns occupancy of a color.
+     *
+     * @param color color index.
+     * @return bitboard with squares occupied by pieces of that color.
+     */
+    long getOccupancy(int color) {
+        return colorOcc[color];
+    }
+
+    /**
+     * Returns occupancy of a piece type.
+     *
+     * @param color color index.
+     * @param type piece type.
+     * @return bitboard with squares occupied by those pieces.
+     */
+    long getOccupancy(int color, PieceType type) {
+        return typeOcc[color][type.ordinal()];
+    }
+
+    /**
+     * Shifts a bitboard a number of rows forward to pawns of a color.
+     *
+     * @param b bitboard.
+     * @param color color index.
+     * @param n number of rows.
+     * @return shifted bitboard.
+     */
+    private long forward(long b, int color, int n) {
+        int s = n * nColumns;
+        return (color == WHITE ? b >>> s : (b << s) & boardMask);
+    }
+
+    /**
+     * Returns squares where pawns of a color can move one square forward.
+     *
+     * @param color color index.
+     * @return bitboard with pawn push destinations.
+     */
+    long pawnPushes(int color) {
+        long empty = ~(colorOcc[WHITE] | colorOcc[BLACK]) & boardMask;
+        return forward(movablePawns(color), color, 1) & empty;
+    }
+
+    /**
+     * Returns squares attacked by pawns of a color.
+     *
+     * @param color color index.
+     * @return bitboard with squares attacked by pawns.
+     */
+    long pawnAttacks(int color) {
+        long pawns = forward(movablePawns(color), color, 1);
+        return ((pawns & ~firstColumn) >>> 1) | ((pawns & ~lastColumn) << 1);
+    }
+
+    /**
+     * Returns pawns of a color that are not in their last row.
+     *
+     * @param color color index.
+     * @return bitboard with pawns that can still move.
+     */
+    private long movablePawns(int color) {
+        long lastRow = (color == WHITE ? ((1L << nColumns) - 1)
+                : ((1L << nColumns) - 1) << ((nRows - 1) * nColumns));
+        return typeOcc[color][PieceType.PAWN.ordinal()] & ~lastRow;
+    }
+
+    /**
+     * Returns squares attacked by a slider along a direction, including first
+     * occupied square.
+     *
+     * @param d direction index.
+     * @param sq slider square.
+     * @param occ occupied squares.
+     * @return bitboard with attacked squares.
+     */
+    private long ray(int d, int sq, long occ) {
+        long r = rays[d][sq];
+        long blockers = r & occ;
+        if (blockers == 0) {
+            return r;
+        }
+        int b = (d > 3 ? Long.numberOfTrailingZeros(blockers)
+                : 63 - Long.numberOfLeadingZeros(blockers));
+        return r ^ rays[d][b];
+    }
+
+    /**
+     * Returns squares a color attacks. This is the set of squares that
+     * {@code King.findKingForbiddenMove} removes from opponent king moves:
+     * squares reached or protected by each piece, plus square behind opponent
+     * king on slider lines.
+     *
+     * @param color color index.
+     * @return bitboard with attacked squares.
+     */
+    long attacks(int color) {
+        int opp = 1 - color;
+        long occ = colorOcc[WHITE] | colorOcc[BLACK];
+        long oppKing = typeOcc[opp][PieceType.KING.ordinal()];
+        long att = pawnAttacks(color);
+        for (int i = 0; i < types[color].length; i++) {
+            int sq = squares[color][i];
+            if (sq < 0) {
+                continue;
+            }
+            PieceType type = types[color][i];
+            switch (type) {
+                case KING:
+                    att |= kingMask[sq];
+                    break;
+                case KNIGHT:
+                    att |= knightMask[sq];
+                    break;
+                case QUEEN:
+                case ROCK:
+                case BISHOP:
+                    for (int d : BoardGeometry.directions(type)) {
+                        long r = ray(d, sq, occ);
+                        att |= r;
+                        long king = r & oppKing;
+                        if (king != 0) {
+                            long behind = rays[d][Long.numberOfTrailingZeros(king)];
+                            if (behind != 0) {
+                                att |= 1L << (d > 3 ? Long.numberOfTrailingZeros(behind)
+                                        : 63 - Long.numberOfLeadingZeros(behind));
+                            }
+                        }
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return att;
+    }
+
+    /**
+     * Returns type ordinal of piece in a square.
+     *
+     * @param color color index of piece.
+     * @param sq square index.
+     * @return piece type ordinal, or -1 if square has no piece of that color.
+     */
+    private int typeAt(int color, int sq) {
+        if ((colorOcc[color] & (1L << sq)) == 0) {
+            return -1;
+        }
+        long[] occ = typeOcc[color];
+        for (int t = 0; t < occ.length; t++) {
+            if ((occ[t] & (1L << sq)) != 0) {
+                return t;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Appends movements of a piece to a list, as packed movements (see
+     * {@code Move}).
+     *
+     * @param list destination list.
+     * @param targets destination squares.
+     * @param color color index of moving piece.
+     * @param piece index of moving piece.
+     * @param ascending true if destinations are added from lowest square
+     * index.
+     */
+    private void add(MoveList list, long targets, int color, int piece, boolean ascending) {
+        int from = squares[color][piece];
+        int type = types[color][piece].ordinal();
+        boolean pawn = (types[color][piece] == PieceType.PAWN);
+        while (targets != 0) {
+            int to;
+            if (ascending) {
+                to = Long.numberOfTrailingZeros(targets);
+            } else {
+                to = 63 - Long.numberOfLeadingZeros(targets);
+            }
+            targets &= ~(1L << to);
+            int flags = 0;
+            if (pawn) {
+                if (Math.abs(to - from) == 2 * nColumns) {
+                    flags |= Move.DOUBLE_STEP;
+                }
+                int row = to / nColumns;
+                if (row == 0 || row == nRows - 1) {
+                    flags |= Move.PROMOTION;
+                }
+            }
+            list.add(Move.of(from, to, type, typeAt(1 - color, to), flags));
+        }
+    }
+
+    /**
+     * Generates legal captures to a player, in the same order that
+     * {@code generateMoves} generates them. Non capturing movements are never
+     * generated, so this method is cheaper than filtering all movements.
+     *
+     * @param color color index of player to move.
+     * @param list list where packed captures are appended.
+     * @return number of generated captures.
+     */
+    int generateCaptures(int color, MoveList list) {
+        int opp = 1 - color;
+        long targets = colorOcc[opp];
+        long occ = colorOcc[WHITE] | colorOcc[BLACK];
+        int start = list.size();
+
+        for (int i = 0; i < types[color].length; i++) {
+            int sq = squares[color][i];
+            if (sq < 0) {
+                continue;
+            }
+            PieceType type = types[color][i];
+            switch (type) {
+                case PAWN: {
+                    long up = forward((1L << sq) & movablePawns(color), color, 1);
+                    long att = ((up & ~firstColumn) >>> 1) | ((up & ~lastColumn) << 1);
+                    add(list, att & targets, color, i, true);
+                    break;
+                }
+                case KING:
+                    if ((kingMask[sq] & targets) != 0) {
+                        add(list, kingMask[sq] & targets & ~attacks(opp), color, i, true);
+                    }
+                    break;
+                case KNIGHT:
+                    add(list, knightMask[sq] & targets, color, i, true);
+                    break;
+                case QUEEN:
+                case ROCK:
+                case BISHOP:
+                    for (int d : BoardGeometry.directions(type)) {
+                        add(list, ray(d, sq, occ) & targets, color, i, d > 3);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return list.size() - start;
+    }
+
+    /**
+     * Generates all legal movements to a player, in the same order that
+     * {@code ChessBoard} pieces define them.
+     *
+     * @param color color index of player to move.
+     * @param list list where packed movements are appended.
+     * @return number of generated movements.
+     */
+    int generateMoves(int color, MoveList list) {
+        int opp = 1 - color;
+        long own = colorOcc[color];
+        long occ = colorOcc[WHITE] | colorOcc[BLACK];
+        long empty = ~occ & boardMask;
+        long forbidden = 0;
+        boolean forbiddenDone = false;
+        int start = list.size();
+
+        for (int i = 0; i < types[color].length; i++) {
+            int sq = squares[color][i];
+            if (sq < 0) {
+                continue;
+            }
+            PieceType type = types[color][i];
+            switch (type) {
+                case PAWN: {
+                    long b = 1L << sq;
+                    long up = forward(b & movablePawns(color), color, 1);
+                    if (up == 0) {
+                        break;
+                    }
+                    long push = up & empty;
+                    if (push != 0 && firstMove[color][i]) {
+                        push |= forward(push, color, 1) & empty;
+                    }
+                    add(list, push, color, i, color == BLACK);
+                    long att = ((up & ~firstColumn) >>> 1) | ((up & ~lastColumn) << 1);
+                    add(list, att & colorOcc[opp], color, i, true);
+                    break;
+                }
+                case KING:
+                    if (!forbiddenDone) {
+                        forbidden = attacks(opp);
+                        forbiddenDone = true;
+                    }
+                    add(list, kingMask[sq] & ~own & ~forbidden, color, i, true);
+                    break;
+                case KNIGHT:
+                    add(list, knightMask[sq] & ~own, color, i, true);
+                    break;
+                case QUEEN:
+                case ROCK:
+                case BISHOP:
+                    for (int d : BoardGeometry.directions(type)) {
+                        add(list, ray(d, sq, occ) & ~own, color, i, d > 3);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return list.size() - start;
+    }
+
+}
@@ -0,0 +1,263 @@
+package pchess.core;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import pchess.core.enums.PieceType;
+
+/**
+ * Movement tables of a chessboard geometry (number of rows and columns).
+ * Tables keep destination squares of each square as square indexes
+ * ({@code row * nColumns + column}), in the order that pieces define their
+ * movements, so movement generators never check chessboard bounds.
+ * <p>
+ * Tables are built once for each geometry and shared by all chessboards
+ * with that geometry. Geometries with at most 64 squares also keep tables as
+ * bitboard masks, used by {@code BitBoard}.
+ */
+final class BoardGeometry {
+
+    /**
+     * Direction vectors, in the same order as king movement vector.
+     */
+    static final int[][] DIRECTIONS
+            = {{-1, -1}, {-1, 0}, {-1, 1}, {0, -1},
+            {0, 1}, {1, -1}, {1, 0}, {1, 1}};
+
+    /**
+     * Queen directions, indexes in {@code DIRECTIONS}.
+     */
+    private static final int[] QUEEN_DIRECTIONS = {0, 1, 2, 3, 4, 5, 6, 7};
+
+    /**
+     * Rook directions, indexes in {@code DIRECTIONS}.
+     */
+    private static final int[] ROOK_DIRECTIONS = {1, 6, 3, 4};
+
+    /**
+     * Bishop directions, indexes in {@code DIRECTIONS}.
+     */
+    private static final int[] BISHOP_DIRECTIONS = {0, 2, 5, 7};
+
+    /**
+     * Knight movement vector.
+     */
+    private static final int[][] KNIGHT_VECTOR
+            = {{-2, -1}, {-2, 1}, {-1, -2}, {-1, 2},
+            {1, -2}, {1, 2}, {2, -1}, {2, 1}};
+
+    /**
+     * Geometries already built, by number of rows and columns.
+     */
+    private static final ConcurrentHashMap<Integer, BoardGeometry> GEOMETRIES
+            = new ConcurrentHashMap<>();
+
+    /**
+     * Number of rows.
+     */
+    final int nRows;
+
+    /**
+     * Number of columns.
+     */
+    final int nColumns;
+
+    /**
+     * King destinations by square.
+     */
+    final int[][] kingTargets;
+
+    /**
+     * Knight destinations by square.
+     */
+    final int[][] knightTargets;
+
+    /**
+     * Rays by direction and square. A ray lists squares from a square
+     * (excluded) to chessboard border in that direction, nearest first.
+     */
+    final int[][][] rays;
+
+    /**
+     * Pawn pushes by color index and square: one square forward, then two
+     * squares forward if that square is in chessboard.
+     */
+    final int[][][] pawnPushes;
+
+    /**
+     * Squares attacked by a pawn, by color index and square.
+     */
+    final int[][][] pawnAttacks;
+
+    /**
+     * King movements by square as bitboards, {@code null} if geometry has
+     * more than 64 squares.
+     */
+    final long[] kingMasks;
+
+    /**
+     * Knight movements by square as bitboards, {@code null} if geometry has
+     * more than 64 squares.
+     */
+    final long[] knightMasks;
+
+    /**
+     * Rays by direction and square as bitboards, {@code null} if geometry
+     * has more than 64 squares.
+     */
+    final long[][] rayMasks;
+
+    /**
+     * Constructor. Builds tables of a geometry.
+     *
+     * @param nRows number of rows.
+     * @param nColumns number of columns.
+     */
+    private BoardGeometry(int nRows, int nColumns) {
+        this.nRows = nRows;
+        this.nColumns = nColumns;
+        int n = nRows * nColumns;
+        kingTargets = new int[n][];
+        knightTargets = new int[n][];
+        rays = new int[DIRECTIONS.length][n][];
+        pawnPushes = new int[2][n][];
+        pawnAttacks = new int[2][n][];
+        for (int r = 0; r < nRows; r++) {
+            for (int c = 0; c < nColumns; c++) {
+                int sq = r * nColumns + c;
+                kingTargets[sq] = jumps(r, c, DIRECTIONS);
+                knightTargets[sq] = jumps(r, c, KNIGHT_VECTOR);
+                for (int d = 0; d < DIRECTIONS.length; d++) {
+                    rays[d][sq] = ray(r, c, DIRECTIONS[d]);
+                }
+                for (int color = BitBoard.WHITE; color <= BitBoard.BLACK; color++) {
+                    int dp = (color == BitBoard.WHITE ? -1 : 1);
+                    pawnPushes[color][sq] = jumps(r, c, new int[][]{{dp, 0}, {2 * dp, 0}});
+                    pawnAttacks[color][sq] = jumps(r, c, new int[][]{{dp, -1}, {dp, 1}});
+                }
+            }
+        }
+
+        if (n <= 64) {
+            kingMasks = masks(kingTargets);
+            knightMasks = masks(knightTargets);
+            rayMasks = new long[DIRECTIONS.length][];
+            for (int d = 0; d < DIRECTIONS.length; d++) {
+                rayMasks[d] = masks(rays[d]);
+            }
+        } else {
+            kingMasks = null;
+            knightMasks = null;
+            rayMasks = null;
+        }
+    }
+
+    /**
+     * Returns tables of a geometry, building them if needed.
+     *
+     * @param nRows number of rows.
+     * @param nColumns number of columns.
+     * @return geometry tables.
+     */
+    static BoardGeometry of(int nRows, int nColumns) {
+        Integer key = nRows * 256 + nColumns;
+        BoardGeometry g = GEOMETRIES.get(key);
+        if (g == null) {
+            g = GEOMETRIES.computeIfAbsent(key, k -> new BoardGeometry(nRows, nColumns));
+        }
+        return g;
+    }
+
+    /**
+     * Returns direction indexes for a slider type.
+     *
+     * @param type piece type.
+     * @return direction indexes, or null if piece is not a slider.
+     */
+    static int[] directions(PieceType type) {
+        switch (type) {
+            case QUEEN:
+                return QUEEN_DIRECTIONS;
+            case ROCK:
+                return ROOK_DIRECTIONS;
+            case BISHOP:
+                return BISHOP_DIRECTIONS;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Returns destinations by square of a piece that moves one step.
+     *
+     * @param type piece type.
+     * @return destinations by square, or null if piece doesn't move one
+     * step.
+     */
+    int[][] targets(PieceType type) {
+        switch (type) {
+            case KING:
+                return kingTargets;
+            case KNIGHT:
+                return knightTargets;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Returns squares reached from a square by each vector that stays in
+     * chessboard.
+     *
+     * @param r square row.
+     * @param c square column.
+     * @param vectors movement vectors.
+     * @return square indexes, in vector order.
+     */
+    private int[] jumps(int r, int c, int[][] vectors) {
+        int[] t = new int[vectors.length];
+        int k = 0;
+        for (int[] v : vectors) {
+            int i = r + v[0];
+            int j = c + v[1];
+            if (i > -1 && i < nRows && j > -1 && j < nColumns) {
+                t[k++] = i * nColumns + j;
+            }
+        }
+        return (k == t.length ? t : Arrays.copyOf(t, k));
+    }
+
+    /**
+     * Returns squares from a square to chessboard border along a direction.
+     *
+     * @param r square row.
+     * @param c square column.
+     * @param d direction vector.
+     * @return square indexes, nearest first.
+     */
+    private int[] ray(int r, int c, int[] d) {
+        int[] t = new int[Math.max(nRows, nColumns)];
+        int k = 0;
+        for (int i = r + d[0], j = c + d[1]; i > -1 && i < nRows && j > -1 && j < nColumns;
+                i += d[0], j += d[1]) {
+            t[k++] = i * nColumns + j;
+        }
+        return Arrays.copyOf(t, k);
+    }
+
+    /**
+     * Converts square lists to bitboards.
+     *
+     * @param targets square indexes by square.
+     * @return bitboards by square.
+     */
+    private static long[] masks(int[][] targets) {
+        long[] m = new long[targets.length];
+        for (int sq = 0; sq < targets.length; sq++) {
+            for (int t : targets[sq]) {
+                m[sq] |= 1L << t;
+            }
+        }
+        return m;
+    }
+
+}
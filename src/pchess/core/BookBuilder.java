@@ -0,0 +1,282 @@
+package pchess.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+import pchess.core.enums.PieceColor;
+import pchess.core.enums.PlayerType;
+import pchess.engine.AnalysisStore;
+import pchess.engine.OpeningBook;
+import pchess.engine.SearchLimits;
+import pchess.games.BishopAgainstPawn;
+import pchess.games.KillerKnight;
+import pchess.games.KillerQueen;
+import pchess.games.KillerRook;
+import pchess.games.KnightAgainstPawn;
+import pchess.games.PawnBattle;
+import pchess.games.PreChessGame;
+
+/**
+ * Builder of opening books. Start position of most game variants is always
+ * the same, so first movements are analysed offline: self-play games, run in
+ * parallel, go through first plies of a variant. Each position reached is
+ * analysed once, with a deep search of every movement, and movements whose
+ * score is close to the best one are candidates. Self-play chooses among
+ * candidates at random, preferring better ones, and book weight of each
+ * movement is the number of games that played it.
+ * <p>
+ * Usage: {@code BookBuilder [plies] [depth] [games]}. Books of all variants
+ * are written to directory defined by system property {@code pchess.books}.
+ */
+public class BookBuilder {
+
+    /**
+     * Maximum score loss of a candidate movement, compared with best one.
+     */
+    private static final int MARGIN = 10;
+
+    /**
+     * Game variant.
+     */
+    private final PreChessGame game;
+
+    /**
+     * Number of plies of book lines.
+     */
+    private final int plies;
+
+    /**
+     * Depth of searches.
+     */
+    private final int depth;
+
+    /**
+     * Analysed positions by position key.
+     */
+    private final ConcurrentHashMap<Long, Analysis> analysed = new ConcurrentHashMap<>();
+
+    /**
+     * Candidate movements of a position.
+     */
+    private static class Analysis {
+
+        /**
+         * Encoded candidate movements.
+         */
+        final int[] moves;
+
+        /**
+         * Preference of candidate movements in self-play.
+         */
+        final int[] preferences;
+
+        /**
+         * Number of self-play games that played each candidate movement.
+         */
+        final AtomicIntegerArray played;
+
+        /**
+         * Constructor.
+         *
+         * @param moves encoded candidate movements.
+         * @param preferences preference of candidate movements.
+         */
+        Analysis(int[] moves, int[] preferences) {
+            this.moves = moves;
+            this.preferences = preferences;
+            this.played = new AtomicIntegerArray(moves.length);
+        }
+    }
+
+    /**
+     * Constructor. Makes a book builder of a game variant.
+     *
+     * @param game game variant.
+     * @param plies number of plies of book lines.
+     * @param depth depth of searches.
+     * @throws IllegalArgumentException if plies or depth are not positive.
+     */
+    public BookBuilder(PreChessGame game, int plies, int depth) {
+        if (plies < 1 || depth < 1) {
+            throw new IllegalArgumentException("Plies and depth must be positive");
+        }
+        this.game = game;
+        this.plies = plies;
+        this.depth = depth;
+    }
+
+    /**
+     * Plays self-play games in parallel, analysing positions reached.
+     *
+     * @param games number of self-play games.
+     * @param seed random seed; game {@code i} uses seed {@code seed + i}.
+     */
+    public void play(int games, long seed) {
+        IntStream.range(0, games).parallel().forEach(i -> playGame(new Random(seed + i)));
+    }
+
+    /**
+     * Plays one self-play game until book length or end of game.
+     *
+     * @param random random generator.
+     */
+    private void playGame(Random random) {
+        PreChessGame g = game.newGame();
+        g.startGame();
+        ChessBoard board = g.getChessBoard();
+        for (int ply = 0; ply < plies && !g.isGameOver(board.copy()); ply++) {
+            long key = g.getPositionKey(board);
+            Analysis a = analysed.get(key);
+            if (a == null) {
+                a = analyse(g);
+                Analysis old = analysed.putIfAbsent(key, a);
+                a = (old == null ? a : old);
+            }
+            int total = 0;
+            for (int p : a.preferences) {
+                total += p;
+            }
+            int r = random.nextInt(total);
+            int i = 0;
+            while (r >= a.preferences[i]) {
+                r -= a.preferences[i++];
+            }
+            a.played.incrementAndGet(i);
+            board.make(board.decode(a.moves[i]));
+        }
+    }
+
+    /**
+     * Analyses current position of a game: each movement is searched to
+     * builder depth, and movements within {@code MARGIN} of best score are
+     * candidates.
+     *
+     * @param g game, where game is not over.
+     * @return candidate movements.
+     */
+    private Analysis analyse(PreChessGame g) {
+        ChessBoard board = g.getChessBoard();
+        Movement[] moves = board.getMoves();
+        int[] scores = new int[moves.length];
+        int best = Integer.MIN_VALUE;
+        for (int i = 0; i < moves.length; i++) {
+            MoveUndo undo = board.make(moves[i]);
+            ChessBoard child = board.copy();
+            if (g.isGameOver(child)) {
+                scores[i] = -g.evaluate(child);
+            } else {
+                ComputerPlayer player = (ComputerPlayer) g.getPlayer(board.getCurrentPlayer());
+                scores[i] = -player.search(new SearchLimits(0, 0, depth - 1)).getScore();
+            }
+            board.unmake(undo);
+            best = Math.max(best, scores[i]);
+        }
+        List<Integer> candidates = new ArrayList<>();
+        for (int i = 0; i < moves.length; i++) {
+            if (scores[i] >= best - MARGIN) {
+                candidates.add(i);
+            }
+        }
+        int[] codes = new int[candidates.size()];
+        int[] preferences = new int[candidates.size()];
+        for (int i = 0; i < codes.length; i++) {
+            int m = candidates.get(i);
+            codes[i] = board.encode(moves[m]);
+            preferences[i] = MARGIN + 1 - (best - scores[m]);
+        }
+        return new Analysis(codes, preferences);
+    }
+
+    /**
+     * Returns number of analysed positions.
+     *
+     * @return number of positions.
+     */
+    public int getPositions() {
+        return analysed.size();
+    }
+
+    /**
+     * Writes book with movements played by self-play games.
+     *
+     * @param file destination file.
+     * @return number of book records.
+     * @throws IOException if file can't be written.
+     */
+    public int write(File file) throws IOException {
+        int n = 0;
+        for (Analysis a : analysed.values()) {
+            n += a.moves.length;
+        }
+        long[] keys = new long[n];
+        int[] moves = new int[n];
+        int[] weights = new int[n];
+        n = 0;
+        for (Map.Entry<Long, Analysis> e : analysed.entrySet()) {
+            Analysis a = e.getValue();
+            for (int i = 0; i < a.moves.length; i++) {
+                if (a.played.get(i) > 0) {
+                    keys[n] = e.getKey();
+                    moves[n] = a.moves[i];
+                    weights[n] = a.played.get(i);
+                    n++;
+                }
+            }
+        }
+        OpeningBook.write(file, AnalysisStore.salt(game.getVariant()), keys, moves, weights, n);
+        return n;
+    }
+
+    /**
+     * Returns games of all variants and layouts with fixed start positions.
+     *
+     * @return games.
+     */
+    private static PreChessGame[] variants() {
+        PlayerType c = PlayerType.COMPUTER;
+        List<PreChessGame> games = new ArrayList<>();
+        for (int diamonds : new int[]{8, 12, 16}) {
+            games.add(new KillerQueen(c, c, diamonds));
+            games.add(new KillerRook(c, c, diamonds));
+            games.add(new KillerKnight(c, c, diamonds));
+        }
+        for (int columns = 4; columns <= 8; columns++) {
+            games.add(new PawnBattle(c, c, columns));
+        }
+        for (PieceColor color : PieceColor.values()) {
+            games.add(new KnightAgainstPawn(c, c, color));
+            games.add(new BishopAgainstPawn(c, c, color));
+        }
+        return games.toArray(new PreChessGame[0]);
+    }
+
+    /**
+     * Builds books of all variants.
+     *
+     * @param args number of plies (default 6), search depth (default 6) and
+     * number of self-play games per variant (default 64).
+     * @throws IOException if a book can't be written.
+     */
+    public static void main(String[] args) throws IOException {
+        int plies = (args.length > 0 ? Integer.parseInt(args[0]) : 6);
+        int depth = (args.length > 1 ? Integer.parseInt(args[1]) : 6);
+        int games = (args.length > 2 ? Integer.parseInt(args[2]) : 64);
+        ComputerPlayer.setThreads(1);
+        for (PreChessGame game : variants()) {
+            long start = System.nanoTime();
+            BookBuilder builder = new BookBuilder(game, plies, depth);
+            builder.play(games, game.getVariant().hashCode());
+            File file = ComputerPlayer.getBookFile(game);
+            int records = builder.write(file);
+            System.out.printf("%-28s %6d positions %6d records %8d ms  %s%n", game.getVariant(),
+                    builder.getPositions(), records, (System.nanoTime() - start) / 1000000, file);
+        }
+    }
+
+}
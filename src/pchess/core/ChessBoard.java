@@ -1,6 +1,7 @@
 package pchess.core;
 
 import pchess.core.enums.PieceColor;
+import pchess.core.enums.PieceType;
 import pchess.core.enums.SquareType;
 
 /**
@@ -23,6 +24,11 @@ public class ChessBoard {
      */
     private final int nColumns;
 
+    /**
+     * Movement tables of this chessboard geometry.
+     */
+    private final BoardGeometry geometry;
+
     /**
      * White pieces in this chessboard.
      */
@@ -33,6 +39,28 @@ public class ChessBoard {
      */
     private Piece[] blackPieces;
 
+    /**
+     * Bitboard with same position of this chessboard, used to generate
+     * movements. It is {@code null} if chessboard has more than 64 squares.
+     */
+    private BitBoard bitBoard;
+
+    /**
+     * Movement list used by methods that generate movements of this
+     * chessboard for their own use.
+     */
+    private final MoveList scratch = new MoveList(64);
+
+    /**
+     * Zobrist hash of current position, updated in each movement.
+     */
+    private long hash;
+
+    /**
+     * Number of movements (plies) done in this chessboard.
+     */
+    private int ply;
+
     /**
      * Defines current player to move.
      */
@@ -64,6 +92,7 @@ public class ChessBoard {
     public ChessBoard(int nRows, int nColumns) {
         this.nRows = nRows;
         this.nColumns = nColumns;
+        geometry = BoardGeometry.of(nRows, nColumns);
 
         squares = new Square[nRows * nColumns];
 
@@ -81,6 +110,25 @@ public class ChessBoard {
 
     }
 
+    /**
+     * Returns a square in this chessboard.
+     *
+     * @param index square index, as returned by {@code squareIndex}.
+     * @return a square in this chessboard.
+     */
+    Square getSquare(int index) {
+        return squares[index];
+    }
+
+    /**
+     * Returns movement tables of this chessboard geometry.
+     *
+     * @return geometry tables.
+     */
+    BoardGeometry getGeometry() {
+        return geometry;
+    }
+
     /**
      * Returns a square in this chessboard.
      *
@@ -157,6 +205,64 @@ public class ChessBoard {
         blackPieces = new Piece[bPieces.length];
         addPieces(whitePieces, wPieces, PieceColor.WHITE);
         addPieces(blackPieces, bPieces, PieceColor.BLACK);
+        if (BitBoard.fits(nRows, nColumns)) {
+            bitBoard = new BitBoard(this);
+        }
+        hash = computeHash();
+    }
+
+    /**
+     * Computes Zobrist hash of current position from scratch.
+     *
+     * @return position hash.
+     */
+    private long computeHash() {
+        long h = Zobrist.geometry(nRows, nColumns) ^ Zobrist.player(currentPlayer);
+        for (Piece[] pieces : new Piece[][]{whitePieces, blackPieces}) {
+            for (Piece p : pieces) {
+                if (!p.isLiving()) {
+                    continue;
+                }
+                int sq = squareIndex(p.getSquare());
+                h ^= Zobrist.piece(p.getPieceColor(), p.getPieceType(), sq);
+                if (p instanceof Pawn && ((Pawn) p).hasFirstMove()) {
+                    h ^= Zobrist.firstMove(p.getPieceColor(), sq);
+                }
+            }
+        }
+        return h;
+    }
+
+    /**
+     * Returns index of a square in this chessboard.
+     *
+     * @param square a square of this chessboard.
+     * @return square index.
+     */
+    int squareIndex(Square square) {
+        return square.getInternalRow() * nColumns + square.getInternalColumn();
+    }
+
+    /**
+     * Returns Zobrist hash of current position. Hash depends on pieces in
+     * game, their squares, pawns that can move two squares, player to move and
+     * chessboard dimensions.
+     *
+     * @return position hash.
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Returns number of movements (plies) done since game start. Each time
+     * move is passed, a ply is counted; taking back a movement also takes
+     * back its ply.
+     *
+     * @return number of plies.
+     */
+    public int getPly() {
+        return ply;
     }
 
     private void addPieces(Piece[] pieces, String[] pieceDefinitions, PieceColor pieceColor) {
@@ -192,6 +298,7 @@ public class ChessBoard {
                     throw new IllegalArgumentException(
                             "Piece symbol not recognized: " + pType);
             }
+            pieces[i].index = i;
 
             String squareName = pieceDefinitions[i].substring(1);
             if (!squareName.equals("X")) {
@@ -220,13 +327,13 @@ public class ChessBoard {
     }
 
     /**
-     * Returns a new chessboard with a piece moved. This method is used to
-     * AI, so that computer can play against human player.
-     * 
-     * @param move Movement to be done in new chessboard.
-     * @return new chessboard with a piece moved.
+     * Returns a copy of this chessboard. New chessboard has its own squares
+     * and pieces, in the same order of this chessboard, so that it can be
+     * changed without affecting this one.
+     *
+     * @return a copy of this chessboard.
      */
-    public ChessBoard makeMove(Movement move) {
+    public ChessBoard copy() {
         ChessBoard cb = new ChessBoard(nRows, nColumns);
         String[] wp = new String[whitePieces.length];
         String[] bp = new String[blackPieces.length];
@@ -237,35 +344,258 @@ public class ChessBoard {
             bp[i] = blackPieces[i].toString();
         }
         cb.addPieces(wp, bp);
-        String piecePosition = move.getPiece().getSquare().getName();
-        String squarePosition = move.getSquare().getName();
-        Piece p = cb.getPiece(piecePosition);
-        Square s = cb.getSquare(squarePosition);
-        p.doMove(s);
-        if (currentPlayer == PieceColor.WHITE) {
-            cb.passMove();
+        copyPawnFlags(whitePieces, cb.whitePieces);
+        copyPawnFlags(blackPieces, cb.blackPieces);
+        cb.currentPlayer = currentPlayer;
+        cb.hash = hash;
+        cb.ply = ply;
+        return cb;
+    }
+
+    private void copyPawnFlags(Piece[] pieces, Piece[] copies) {
+        for (int i = 0; i < pieces.length; i++) {
+            if (pieces[i] instanceof Pawn) {
+                Pawn pawn = (Pawn) pieces[i];
+                ((Pawn) copies[i]).restoreFlags(pawn.hasFirstMove(), pawn.isPromoted());
+            }
         }
+    }
+
+    /**
+     * Returns a movement equivalent to {@code move} in this chessboard.
+     * Movement can be defined in another chessboard with same dimensions and
+     * same position, like a copy of this chessboard.
+     *
+     * @param move movement defined in any chessboard.
+     * @return same movement, with piece and square from this chessboard.
+     */
+    public Movement translate(Movement move) {
+        Square from = move.getPiece().getSquare();
+        Square to = move.getSquare();
+        Piece p = getSquare(from.getInternalRow(), from.getInternalColumn()).getPiece();
+        Square s = getSquare(to.getInternalRow(), to.getInternalColumn());
+        Movement m = new Movement(p, s);
+        m.setScore(move.getScore());
+        return m;
+    }
+
+    /**
+     * Returns a new chessboard with a piece moved.
+     *
+     * @param move Movement to be done in new chessboard.
+     * @return new chessboard with a piece moved.
+     */
+    public ChessBoard makeMove(Movement move) {
+        ChessBoard cb = copy();
+        cb.make(cb.translate(move));
         return cb;
     }
 
     /**
-     * Changes player that has move.
+     * Packs a movement of this chessboard in an {@code int} (see
+     * {@code Move}). This is the adapter from movements used by GUI and
+     * players to movements used by search.
+     *
+     * @param move movement defined in this chessboard.
+     * @return packed movement.
+     */
+    public int encode(Movement move) {
+        Piece piece = move.getPiece();
+        Square from = piece.getSquare();
+        Square to = move.getSquare();
+        Piece captured = to.getPiece();
+        int flags = 0;
+        if (piece.getPieceType() == PieceType.PAWN) {
+            if (Math.abs(to.getInternalRow() - from.getInternalRow()) == 2) {
+                flags |= Move.DOUBLE_STEP;
+            }
+            if (to.getInternalRow() == 0 || to.getInternalRow() == nRows - 1) {
+                flags |= Move.PROMOTION;
+            }
+        }
+        return Move.of(squareIndex(from), squareIndex(to), piece.getPieceType(),
+                (captured == null ? null : captured.getPieceType()), flags);
+    }
+
+    /**
+     * Unpacks a movement packed by {@code encode}, or generated in any
+     * chessboard with same position.
+     *
+     * @param move packed movement.
+     * @return movement defined in this chessboard.
+     */
+    public Movement decode(int move) {
+        return new Movement(squares[Move.from(move)].getPiece(), squares[Move.to(move)]);
+    }
+
+    /**
+     * Returns piece moved by a packed movement.
+     *
+     * @param move packed movement.
+     * @return moving piece.
+     */
+    Piece movingPiece(int move) {
+        return squares[Move.from(move)].getPiece();
+    }
+
+    /**
+     * Returns destination square of a packed movement.
+     *
+     * @param move packed movement.
+     * @return destination square.
+     */
+    Square target(int move) {
+        return squares[Move.to(move)];
+    }
+
+    /**
+     * Appends packed movements of player to move to a list, in the same
+     * order as {@code getMoves}. Nothing is allocated when this chessboard
+     * has a bitboard and list has room.
+     *
+     * @param list list where movements are appended.
+     * @return number of movements.
+     */
+    public int generateMoves(MoveList list) {
+        if (bitBoard != null) {
+            return bitBoard.generateMoves(BitBoard.colorIndex(currentPlayer), list);
+        }
+        Movement[] moves = getMoves();
+        for (Movement m : moves) {
+            list.add(encode(m));
+        }
+        return moves.length;
+    }
+
+    /**
+     * Appends packed captures of player to move to a list, in the same
+     * order as {@code getCaptures}. Nothing is allocated when this
+     * chessboard has a bitboard and list has room.
+     *
+     * @param list list where captures are appended.
+     * @return number of captures.
+     */
+    int generateCaptures(MoveList list) {
+        if (bitBoard != null) {
+            return bitBoard.generateCaptures(BitBoard.colorIndex(currentPlayer), list);
+        }
+        Movement[] moves = getCaptures();
+        for (Movement m : moves) {
+            list.add(encode(m));
+        }
+        return moves.length;
+    }
+
+    /**
+     * Makes a packed movement, saving state in an undo object given by
+     * caller, so that nothing is allocated. Movement must be taken back with
+     * {@code unmake}.
+     *
+     * @param move packed movement.
+     * @param undo object filled with information to take back movement.
+     */
+    public void make(int move, MoveUndo undo) {
+        Piece piece = movingPiece(move);
+        Square to = target(move);
+        undo.set(piece, to, currentPlayer, hash);
+        piece.doMove(to);
+        passMove();
+    }
+
+    /**
+     * Makes a movement in this chessboard and gives move to opponent. This
+     * method is used to AI, so that computer can search movements without
+     * making new chessboards. Movement must be taken back with {@code unmake}.
+     *
+     * @param move movement to be done, defined in this chessboard.
+     * @return information to take back movement.
+     */
+    public MoveUndo make(Movement move) {
+        MoveUndo undo = new MoveUndo(move.getPiece(), move.getSquare(), currentPlayer, hash);
+        move.getPiece().doMove(move.getSquare());
+        passMove();
+        return undo;
+    }
+
+    /**
+     * Updates chessboard state after a piece is moved. This method is called
+     * by {@code Piece.doMove}, before a moving pawn loses its first move.
+     *
+     * @param piece moved piece, already in its new square.
+     * @param from square where piece stayed before movement.
+     * @param captured piece captured by movement, or {@code null}.
+     */
+    void pieceMoved(Piece piece, Square from, Piece captured) {
+        PieceColor pc = piece.getPieceColor();
+        int to = squareIndex(piece.getSquare());
+        int fromIndex = squareIndex(from);
+        hash ^= Zobrist.piece(pc, piece.getPieceType(), fromIndex)
+                ^ Zobrist.piece(pc, piece.getPieceType(), to);
+        if (piece instanceof Pawn && ((Pawn) piece).hasFirstMove()) {
+            hash ^= Zobrist.firstMove(pc, fromIndex);
+        }
+        if (captured != null) {
+            hash ^= Zobrist.piece(captured.getPieceColor(), captured.getPieceType(), to);
+            if (captured instanceof Pawn && ((Pawn) captured).hasFirstMove()) {
+                hash ^= Zobrist.firstMove(captured.getPieceColor(), to);
+            }
+        }
+        if (bitBoard != null) {
+            bitBoard.move(BitBoard.colorIndex(piece.getPieceColor()), piece.index,
+                    bitBoard.index(piece.getSquare()),
+                    (captured == null ? -1 : captured.index));
+        }
+    }
+
+    /**
+     * Takes back a movement done with {@code make}. Captured piece, pawn
+     * flags, player to move and ply count are restored.
+     *
+     * @param undo information returned by {@code make}.
+     */
+    public void unmake(MoveUndo undo) {
+        undo.piece.undoMove(undo.from);
+        if (undo.captured != null) {
+            undo.captured.restoreCaptured(undo.to);
+        }
+        if (undo.piece instanceof Pawn) {
+            ((Pawn) undo.piece).restoreFlags(undo.firstMove, undo.promoting);
+        }
+        if (bitBoard != null) {
+            bitBoard.unmove(BitBoard.colorIndex(undo.piece.getPieceColor()),
+                    undo.piece.index, bitBoard.index(undo.from),
+                    (undo.captured == null ? -1 : undo.captured.index),
+                    undo.firstMove);
+        }
+        currentPlayer = undo.player;
+        hash = undo.hash;
+        ply--;
+    }
+
+    /**
+     * Changes player that has move and counts a ply.
      */
     public void passMove() {
+        hash ^= Zobrist.player(currentPlayer);
         if (currentPlayer == PieceColor.WHITE) {
             currentPlayer = PieceColor.BLACK;
         } else {
             currentPlayer = PieceColor.WHITE;
         }
+        hash ^= Zobrist.player(currentPlayer);
+        ply++;
     }
 
     /**
-     * Changes move to defined player.
+     * Changes move to defined player and counts a ply.
      * 
      * @param player player that gains move. 
      */
     public void passMoveTo(Player player) {
+        hash ^= Zobrist.player(currentPlayer);
         currentPlayer = player.getPieceColor();
+        hash ^= Zobrist.player(currentPlayer);
+        ply++;
     }
 
     /**
@@ -278,13 +608,25 @@ public class ChessBoard {
     }
 
     /**
-     * Returns a list with all possible movements for current player.
+     * Returns a list with all possible movements for current player. If this
+     * chessboard fits in a bitboard, movements are generated by bitboard,
+     * otherwise each piece defines its legal movements.
      * 
      * @return a list with all possible movements for current player. 
      */
     public Movement[] getMoves() {
         Piece[] pieces = (currentPlayer == PieceColor.WHITE ? whitePieces : blackPieces);
 
+        if (bitBoard != null) {
+            scratch.clear();
+            int total = bitBoard.generateMoves(BitBoard.colorIndex(currentPlayer), scratch);
+            Movement[] mov = new Movement[total];
+            for (int i = 0; i < total; i++) {
+                mov[i] = decode(scratch.get(i));
+            }
+            return mov;
+        }
+
         int total = 0;
         for (Piece p : pieces) {
             p.defLegalMove();
@@ -302,6 +644,42 @@ public class ChessBoard {
         return mov;
     }
 
+    /**
+     * Returns a list with all possible captures for current player. If this
+     * chessboard fits in a bitboard, only captures are generated, otherwise
+     * captures are taken from all movements.
+     * 
+     * @return a list with all possible captures for current player.
+     */
+    public Movement[] getCaptures() {
+        if (bitBoard != null) {
+            scratch.clear();
+            int total = bitBoard.generateCaptures(BitBoard.colorIndex(currentPlayer), scratch);
+            Movement[] mov = new Movement[total];
+            for (int i = 0; i < total; i++) {
+                mov[i] = decode(scratch.get(i));
+            }
+            return mov;
+        }
+
+        Movement[] all = getMoves();
+        int total = 0;
+        for (Movement m : all) {
+            if (m.getSquare().isOccupied()) {
+                total++;
+            }
+        }
+        Movement[] mov = new Movement[total];
+        int n = 0;
+        for (Movement m : all) {
+            if (m.getSquare().isOccupied()) {
+                mov[n] = m;
+                n++;
+            }
+        }
+        return mov;
+    }
+
     /**
      * Sets what player wins game.
      * 
@@ -343,6 +721,11 @@ public class ChessBoard {
             return false;
         }
 
+        if (bitBoard != null) {
+            scratch.clear();
+            return bitBoard.generateMoves(BitBoard.colorIndex(pc), scratch) == 0;
+        }
+
         Piece[] pieces = (pc == PieceColor.WHITE ? whitePieces : blackPieces);
 
         for (Piece piece : pieces) {
@@ -1,14 +1,40 @@
 package pchess.core;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 import pchess.core.enums.Difficulty;
+import pchess.core.enums.Engine;
 import pchess.core.enums.PieceColor;
 import pchess.core.enums.PlayerType;
+import pchess.engine.AnalysisStore;
+import pchess.engine.MoveOrderer;
+import pchess.engine.OpeningBook;
+import pchess.engine.SearchLimits;
+import pchess.engine.SearchStatistics;
+import pchess.engine.TranspositionTable;
 import pchess.games.PreChessGame;
 
 /**
  * A computer player. This class defines AI methods so that computer can
  * choose best move to do and play against human player.
- * Negamax algorithm is implemented.
+ * Negamax algorithm with alpha-beta pruning is implemented. Search is done
+ * with iterative deepening, until search limits defined by game and
+ * difficulty are reached.
+ * <p>
+ * Search can use many threads (Lazy SMP): each thread searches same position
+ * with its own chessboard copy and movement orderer, and all threads share
+ * one transposition table, so that they help each other. Main thread
+ * controls search limits and its movement is played.
  */
 public class ComputerPlayer extends Player {
 
@@ -17,6 +43,138 @@ public class ComputerPlayer extends Player {
      */
     private static Difficulty difficulty = Difficulty.EASY;
 
+    /**
+     * Bound used as infinite score in alpha-beta window. It can be safely
+     * negated.
+     */
+    private static final int INFINITY = Integer.MAX_VALUE;
+
+    /**
+     * Margin used in quiescence delta pruning. Captures that can't raise
+     * score above alpha even with this margin are not searched.
+     */
+    private static final int DELTA_MARGIN = 200;
+
+    /**
+     * Part of search time budget that game can spend finding a perfect
+     * movement, as a divisor: perfect movement search gives up after half
+     * of budget, and search uses the rest.
+     */
+    private static final int PERFECT_MOVE_SHARE = 2;
+
+    /**
+     * Engine used by new computer players.
+     */
+    private static Engine engine = Engine.NEGAMAX;
+
+    /**
+     * Size in megabytes of transposition tables of new computer players.
+     */
+    private static int tableSize = 16;
+
+    /**
+     * Number of search threads. Default value is taken from system property
+     * {@code pchess.threads}, or number of available processors.
+     */
+    private static int threads = Math.max(1, Integer.getInteger("pchess.threads",
+            Runtime.getRuntime().availableProcessors()));
+
+    /**
+     * Pool of helper search threads, shared by all computer players.
+     */
+    private static ThreadPoolExecutor helperPool;
+
+    /**
+     * Number of searches running in all computer players.
+     */
+    static final AtomicInteger ACTIVE_SEARCHES = new AtomicInteger();
+
+    /**
+     * Minimum depth of search results written to analysis stores. Shallower
+     * results are cheap to search again.
+     */
+    private static final int STORE_DEPTH = 2;
+
+    /**
+     * Directory of analysis stores, taken from system property
+     * {@code pchess.analysis}, or {@code null} if search results are not
+     * kept between program runs.
+     */
+    private static String storeDirectory = System.getProperty("pchess.analysis");
+
+    /**
+     * Size in megabytes of analysis stores, taken from system property
+     * {@code pchess.analysis.size}.
+     */
+    private static int storeSize = Integer.getInteger("pchess.analysis.size", 64);
+
+    /**
+     * Analysis stores by game variant, opened when first needed. A variant
+     * whose store can't be opened maps to {@code null}.
+     */
+    private static final Map<String, AnalysisStore> stores = new HashMap<>();
+
+    /**
+     * Directory of opening books, taken from system property
+     * {@code pchess.books} (by default, {@code .pchess} in user home).
+     */
+    private static String bookDirectory = System.getProperty("pchess.books",
+            System.getProperty("user.home") + File.separator + ".pchess");
+
+    /**
+     * Opening books by game variant, loaded when first needed. A variant
+     * without a valid book maps to {@code null}.
+     */
+    private static final Map<String, OpeningBook> books = new HashMap<>();
+
+    /**
+     * Statistics of last search, for all threads.
+     */
+    private final SearchStatistics statistics;
+
+    /**
+     * Transposition table with positions already searched by this player.
+     */
+    private TranspositionTable table;
+
+    /**
+     * Analysis store of current search, or {@code null} if search results
+     * are not kept.
+     */
+    private AnalysisStore store;
+
+    /**
+     * Searchers used by this player. First searcher runs in calling thread.
+     */
+    private Searcher[] searchers;
+
+    /**
+     * Limits of current search.
+     */
+    private SearchLimits limits;
+
+    /**
+     * Time, in nanoseconds, when current search must stop, or 0 if search
+     * has no time limit.
+     */
+    private long deadline;
+
+    /**
+     * True if all searchers must stop.
+     */
+    private volatile boolean stop;
+
+    /**
+     * True if this player was cancelled.
+     */
+    private volatile boolean cancelled;
+
+    /**
+     * Lock held while this player searches, so that memory of a cancelled
+     * player is released only when no search uses it.
+     */
+    private final ReentrantLock searchLock = new ReentrantLock();
+
     /**
      * Constructor. Makes a new computer player.
      * @param pieceColor color for pieces owned by this player.
@@ -25,71 +183,842 @@ public class ComputerPlayer extends Player {
     public ComputerPlayer(PieceColor pieceColor, PreChessGame pGame) {
         super(pieceColor, pGame);
         this.playerType = PlayerType.COMPUTER;
+        statistics = new SearchStatistics();
+        searchers = new Searcher[0];
     }
 
     @Override
     /**
-     * Sends a message to computer to make a move. If difficulty is {@code 
-     * Difficulty.HARD}, all movements will be calculated, otherwise,
-     * sometimes computer will be random movements.
+     * Sends a message to computer to make a move, chosen by
+     * {@code chooseMove}.
      */
     public void doMove(){
+        chooseMove().doMove();
+    }
+
+    /**
+     * Chooses a movement in current game position, without doing it. If
+     * difficulty is {@code Difficulty.HARD}, all movements will be
+     * calculated, otherwise, sometimes computer will be random movements.
+     * Movements known by game to be perfect, or found in opening book, are
+     * chosen without search. Looking for a perfect movement takes at most
+     * half of search time budget, and search takes what is left. Game
+     * chessboard is only copied, all work is done in the copy.
+     * @return chosen movement, defined in game chessboard.
+     * @throws CancellationException if this player is cancelled.
+     */
+    public Movement chooseMove() {
+        if (cancelled) {
+            throw new CancellationException("Computer player was cancelled");
+        }
+        ChessBoard position = pGame.getChessBoard().copy();
         Movement move;
         if (Math.random() > difficulty.getPercent()) {
-            move = negamax(pGame.getChessBoard(), 4, 0);
+            SearchLimits searchLimits = pGame.getSearchLimits(difficulty);
+            long start = System.nanoTime();
+            long time = searchLimits.getTime() * 1000000L;
+            move = pGame.findPerfectMove(position,
+                    (time > 0 ? start + time / PERFECT_MOVE_SHARE : 0), this::isCancelled);
+            if (move == null) {
+                move = bookMove(position);
+            }
+            if (move == null) {
+                if (time > 0) {
+                    long left = (start + time - System.nanoTime()) / 1000000L;
+                    searchLimits = new SearchLimits(Math.max(1, left),
+                            searchLimits.getNodes(), searchLimits.getDepth());
+                }
+                move = search(position, searchLimits);
+            }
         } else {
-            move = randomMove();
+            move = randomMove(position);
+        }
+        return pGame.getChessBoard().translate(move);
+    }
+
+    /**
+     * Makes a new computer player, using engine defined by {@code setEngine}.
+     * @param pieceColor color for pieces owned by new player.
+     * @param pGame game that new player is playing.
+     * @return a new computer player.
+     */
+    public static ComputerPlayer newComputerPlayer(PieceColor pieceColor, PreChessGame pGame) {
+        if (engine == Engine.MCTS) {
+            return new MctsPlayer(pieceColor, pGame);
+        }
+        return new ComputerPlayer(pieceColor, pGame);
+    }
+
+    /**
+     * Searches best movement in current game position with iterative
+     * deepening. Each iteration searches one ply deeper than previous one,
+     * until a search limit is reached or a deeper search can't give new
+     * information. First iteration is always completed. Helper threads
+     * search until main thread finishes.
+     * @param searchLimits search limits.
+     * @return best movement of last completed iteration, defined in game
+     * chessboard.
+     * @throws CancellationException if this player is cancelled.
+     */
+    public Movement search(SearchLimits searchLimits) {
+        ChessBoard board = pGame.getChessBoard();
+        return board.translate(search(board.copy(), searchLimits));
+    }
+
+    /**
+     * Searches best movement in a position, as {@code search} does for
+     * game position. Position is not changed.
+     * @param board chessboard with position to search.
+     * @param searchLimits search limits.
+     * @return best movement, defined in {@code board}.
+     * @throws CancellationException if this player is cancelled.
+     */
+    final Movement search(ChessBoard board, SearchLimits searchLimits) {
+        searchLock.lock();
+        try {
+            return searchPosition(board, searchLimits);
+        } finally {
+            searchLock.unlock();
+        }
+    }
+
+    /**
+     * Searches best movement in a position, while holding search lock.
+     * Engines override this method.
+     * @param board chessboard with position to search.
+     * @param searchLimits search limits.
+     * @return best movement, defined in {@code board}.
+     * @throws CancellationException if this player is cancelled.
+     */
+    Movement searchPosition(ChessBoard board, SearchLimits searchLimits) {
+        checkCancelled();
+        limits = searchLimits;
+        deadline = (limits.getTime() > 0
+                ? System.nanoTime() + limits.getTime() * 1000000L : 0);
+        stop = false;
+        if (table == null) {
+            table = new TranspositionTable(tableSize);
+        }
+        table.newSearch();
+        store = analysisStore(pGame);
+        if (searchers.length != threads) {
+            Searcher[] newSearchers = new Searcher[threads];
+            for (int i = 0; i < threads; i++) {
+                newSearchers[i] = (i < searchers.length ? searchers[i]
+                        : new Searcher(i, board.getNRows() * board.getNColumns()));
+            }
+            searchers = newSearchers;
+        }
+        for (Searcher s : searchers) {
+            s.prepare(board);
+        }
+
+        long writes = (store == null ? 0 : store.getWrites());
+        ACTIVE_SEARCHES.incrementAndGet();
+        Future<?>[] helpers = new Future<?>[searchers.length - 1];
+        try {
+            for (int i = 1; i < searchers.length; i++) {
+                helpers[i - 1] = helperPool().submit(searchers[i]);
+            }
+            searchers[0].run();
+        } finally {
+            stop = true;
+            joinHelpers(helpers);
+            ACTIVE_SEARCHES.decrementAndGet();
+            if (store != null && store.getWrites() != writes) {
+                // results are kept on disk even if the program ends abruptly
+                store.flush();
+            }
+        }
+        checkCancelled();
+
+        statistics.clear();
+        for (Searcher s : searchers) {
+            statistics.add(s.statistics);
+        }
+        return board.translate(searchers[0].best);
+    }
+
+    /**
+     * Waits until all helper searches finish.
+     * @param helpers helper searches.
+     */
+    static void joinHelpers(Future<?>[] helpers) {
+        boolean interrupted = false;
+        RuntimeException failure = null;
+        for (Future<?> helper : helpers) {
+            while (helper != null) {
+                try {
+                    helper.get();
+                    break;
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                } catch (ExecutionException ex) {
+                    if (failure == null) {
+                        failure = new IllegalStateException("Helper search failed", ex.getCause());
+                    }
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Returns pool of helper search threads, creating it if needed. Threads
+     * are daemon threads, so they don't keep program running.
+     * @return helper thread pool.
+     */
+    static synchronized ThreadPoolExecutor helperPool() {
+        if (helperPool == null) {
+            AtomicInteger count = new AtomicInteger();
+            helperPool = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+                    new SynchronousQueue<>(), r -> {
+                        Thread t = new Thread(r, "pchess-search-" + count.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    });
+        }
+        return helperPool;
+    }
+
+    /**
+     * Returns number of searches running in all computer players.
+     * @return number of running searches.
+     */
+    public static int getActiveSearches() {
+        return ACTIVE_SEARCHES.get();
+    }
+
+    /**
+     * Returns number of helper search threads alive. Idle threads are kept
+     * for 60 seconds to be reused by next searches.
+     * @return number of helper threads.
+     */
+    public static synchronized int getSearchThreads() {
+        return (helperPool == null ? 0 : helperPool.getPoolSize());
+    }
+
+    /**
+     * Cancels this player, when its game is abandoned. A running search
+     * stops as soon as possible, and this player can't choose more
+     * movements: {@code chooseMove} and {@code search} throw
+     * {@code CancellationException}. Search memory is released now if no
+     * search is running, otherwise when running search finishes. This
+     * method never waits for a search.
+     */
+    public void cancel() {
+        cancelled = true;
+        stop = true;
+        if (searchLock.tryLock()) {
+            try {
+                release();
+            } finally {
+                searchLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Returns true if this player was cancelled.
+     * @return true if player is cancelled.
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Throws an exception if this player was cancelled, releasing its
+     * search memory first. Called when a search starts and finishes, while
+     * holding search lock.
+     * @throws CancellationException if this player is cancelled.
+     */
+    void checkCancelled() {
+        if (cancelled) {
+            release();
+            throw new CancellationException("Computer player was cancelled");
         }
-        move.doMove();
     }
 
     /**
-     * Computes the best move to computer to play.
-     * @param board board to be analised.
-     * @param maxDepth max depth to search for.
-     * @param currentDepth current depth in searching algorithm.
-     * @return 
+     * Releases memory kept between searches: transposition table and
+     * searchers. Called only while holding search lock.
      */
-    private Movement negamax(ChessBoard board, int maxDepth, int currentDepth) {
+    void release() {
+        table = null;
+        searchers = new Searcher[0];
+    }
 
-        if (pGame.isGameOver(board) || currentDepth == maxDepth) {
-            Movement move = new Movement(null, null);
-            move.setScore(pGame.evaluate(board) - currentDepth);
-            return move;
+    /**
+     * Returns analysis store of a game variant, opening it if needed. Stores
+     * are kept in directory {@code pchess.analysis}, one file per variant.
+     * @param game game.
+     * @return analysis store, or {@code null} if stores are not used or store
+     * can't be opened.
+     */
+    static synchronized AnalysisStore analysisStore(PreChessGame game) {
+        if (storeDirectory == null) {
+            return null;
+        }
+        String variant = game.getVariant();
+        if (!stores.containsKey(variant)) {
+            long salt = AnalysisStore.salt(variant);
+            File file = new File(storeDirectory, "analysis-" + Long.toHexString(salt) + ".store");
+            AnalysisStore s = null;
+            try {
+                s = AnalysisStore.open(file, storeSize, salt);
+            } catch (IOException ex) {
+                // searches go on without store, as if stores were not used
+            }
+            stores.put(variant, s);
         }
+        return stores.get(variant);
+    }
+
+    /**
+     * Returns opening book file of a game variant.
+     * @param game game.
+     * @return book file, in directory {@code pchess.books}.
+     */
+    public static File getBookFile(PreChessGame game) {
+        return new File(bookDirectory, "book-"
+                + Long.toHexString(AnalysisStore.salt(game.getVariant())) + ".bin");
+    }
 
-        Movement bestMove = null;
-        int bestScore = Integer.MIN_VALUE;
+    /**
+     * Returns opening book of a game variant, loading it the first time.
+     * @param game game.
+     * @return opening book, or {@code null} if book file doesn't exist or is
+     * not valid.
+     */
+    static synchronized OpeningBook openingBook(PreChessGame game) {
+        String variant = game.getVariant();
+        if (!books.containsKey(variant)) {
+            File file = getBookFile(game);
+            OpeningBook book = null;
+            if (file.isFile()) {
+                try {
+                    book = OpeningBook.load(file, AnalysisStore.salt(variant));
+                } catch (IOException ex) {
+                    // invalid books are ignored, as missing ones
+                }
+            }
+            books.put(variant, book);
+        }
+        return books.get(variant);
+    }
 
+    /**
+     * Chooses a movement of a position from opening book.
+     * @param board chessboard with position.
+     * @return book movement, defined in {@code board}, or {@code null} if
+     * position is not in book.
+     */
+    private Movement bookMove(ChessBoard board) {
+        OpeningBook book = openingBook(pGame);
+        if (book == null) {
+            return null;
+        }
+        int code = book.pick(pGame.getPositionKey(board));
+        if (code == MoveOrderer.NO_MOVE) {
+            return null;
+        }
         for (Movement move : board.getMoves()) {
-            ChessBoard newBoard = board.makeMove(move);
-            Movement currentMove = negamax(newBoard, maxDepth, currentDepth + 1);
+            if (board.encode(move) == code) {
+                return move;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns true if search limits are reached. First iteration of main
+     * thread is never stopped, so that there is always a movement to play.
+     * Limits are checked every 256 nodes of main thread.
+     * @param main main thread searcher.
+     * @return true if search must stop.
+     */
+    private boolean limitReached(Searcher main) {
+        if (main.completedDepth == 0 || (main.statistics.getNodes() & 255) != 0) {
+            return false;
+        }
+        if (limits.getNodes() > 0) {
+            long nodes = 0;
+            for (Searcher s : searchers) {
+                nodes += s.statistics.getNodes();
+            }
+            if (nodes >= limits.getNodes()) {
+                return true;
+            }
+        }
+        return deadline != 0 && System.nanoTime() - deadline > 0;
+    }
+
+    /**
+     * A search thread. Each searcher has its own chessboard copy, movement
+     * orderer and statistics.
+     */
+    private class Searcher implements Runnable {
+
+        /**
+         * Searcher index, 0 for main thread.
+         */
+        private final int id;
+
+        /**
+         * Movement orderer used by this searcher.
+         */
+        private final MoveOrderer orderer;
+
+        /**
+         * Statistics of last search done by this searcher.
+         */
+        private final SearchStatistics statistics;
+
+        /**
+         * Chessboard where movements are done and taken back.
+         */
+        private ChessBoard board;
+
+        /**
+         * True if current iteration must stop.
+         */
+        private boolean stopped;
+
+        /**
+         * True if current iteration found positions that were not searched
+         * because of depth limit.
+         */
+        private boolean depthLimited;
+
+        /**
+         * Depth of last completed iteration.
+         */
+        private int completedDepth;
+
+        /**
+         * Best movement of last completed iteration, defined in
+         * {@code board}.
+         */
+        private Movement best;
+
+        /**
+         * Best root movement of current iteration, encoded.
+         */
+        private int rootMove;
+
+        /**
+         * Movements of current line: each node appends its movements after
+         * those of its ancestors.
+         */
+        private final MoveList moves = new MoveList();
+
+        /**
+         * Undo objects, by distance from search root.
+         */
+        private MoveUndo[] undos = new MoveUndo[0];
+
+        /**
+         * Constructor. Makes a new searcher.
+         * @param id searcher index, 0 for main thread.
+         * @param squares number of squares in chessboard.
+         */
+        Searcher(int id, int squares) {
+            this.id = id;
+            orderer = new MoveOrderer(squares);
+            statistics = new SearchStatistics();
+        }
+
+        /**
+         * Prepares this searcher to search a position.
+         * @param position chessboard to search.
+         */
+        void prepare(ChessBoard position) {
+            statistics.clear();
+            orderer.newSearch();
+            completedDepth = 0;
+            best = null;
+            board = position.copy();
+        }
+
+        /**
+         * Returns undo object of a distance from root. Undo objects are kept
+         * between searches, so search allocates nothing once its deepest ply
+         * was reached.
+         * @param ply distance from search root.
+         * @return undo object.
+         */
+        private MoveUndo undo(int ply) {
+            if (ply >= undos.length) {
+                MoveUndo[] u = new MoveUndo[Math.max(ply + 1, 2 * undos.length)];
+                System.arraycopy(undos, 0, u, 0, undos.length);
+                for (int i = undos.length; i < u.length; i++) {
+                    u[i] = new MoveUndo();
+                }
+                undos = u;
+            }
+            return undos[ply];
+        }
+
+        /**
+         * Searches with iterative deepening. Helpers with odd index start one
+         * ply deeper, so that threads don't search same depths at same time.
+         */
+        @Override
+        public void run() {
+            int first = 1 + (id & 1);
+            for (int depth = Math.min(first, limits.getDepth()); depth <= limits.getDepth(); depth++) {
+                stopped = false;
+                depthLimited = false;
+                rootMove = MoveOrderer.NO_MOVE;
+                moves.clear();
+                int score = negamax(depth, 0, -INFINITY, INFINITY);
+                if (stopped) {
+                    break;
+                }
+                best = (rootMove == MoveOrderer.NO_MOVE ? null : board.decode(rootMove));
+                if (best != null) {
+                    best.setScore(score);
+                }
+                completedDepth = depth;
+                if (!depthLimited) {
+                    break;
+                }
+            }
+        }
+
+        /**
+         * Returns true if this searcher must stop.
+         * @return true if search must stop.
+         */
+        private boolean mustStop() {
+            if (stop || cancelled) {
+                return true;
+            }
+            if (id == 0 && limitReached(this)) {
+                stop = true;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Computes the best move to computer to play. Branches that can't
+         * change the result are pruned, so that chosen movement is the same
+         * as a full negamax search would choose. Movements are done and taken
+         * back in {@code board}, so no chessboard is created during search;
+         * movements are packed in {@code moves} and undo objects are
+         * reused, so that search allocates nothing. Best root movement is
+         * kept in {@code rootMove}.
+         * Positions already searched at same distance from root are taken
+         * from transposition table, and positions solved by game tables are
+         * not searched. Movements are searched in the order
+         * defined by {@code MoveOrderer}.
+         * @param maxDepth max depth to search for.
+         * @param currentDepth current depth in searching algorithm.
+         * @param alpha score that player to move is already assured.
+         * @param beta score that opponent is already assured.
+         * @return score of best movement found.
+         */
+        private int negamax(int maxDepth, int currentDepth, int alpha, int beta) {
+
+            statistics.node();
+
+            if (stopped || mustStop()) {
+                stopped = true;
+                return 0;
+            }
+
+            boolean over = pGame.isGameOver(board);
+            if (!over && currentDepth > 0) {
+                int known = pGame.probeScore(board, currentDepth);
+                if (known != PreChessGame.NO_SCORE) {
+                    return known;
+                }
+            }
+
+            if (over || currentDepth == maxDepth) {
+                if (currentDepth == maxDepth) {
+                    depthLimited = true;
+                    if (pGame.useQuiescence() && !over) {
+                        return quiesce(currentDepth, alpha, beta);
+                    }
+                }
+                return pGame.evaluate(board) - currentDepth;
+            }
+
+            int depth = maxDepth - currentDepth;
+            int originalAlpha = alpha;
+            long hash = pGame.getPositionKey(board);
+            long entry = table.probe(hash);
+            if (entry == 0 && store != null) {
+                entry = store.probe(hash);
+            }
+            if (entry != 0 && currentDepth > 0
+                    && TranspositionTable.ply(entry) == currentDepth
+                    && TranspositionTable.depth(entry) >= depth) {
+                int score = TranspositionTable.score(entry);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT
+                        || (bound == TranspositionTable.LOWER && score >= beta)
+                        || (bound == TranspositionTable.UPPER && score <= alpha)) {
+                    depthLimited = true;
+                    return score;
+                }
+            }
+
+            MoveUndo undo = undo(currentDepth);
+            int start = moves.size();
+            int end = start + board.generateMoves(moves);
+            if (end == start) {
+                return pGame.evaluate(board) - currentDepth;
+            }
+            int ttMove = (entry != 0 ? TranspositionTable.move(entry) : MoveOrderer.NO_MOVE);
+            for (int i = start; i < end; i++) {
+                moves.setScore(i, orderScore(moves.get(i), ttMove, currentDepth));
+            }
+            moves.sort(start, end);
+
+            int bestMove = MoveOrderer.NO_MOVE;
+            int bestScore = Integer.MIN_VALUE;
 
-            int currentScore = -currentMove.getScore();
+            for (int i = start; i < end; i++) {
+                int move = moves.get(i);
+                board.make(move, undo);
+                int currentScore = -negamax(maxDepth, currentDepth + 1, -beta, -alpha);
+                board.unmake(undo);
 
-            if (currentScore > bestScore) {
+                if (stopped) {
+                    moves.truncate(start);
+                    return 0;
+                }
 
-                bestScore = currentScore;
-                bestMove = move;
-                bestMove.setScore(bestScore);
+                if (currentScore > bestScore) {
+                    bestScore = currentScore;
+                    bestMove = move;
+                }
+
+                if (bestScore > alpha) {
+                    alpha = bestScore;
+                }
+                if (alpha >= beta) {
+                    statistics.cutoff(i == start);
+                    if (!Move.isCapture(move)) {
+                        orderer.cutoff(move, Move.from(move), Move.to(move), currentDepth, depth);
+                    }
+                    break;
+                }
             }
+            moves.truncate(start);
+
+            int bound = (bestScore <= originalAlpha ? TranspositionTable.UPPER
+                    : bestScore >= beta ? TranspositionTable.LOWER
+                    : TranspositionTable.EXACT);
+            table.store(hash, depth, currentDepth, bound, bestScore, bestMove);
+            if (store != null && depth >= STORE_DEPTH) {
+                store.store(hash, depth, currentDepth, bound, bestScore, bestMove);
+            }
+            if (currentDepth == 0) {
+                rootMove = bestMove;
+            }
+
+            return bestScore;
         }
 
-        return bestMove;
+        /**
+         * Searches only captures after a leaf position, so that leaf positions
+         * with hanging pieces are not evaluated. Player to move can stand pat,
+         * that is, keep leaf evaluation instead of capturing. Captures that
+         * can't raise score above alpha are pruned (delta pruning).
+         * @param ply distance from search root.
+         * @param alpha score that player to move is already assured.
+         * @param beta score that opponent is already assured.
+         * @return position score.
+         */
+        private int quiesce(int ply, int alpha, int beta) {
+
+            statistics.node();
+
+            int standPat = pGame.evaluate(board) - ply;
+            if (pGame.isGameOver(board) || standPat >= beta) {
+                return standPat;
+            }
+            if (standPat > alpha) {
+                alpha = standPat;
+            }
+
+            MoveUndo undo = undo(ply);
+            int start = moves.size();
+            int end = start + board.generateCaptures(moves);
+            for (int i = start; i < end; i++) {
+                moves.setScore(i, orderScore(moves.get(i), MoveOrderer.NO_MOVE, ply));
+            }
+            moves.sort(start, end);
+
+            int bestScore = standPat;
+            for (int i = start; i < end; i++) {
+                int capture = moves.get(i);
+                int gain = pGame.getPieceValue(Move.captured(capture));
+                if (standPat + gain + DELTA_MARGIN <= alpha) {
+                    continue;
+                }
+                board.make(capture, undo);
+                int score = -quiesce(ply + 1, -beta, -alpha);
+                board.unmake(undo);
+
+                if (score > bestScore) {
+                    bestScore = score;
+                }
+                if (bestScore > alpha) {
+                    alpha = bestScore;
+                }
+                if (alpha >= beta) {
+                    break;
+                }
+            }
+            moves.truncate(start);
+            return bestScore;
+        }
+
+        /**
+         * Returns score used to order a movement in search.
+         * @param move packed movement to score.
+         * @param ttMove movement from transposition table.
+         * @param ply distance from search root.
+         * @return movement score, higher scores are searched first.
+         */
+        private int orderScore(int move, int ttMove, int ply) {
+            if (move == ttMove) {
+                return orderer.tableScore();
+            }
+            if (Move.isCapture(move)) {
+                return orderer.captureScore(pGame.getPieceValue(Move.captured(move)),
+                        pGame.getPieceValue(Move.type(move)));
+            }
+            return orderer.quietScore(move, Move.from(move), Move.to(move), ply);
+        }
     }
 
     /**
      * Select a random movement to computer to play.
-     * @return a random movement.
+     * @param board chessboard with position.
+     * @return a random movement, defined in {@code board}.
      */
-    private Movement randomMove() {
+    private Movement randomMove(ChessBoard board) {
 
-        Movement[] moves = getMovements();
+        Movement[] moves = board.getMoves();
         int m = moves.length;
         int sel = (int) (Math.random() * m);
         return moves[sel];
     }
 
+    /**
+     * Returns number of nodes visited in last search done by this player.
+     * @return number of visited nodes.
+     */
+    public long getNodeCount() {
+        return statistics.getNodes();
+    }
+
+    /**
+     * Returns statistics of last search done by this player.
+     * @return search statistics.
+     */
+    public SearchStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Returns depth of last completed iteration of main thread in last
+     * search.
+     * @return depth reached by last search.
+     */
+    public int getCompletedDepth() {
+        return (searchers.length == 0 ? 0 : searchers[0].completedDepth);
+    }
+
+    /**
+     * Returns transposition table used by this player, or {@code null} if
+     * this player didn't search yet.
+     * @return transposition table.
+     */
+    public TranspositionTable getTranspositionTable() {
+        return table;
+    }
+
+    /**
+     * Sets size of transposition tables of new computer players.
+     * @param megabytes table size in megabytes.
+     */
+    public static void setTranspositionTableSize(int megabytes) {
+        ComputerPlayer.tableSize = megabytes;
+    }
+
+    /**
+     * Sets directory of analysis stores, where search results are kept
+     * between program runs. Stores already opened are kept.
+     * @param directory store directory, or {@code null} to not use stores.
+     */
+    public static synchronized void setAnalysisDirectory(String directory) {
+        ComputerPlayer.storeDirectory = directory;
+    }
+
+    /**
+     * Sets size of analysis stores opened after this call. A store file with
+     * another size is rebuilt empty.
+     * @param megabytes store size in megabytes.
+     */
+    public static synchronized void setAnalysisSize(int megabytes) {
+        if (megabytes < 1) {
+            throw new IllegalArgumentException("Invalid analysis store size: " + megabytes);
+        }
+        ComputerPlayer.storeSize = megabytes;
+    }
+
+    /**
+     * Sets directory of opening books. Books already loaded are kept.
+     * @param directory book directory.
+     */
+    public static synchronized void setBookDirectory(String directory) {
+        ComputerPlayer.bookDirectory = directory;
+    }
+
+    /**
+     * Sets number of threads used by computer player searches.
+     * @param threads number of search threads, at least 1.
+     */
+    public static void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Invalid number of threads: " + threads);
+        }
+        ComputerPlayer.threads = threads;
+    }
+
+    /**
+     * Returns number of threads used by computer player searches.
+     * @return number of search threads.
+     */
+    public static int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Sets engine used by new computer players.
+     * @param engine engine. Following values are allowed:
+     * <ul>
+     * <li>Engine.NEGAMAX</li>
+     * <li>Engine.MCTS</li>
+     * </ul>
+     */
+    public static void setEngine(Engine engine) {
+        ComputerPlayer.engine = engine;
+    }
+
     /**
      * Sets game difficulty.
      * @param difficulty difficulty level. Following values are allowed:
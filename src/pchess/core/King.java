@@ -8,13 +8,6 @@ import pchess.core.enums.PieceColor;
  */
 public class King extends Piece {
 
-    /**
-     * Vector that defines king movements.
-     */
-    private static final int[][] KING_MOVE
-            = {{-1, -1}, {-1, 0}, {-1, 1}, {0, -1},
-            {0, 1}, {1, -1}, {1, 0}, {1, 1}};
-
     /**
      * Constructor. Makes a new king.
      *
@@ -26,7 +19,7 @@ public class King extends Piece {
 
     @Override
     public void defLegalMove() {
-        defLegalMove(KING_MOVE, true);
+        defLegalMove(true);
         findKingForbiddenMove();
     }
 
@@ -34,7 +27,7 @@ public class King extends Piece {
      * Defines king moves without to worry about opponent pieces.
      */
     private void defLegalMove0() {
-        defLegalMove(KING_MOVE, true);
+        defLegalMove(true);
     }
 
     /**
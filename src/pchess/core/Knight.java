@@ -8,13 +8,6 @@ import pchess.core.enums.PieceColor;
  */
 class Knight extends Piece {
 
-    /**
-     * Vector that defines knight movements.
-     */
-    private static final int[][] KNIGHT_MOVE
-            = { {-2, -1}, {-2, 1}, {-1, -2}, {-1, 2},
-                {1, -2}, {1, 2}, {2, -1}, {2, 1} };
-
     /**
      * Constructor. Makes a new knight.
      *
@@ -26,7 +19,7 @@ class Knight extends Piece {
 
     @Override
     public void defLegalMove() {
-        defLegalMove(KNIGHT_MOVE, true);
+        defLegalMove(true);
     }
 
 }
@@ -0,0 +1,649 @@
+package pchess.core;
+
+import java.util.Arrays;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import pchess.core.enums.PieceColor;
+import pchess.engine.SearchLimits;
+import pchess.games.PreChessGame;
+
+/**
+ * A computer player that uses Monte Carlo tree search. Instead of evaluating
+ * positions, this player plays random games (playouts) and chooses movements
+ * that won most of them. Tree is explored with UCT formula, that balances
+ * movements with good results and movements searched only a few times.
+ * <p>
+ * Tree nodes are stored in flat arrays, indexed by node number. Children of a
+ * node are stored in consecutive indexes. Playouts run in parallel, in the
+ * same number of threads used by {@code ComputerPlayer}; a node being
+ * searched by a thread counts as a lost playout (virtual loss), so that other
+ * threads search other nodes. After a movement is played, subtree of new
+ * position is kept to next search.
+ */
+public class MctsPlayer extends ComputerPlayer {
+
+    /**
+     * Node was not expanded.
+     */
+    private static final int UNEXPANDED = 0;
+
+    /**
+     * Node is being expanded by a thread.
+     */
+    private static final int EXPANDING = 1;
+
+    /**
+     * Node children were created.
+     */
+    private static final int EXPANDED = 2;
+
+    /**
+     * Value of a won playout. Values are counted in half points, so that a
+     * draw is worth 1.
+     */
+    private static final int WIN = 2;
+
+    /**
+     * Value of a drawn playout.
+     */
+    private static final int DRAW = 1;
+
+    /**
+     * Number of playouts when search has neither time limit nor node limit.
+     */
+    private static final int DEFAULT_PLAYOUTS = 20000;
+
+    /**
+     * Maximum number of random movements in a playout. When it is reached,
+     * playout is won by player with better evaluation.
+     */
+    private static final int MAX_PLAYOUT = 200;
+
+    /**
+     * Exploration constant of UCT formula.
+     */
+    private static double exploration = Math.sqrt(2);
+
+    /**
+     * Maximum number of tree nodes of new players.
+     */
+    private static int treeSize = 1 << 19;
+
+    /**
+     * Search tree.
+     */
+    private Tree tree;
+
+    /**
+     * Tree used to keep subtree after a movement, swapped with
+     * {@code tree}.
+     */
+    private Tree spare;
+
+    /**
+     * Index of root node.
+     */
+    private int root;
+
+    /**
+     * Chessboard with root position.
+     */
+    private ChessBoard rootBoard;
+
+    /**
+     * Number of playouts of last search.
+     */
+    private final LongAdder playouts;
+
+    /**
+     * Maximum number of playouts of current search, or 0 if there is no
+     * limit.
+     */
+    private long maxPlayouts;
+
+    /**
+     * Time, in nanoseconds, when current search must stop, or 0 if search
+     * has no time limit.
+     */
+    private long deadline;
+
+    /**
+     * True if all threads must stop.
+     */
+    private volatile boolean stop;
+
+    /**
+     * Constructor. Makes a new computer player that uses Monte Carlo tree
+     * search.
+     * @param pieceColor color for pieces owned by this player.
+     * @param pGame game that this player is playing.
+     */
+    public MctsPlayer(PieceColor pieceColor, PreChessGame pGame) {
+        super(pieceColor, pGame);
+        playouts = new LongAdder();
+    }
+
+    /**
+     * Search tree, stored in flat arrays.
+     */
+    private static class Tree {
+
+        /**
+         * Index of first child by node.
+         */
+        final int[] firstChild;
+
+        /**
+         * Number of children by node.
+         */
+        final int[] childCount;
+
+        /**
+         * Movement that leads to node, packed by {@code Move}.
+         */
+        final int[] move;
+
+        /**
+         * Expansion state by node.
+         */
+        final AtomicIntegerArray state;
+
+        /**
+         * Number of finished playouts by node.
+         */
+        final AtomicIntegerArray visits;
+
+        /**
+         * Number of running playouts by node (virtual loss).
+         */
+        final AtomicIntegerArray virtual;
+
+        /**
+         * Sum of playout values by node, in half points, for player that
+         * made node movement.
+         */
+        final AtomicLongArray value;
+
+        /**
+         * Number of used nodes.
+         */
+        final AtomicInteger size;
+
+        /**
+         * Constructor. Makes an empty tree.
+         * @param capacity maximum number of nodes.
+         */
+        Tree(int capacity) {
+            firstChild = new int[capacity];
+            childCount = new int[capacity];
+            move = new int[capacity];
+            state = new AtomicIntegerArray(capacity);
+            visits = new AtomicIntegerArray(capacity);
+            virtual = new AtomicIntegerArray(capacity);
+            value = new AtomicLongArray(capacity);
+            size = new AtomicInteger();
+        }
+
+        /**
+         * Returns maximum number of nodes.
+         * @return tree capacity.
+         */
+        int capacity() {
+            return move.length;
+        }
+
+        /**
+         * Allocates consecutive nodes.
+         * @param n number of nodes.
+         * @return index of first node, or -1 if tree is full.
+         */
+        int allocate(int n) {
+            if (size.get() + n > capacity()) {
+                return -1;
+            }
+            int first = size.getAndAdd(n);
+            if (first + n > capacity()) {
+                return -1;
+            }
+            for (int i = first; i < first + n; i++) {
+                state.set(i, UNEXPANDED);
+                visits.set(i, 0);
+                virtual.set(i, 0);
+                value.set(i, 0);
+                childCount[i] = 0;
+            }
+            return first;
+        }
+    }
+
+    /**
+     * Searches best movement in current game position. Playouts are done
+     * until a search limit is reached; search depth is ignored. Most
+     * visited movement is chosen.
+     * @param board chessboard with position to search.
+     * @param searchLimits search limits.
+     * @return best movement, defined in {@code board}.
+     */
+    @Override
+    Movement searchPosition(ChessBoard board, SearchLimits searchLimits) {
+        checkCancelled();
+        prepareTree(board);
+
+        playouts.reset();
+        maxPlayouts = (searchLimits.getNodes() > 0 ? searchLimits.getNodes()
+                : searchLimits.getTime() > 0 ? 0 : DEFAULT_PLAYOUTS);
+        deadline = (searchLimits.getTime() > 0
+                ? System.nanoTime() + searchLimits.getTime() * 1000000L : 0);
+        stop = false;
+
+        int threads = getThreads();
+        ACTIVE_SEARCHES.incrementAndGet();
+        Future<?>[] helpers = new Future<?>[threads - 1];
+        try {
+            for (int i = 1; i < threads; i++) {
+                helpers[i - 1] = helperPool().submit(new Worker(false));
+            }
+            new Worker(true).run();
+        } finally {
+            stop = true;
+            joinHelpers(helpers);
+            ACTIVE_SEARCHES.decrementAndGet();
+        }
+        checkCancelled();
+
+        int best = -1;
+        int first = tree.firstChild[root];
+        for (int c = first; c < first + tree.childCount[root]; c++) {
+            if (best < 0 || tree.visits.get(c) > tree.visits.get(best)) {
+                best = c;
+            }
+        }
+        Movement move = (best < 0 ? rootBoard.getMoves()[0] : rootBoard.decode(tree.move[best]));
+        return board.translate(move);
+    }
+
+    /**
+     * Releases memory kept between searches: search trees and root
+     * chessboard.
+     */
+    @Override
+    void release() {
+        super.release();
+        tree = null;
+        spare = null;
+        rootBoard = null;
+    }
+
+    /**
+     * Prepares tree to search a position. If position is in tree, at most
+     * two movements after root position, its subtree is kept and all other
+     * nodes are removed. Otherwise tree is cleared.
+     * @param board position to search.
+     */
+    private void prepareTree(ChessBoard board) {
+        if (tree == null || tree.capacity() != treeSize) {
+            tree = new Tree(treeSize);
+            spare = null;
+            rootBoard = null;
+        }
+        int node = (rootBoard == null ? -1 : findNode(pGame.getPositionKey(board)));
+        if (node < 0) {
+            tree.size.set(0);
+            root = tree.allocate(1);
+        } else if (node != root) {
+            if (spare == null) {
+                spare = new Tree(treeSize);
+            }
+            compact(node);
+        }
+        rootBoard = board.copy();
+    }
+
+    /**
+     * Finds node of a position, searching root and nodes at most two
+     * movements after root. Positions are matched by game position key,
+     * which includes everything that game result depends on (for instance,
+     * movement count in King Duel).
+     * @param key position key.
+     * @return node index, or -1 if position was not found.
+     */
+    private int findNode(long key) {
+        if (pGame.getPositionKey(rootBoard) == key) {
+            return root;
+        }
+        int found = -1;
+        int first = firstChild(root);
+        for (int c = first; first >= 0 && c < first + tree.childCount[root] && found < 0; c++) {
+            MoveUndo undo = rootBoard.make(rootBoard.decode(tree.move[c]));
+            if (pGame.getPositionKey(rootBoard) == key) {
+                found = c;
+            }
+            int next = firstChild(c);
+            for (int g = next; next >= 0 && g < next + tree.childCount[c] && found < 0; g++) {
+                MoveUndo u = rootBoard.make(rootBoard.decode(tree.move[g]));
+                if (pGame.getPositionKey(rootBoard) == key) {
+                    found = g;
+                }
+                rootBoard.unmake(u);
+            }
+            rootBoard.unmake(undo);
+        }
+        return found;
+    }
+
+    /**
+     * Returns first child of an expanded node.
+     * @param node node index.
+     * @return index of first child, or -1 if node is not expanded.
+     */
+    private int firstChild(int node) {
+        return (tree.state.get(node) == EXPANDED ? tree.firstChild[node] : -1);
+    }
+
+    /**
+     * Copies subtree of a node to spare tree, in breadth-first order, and
+     * makes it current tree. Node becomes root.
+     * @param node new root.
+     */
+    private void compact(int node) {
+        Tree from = tree;
+        Tree to = spare;
+        int[] queue = new int[Math.min(from.size.get(), from.capacity())];
+        queue[0] = node;
+        int tail = 1;
+        for (int head = 0; head < tail; head++) {
+            int old = queue[head];
+            to.move[head] = from.move[old];
+            to.visits.set(head, from.visits.get(old));
+            to.virtual.set(head, 0);
+            to.value.set(head, from.value.get(old));
+            int n = from.childCount[old];
+            if (from.state.get(old) == EXPANDED) {
+                to.state.set(head, EXPANDED);
+                to.firstChild[head] = tail;
+                to.childCount[head] = n;
+                for (int c = 0; c < n; c++) {
+                    queue[tail++] = from.firstChild[old] + c;
+                }
+            } else {
+                to.state.set(head, UNEXPANDED);
+                to.childCount[head] = 0;
+            }
+        }
+        to.size.set(tail);
+        tree = to;
+        spare = from;
+        root = 0;
+    }
+
+    /**
+     * A playout thread. Each worker has its own chessboard copy.
+     */
+    private class Worker implements Runnable {
+
+        /**
+         * True if this worker checks search limits.
+         */
+        private final boolean main;
+
+        /**
+         * Chessboard where movements are done and taken back.
+         */
+        private ChessBoard board;
+
+        /**
+         * Nodes visited in current playout, from root.
+         */
+        private int[] path;
+
+        /**
+         * Player that made movement of each visited node, except root.
+         */
+        private PieceColor[] movers;
+
+        /**
+         * Undo objects of movements done in current playout, reused between
+         * playouts.
+         */
+        private MoveUndo[] undos;
+
+        /**
+         * Number of movements done in current playout.
+         */
+        private int done;
+
+        /**
+         * Movements generated by expansion and random games.
+         */
+        private final MoveList moves;
+
+        /**
+         * Constructor. Makes a new worker.
+         * @param main true if this worker checks search limits.
+         */
+        Worker(boolean main) {
+            this.main = main;
+            path = new int[64];
+            movers = new PieceColor[64];
+            undos = new MoveUndo[64];
+            for (int i = 0; i < undos.length; i++) {
+                undos[i] = new MoveUndo();
+            }
+            moves = new MoveList();
+        }
+
+        /**
+         * Does a movement in worker chessboard, keeping its undo object.
+         * @param move packed movement.
+         */
+        private void make(int move) {
+            if (done == undos.length) {
+                undos = Arrays.copyOf(undos, 2 * done);
+                for (int i = done; i < undos.length; i++) {
+                    undos[i] = new MoveUndo();
+                }
+            }
+            board.make(move, undos[done++]);
+        }
+
+        /**
+         * Runs playouts until search stops. Main worker always runs at least
+         * one playout.
+         */
+        @Override
+        public void run() {
+            board = rootBoard.copy();
+            do {
+                playout();
+                playouts.increment();
+            } while (!stop && !isCancelled() && !(main && limitReached()));
+            stop = true;
+        }
+
+        /**
+         * Returns true if search limits are reached.
+         * @return true if search must stop.
+         */
+        private boolean limitReached() {
+            long n = playouts.sum();
+            if (maxPlayouts > 0 && n >= maxPlayouts) {
+                return true;
+            }
+            return deadline != 0 && System.nanoTime() - deadline > 0;
+        }
+
+        /**
+         * Selects a node by UCT formula, expands it, plays a random game from
+         * it and updates all visited nodes with result.
+         */
+        private void playout() {
+            Tree t = tree;
+            int node = root;
+            int length = 0;
+            path[0] = node;
+            t.virtual.incrementAndGet(node);
+            PieceColor winner;
+
+            while (true) {
+                if (pGame.isGameOver(board)) {
+                    winner = board.getWinner();
+                    break;
+                }
+                if (t.state.get(node) == UNEXPANDED
+                        && (node == root || t.visits.get(node) > 0)
+                        && t.state.compareAndSet(node, UNEXPANDED, EXPANDING)) {
+                    expand(t, node);
+                }
+                int child = (t.state.get(node) == EXPANDED ? select(t, node) : -1);
+                if (child < 0) {
+                    winner = randomGame();
+                    break;
+                }
+                if (length + 1 == path.length) {
+                    path = Arrays.copyOf(path, 2 * path.length);
+                    movers = Arrays.copyOf(movers, 2 * movers.length);
+                }
+                movers[length] = board.getCurrentPlayer();
+                make(t.move[child]);
+                node = child;
+                path[++length] = node;
+                t.virtual.incrementAndGet(node);
+            }
+
+            while (done > 0) {
+                board.unmake(undos[--done]);
+            }
+
+            for (int i = 0; i <= length; i++) {
+                int n = path[i];
+                t.visits.incrementAndGet(n);
+                if (i > 0) {
+                    t.value.addAndGet(n, (winner == null ? DRAW
+                            : winner == movers[i - 1] ? WIN : 0));
+                }
+                t.virtual.decrementAndGet(n);
+            }
+        }
+
+        /**
+         * Creates children of a node, one for each movement. If tree is full,
+         * node is not expanded.
+         * @param t search tree.
+         * @param node node to expand.
+         */
+        private void expand(Tree t, int node) {
+            moves.clear();
+            int n = board.generateMoves(moves);
+            int first = t.allocate(n);
+            if (first < 0) {
+                t.state.set(node, UNEXPANDED);
+                return;
+            }
+            for (int i = 0; i < n; i++) {
+                t.move[first + i] = moves.get(i);
+            }
+            t.firstChild[node] = first;
+            t.childCount[node] = n;
+            t.state.set(node, EXPANDED);
+        }
+
+        /**
+         * Selects child with best UCT value. Children never visited are
+         * selected first. Running playouts count as lost ones.
+         * @param t search tree.
+         * @param node expanded node.
+         * @return selected child, or -1 if node has no children.
+         */
+        private int select(Tree t, int node) {
+            int first = t.firstChild[node];
+            int count = t.childCount[node];
+            double logN = Math.log(Math.max(1, t.visits.get(node) + t.virtual.get(node)));
+            int best = -1;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            for (int c = first; c < first + count; c++) {
+                int n = t.visits.get(c) + t.virtual.get(c);
+                if (n == 0) {
+                    return c;
+                }
+                double uct = t.value.get(c) / (2.0 * n) + exploration * Math.sqrt(logN / n);
+                if (uct > bestValue) {
+                    bestValue = uct;
+                    best = c;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Plays random movements until game is over. Movements are kept in
+         * {@code undos}.
+         * @return winner, or {@code null} for a draw.
+         */
+        private PieceColor randomGame() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int n = 0; n < MAX_PLAYOUT; n++) {
+                if (pGame.isGameOver(board)) {
+                    return board.getWinner();
+                }
+                moves.clear();
+                int count = board.generateMoves(moves);
+                if (count == 0) {
+                    return null;
+                }
+                make(moves.get(random.nextInt(count)));
+            }
+            if (pGame.isGameOver(board)) {
+                return board.getWinner();
+            }
+            int score = pGame.evaluate(board);
+            PieceColor player = board.getCurrentPlayer();
+            PieceColor opponent = (player == PieceColor.WHITE ? PieceColor.BLACK : PieceColor.WHITE);
+            return (score > 0 ? player : score < 0 ? opponent : null);
+        }
+    }
+
+    /**
+     * Returns number of playouts of last search.
+     * @return number of playouts.
+     */
+    @Override
+    public long getNodeCount() {
+        return playouts.sum();
+    }
+
+    /**
+     * Returns number of nodes in search tree.
+     * @return number of tree nodes.
+     */
+    public int getTreeSize() {
+        return (tree == null ? 0 : Math.min(tree.size.get(), tree.capacity()));
+    }
+
+    /**
+     * Sets exploration constant of UCT formula. Higher values search more
+     * movements, lower values search best movements deeper.
+     * @param exploration exploration constant, not negative.
+     */
+    public static void setExploration(double exploration) {
+        if (!(exploration >= 0)) {
+            throw new IllegalArgumentException("Invalid exploration: " + exploration);
+        }
+        MctsPlayer.exploration = exploration;
+    }
+
+    /**
+     * Sets maximum number of tree nodes of new searches.
+     * @param nodes maximum number of nodes.
+     */
+    public static void setTreeSize(int nodes) {
+        if (nodes < 1) {
+            throw new IllegalArgumentException("Invalid tree size: " + nodes);
+        }
+        MctsPlayer.treeSize = nodes;
+    }
+
+}
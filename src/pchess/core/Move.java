@@ -0,0 +1,135 @@
+package pchess.core;
+
+import pchess.core.enums.PieceType;
+
+/**
+ * Packed movement format used by search. A movement is an {@code int} with
+ * origin square, destination square, moving piece type, captured piece type
+ * and flags, so it doesn't depend on pieces and squares of a particular
+ * chessboard: the same value can be made in any chessboard with same
+ * position. Squares are numbered as {@code row * nColumns + column}, with
+ * internal rows and columns. {@code Movement} objects are only used at GUI
+ * boundary; {@code ChessBoard.encode} and {@code ChessBoard.decode} convert
+ * between both formats.
+ * <p>
+ * Bits 0-7 keep origin square, bits 8-15 destination square, bits 16-18
+ * moving piece type, bits 19-22 captured piece type plus one (0 if nothing
+ * is captured), bit 23 a pawn double step and bit 24 a pawn arriving at last
+ * rank. Valid movements are never negative.
+ */
+public final class Move {
+
+    /**
+     * Flag of a pawn moving two squares.
+     */
+    public static final int DOUBLE_STEP = 1 << 23;
+
+    /**
+     * Flag of a pawn arriving at last rank.
+     */
+    public static final int PROMOTION = 1 << 24;
+
+    /**
+     * Piece types by ordinal.
+     */
+    private static final PieceType[] TYPES = PieceType.values();
+
+    /**
+     * Private constructor. This class only has static methods.
+     */
+    private Move() {
+    }
+
+    /**
+     * Packs a movement.
+     *
+     * @param from origin square index.
+     * @param to destination square index.
+     * @param type moving piece type.
+     * @param captured captured piece type, or {@code null}.
+     * @param flags {@code DOUBLE_STEP} and {@code PROMOTION} flags.
+     * @return packed movement.
+     */
+    public static int of(int from, int to, PieceType type, PieceType captured, int flags) {
+        return of(from, to, type.ordinal(), (captured == null ? -1 : captured.ordinal()), flags);
+    }
+
+    /**
+     * Packs a movement with piece type ordinals.
+     *
+     * @param from origin square index.
+     * @param to destination square index.
+     * @param type moving piece type ordinal.
+     * @param captured captured piece type ordinal, or -1.
+     * @param flags {@code DOUBLE_STEP} and {@code PROMOTION} flags.
+     * @return packed movement.
+     */
+    static int of(int from, int to, int type, int captured, int flags) {
+        return from | to << 8 | type << 16 | (captured + 1) << 19 | flags;
+    }
+
+    /**
+     * Returns origin square index of a movement.
+     *
+     * @param move packed movement.
+     * @return origin square index.
+     */
+    public static int from(int move) {
+        return move & 0xFF;
+    }
+
+    /**
+     * Returns destination square index of a movement.
+     *
+     * @param move packed movement.
+     * @return destination square index.
+     */
+    public static int to(int move) {
+        return (move >>> 8) & 0xFF;
+    }
+
+    /**
+     * Returns moving piece type of a movement.
+     *
+     * @param move packed movement.
+     * @return moving piece type.
+     */
+    public static PieceType type(int move) {
+        return TYPES[(move >>> 16) & 7];
+    }
+
+    /**
+     * Returns captured piece type of a movement.
+     *
+     * @param move packed movement.
+     * @return captured piece type, or {@code null} if movement is not a
+     * capture.
+     */
+    public static PieceType captured(int move) {
+        int c = (move >>> 19) & 0xF;
+        return (c == 0 ? null : TYPES[c - 1]);
+    }
+
+    /**
+     * Returns true if a movement captures a piece.
+     *
+     * @param move packed movement.
+     * @return true if movement is a capture.
+     */
+    public static boolean isCapture(int move) {
+        return (move & (0xF << 19)) != 0;
+    }
+
+    /**
+     * Returns a readable description of a movement, such as
+     * {@code "Q 12-20x"}.
+     *
+     * @param move packed movement.
+     * @return movement description.
+     */
+    public static String toString(int move) {
+        return type(move).getCharId() + " " + from(move) + "-" + to(move)
+                + (isCapture(move) ? "x" : "");
+    }
+
+}
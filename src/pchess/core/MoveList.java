@@ -0,0 +1,138 @@
+package pchess.core;
+
+/**
+ * Growable list of packed movements (see {@code Move}) with an order score
+ * for each movement. Search keeps one list for all plies: each node appends
+ * its movements after movements of its ancestors and truncates list back
+ * when it returns, so buffers are reused and only grow up to the largest
+ * line searched.
+ */
+public final class MoveList {
+
+    /**
+     * Packed movements.
+     */
+    private int[] moves;
+
+    /**
+     * Order scores of movements.
+     */
+    private int[] scores;
+
+    /**
+     * Number of movements.
+     */
+    private int size;
+
+    /**
+     * Constructor. Makes an empty list.
+     */
+    public MoveList() {
+        this(256);
+    }
+
+    /**
+     * Constructor. Makes an empty list with an initial capacity.
+     *
+     * @param capacity initial capacity.
+     */
+    public MoveList(int capacity) {
+        moves = new int[Math.max(1, capacity)];
+        scores = new int[moves.length];
+    }
+
+    /**
+     * Appends a movement.
+     *
+     * @param move packed movement.
+     */
+    public void add(int move) {
+        if (size == moves.length) {
+            int[] m = new int[2 * size];
+            int[] s = new int[2 * size];
+            System.arraycopy(moves, 0, m, 0, size);
+            System.arraycopy(scores, 0, s, 0, size);
+            moves = m;
+            scores = s;
+        }
+        moves[size++] = move;
+    }
+
+    /**
+     * Returns number of movements.
+     *
+     * @return list size.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes movements after a size.
+     *
+     * @param newSize new list size, not greater than current size.
+     */
+    public void truncate(int newSize) {
+        size = newSize;
+    }
+
+    /**
+     * Removes all movements.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Returns a movement.
+     *
+     * @param i movement index.
+     * @return packed movement.
+     */
+    public int get(int i) {
+        return moves[i];
+    }
+
+    /**
+     * Returns order score of a movement.
+     *
+     * @param i movement index.
+     * @return order score.
+     */
+    public int getScore(int i) {
+        return scores[i];
+    }
+
+    /**
+     * Sets order score of a movement.
+     *
+     * @param i movement index.
+     * @param score order score.
+     */
+    public void setScore(int i, int score) {
+        scores[i] = score;
+    }
+
+    /**
+     * Sorts a range of movements by score, higher scores first. Sorting is
+     * stable, so movements with the same score keep generation order.
+     *
+     * @param from first movement index.
+     * @param to index after last movement.
+     */
+    public void sort(int from, int to) {
+        for (int i = from + 1; i < to; i++) {
+            int m = moves[i];
+            int s = scores[i];
+            int j = i - 1;
+            while (j >= from && scores[j] < s) {
+                moves[j + 1] = moves[j];
+                scores[j + 1] = scores[j];
+                j--;
+            }
+            moves[j + 1] = m;
+            scores[j + 1] = s;
+        }
+    }
+
+}
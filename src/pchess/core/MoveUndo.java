@@ -0,0 +1,102 @@
+package pchess.core;
+
+import pchess.core.enums.PieceColor;
+
+/**
+ * Information needed to take back a movement done in a chessboard with
+ * {@code ChessBoard.make} method. It is returned by {@code ChessBoard.make}
+ * and must be given back to {@code ChessBoard.unmake}, in reverse order of
+ * movements. Search keeps one undo object per ply and fills it again for
+ * each movement, so that no object is created by {@code make}.
+ */
+public class MoveUndo {
+
+    /**
+     * Piece that was moved.
+     */
+    Piece piece;
+
+    /**
+     * Square where moved piece stayed before movement.
+     */
+    Square from;
+
+    /**
+     * Square where moved piece went to.
+     */
+    Square to;
+
+    /**
+     * Piece captured by movement, or {@code null} if destination square was
+     * empty.
+     */
+    Piece captured;
+
+    /**
+     * Pawn first move flag before movement. Only used if moved piece is a
+     * pawn.
+     */
+    boolean firstMove;
+
+    /**
+     * Pawn promoting flag before movement. Only used if moved piece is a
+     * pawn.
+     */
+    boolean promoting;
+
+    /**
+     * Player that had move before movement.
+     */
+    PieceColor player;
+
+    /**
+     * Position hash before movement.
+     */
+    long hash;
+
+    /**
+     * Constructor. Makes an empty undo, to be filled by
+     * {@code ChessBoard.make(int, MoveUndo)}.
+     */
+    public MoveUndo() {
+    }
+
+    /**
+     * Constructor. Saves chessboard state before movement is done.
+     *
+     * @param piece piece to move.
+     * @param to destination square.
+     * @param player player that has move.
+     * @param hash position hash.
+     */
+    MoveUndo(Piece piece, Square to, PieceColor player, long hash) {
+        set(piece, to, player, hash);
+    }
+
+    /**
+     * Saves chessboard state before movement is done, replacing state saved
+     * before.
+     *
+     * @param piece piece to move.
+     * @param to destination square.
+     * @param player player that has move.
+     * @param hash position hash.
+     */
+    void set(Piece piece, Square to, PieceColor player, long hash) {
+        this.piece = piece;
+        this.from = piece.getSquare();
+        this.to = to;
+        this.captured = to.getPiece();
+        this.player = player;
+        this.hash = hash;
+        if (piece instanceof Pawn) {
+            Pawn pawn = (Pawn) piece;
+            firstMove = pawn.hasFirstMove();
+            promoting = pawn.isPromoted();
+        } else {
+            firstMove = false;
+            promoting = false;
+        }
+    }
+
+}
@@ -50,41 +50,28 @@ public class Pawn extends Piece {
         legalMove.clear();
         protectedSquares.clear();
         ChessBoard board = atualSquare.getChessBoard();
-        int r = atualSquare.getInternalRow();
-        int c = atualSquare.getInternalColumn();
+        BoardGeometry geometry = board.getGeometry();
+        int sq = board.squareIndex(atualSquare);
+        int color = BitBoard.colorIndex(getPieceColor());
 
-        int mc = board.getNColumns();
-
-        if (upRow == r) {
+        if (upRow == atualSquare.getInternalRow()) {
             return;
         }
 
-        Square up = board.getSquare(r + dp, c);
+        int[] push = geometry.pawnPushes[color][sq];
+        Square up = board.getSquare(push[0]);
         if (!up.isOccupied()) {
             legalMove.add(up);
-            if (firstMove) {
-                Square up2 = board.getSquare(r + 2 * dp, c);
+            if (firstMove && push.length > 1) {
+                Square up2 = board.getSquare(push[1]);
                 if (!up2.isOccupied()) {
                     legalMove.add(up2);
                 }
             }
         }
 
-        int[] attack;
-        if (c == 0) {
-            attack = new int[1];
-            attack[0] = c + 1;
-        } else if (c == mc - 1) {
-            attack = new int[1];
-            attack[0] = c - 1;
-        } else {
-            attack = new int[2];
-            attack[0] = c - 1;
-            attack[1] = c + 1;
-        }
-
-        for (int j : attack) {
-            Square attackedSquare = board.getSquare(r + dp, j);
+        for (int t : geometry.pawnAttacks[color][sq]) {
+            Square attackedSquare = board.getSquare(t);
             if (attackedSquare.isOccupied()) {
                 Piece piece = attackedSquare.getPiece();
                 if (piece.getPieceColor() != getPieceColor()) {
@@ -131,6 +118,26 @@ public class Pawn extends Piece {
         return sb.toString();
     }
     
+    /**
+     * Returns true if this pawn can still move two squares.
+     *
+     * @return true if this pawn can still move two squares.
+     */
+    boolean hasFirstMove() {
+        return firstMove;
+    }
+
+    /**
+     * Restores pawn flags after a movement is taken back.
+     *
+     * @param firstMove if true, pawn can move two squares.
+     * @param promoting if true, pawn is promoted.
+     */
+    void restoreFlags(boolean firstMove, boolean promoting) {
+        this.firstMove = firstMove;
+        this.promoting = promoting;
+    }
+
     /**
      * Returns true if this pawn is promoted.
      * 
@@ -44,6 +44,11 @@ public abstract class Piece{
      */
     private boolean living;
 
+    /**
+     * Index of this piece in its chessboard piece list.
+     */
+    int index;
+
     /**
      * Constructor. Makes a new piece.
      *
@@ -95,59 +100,53 @@ public abstract class Piece{
     public abstract void defLegalMove();
 
     /**
-     * Defines legal movements to this piece.
+     * Defines legal movements to this piece, from movement tables of
+     * chessboard geometry.
      *
-     * @param vectorMove vector that defines movement orientations.
-     */
-    protected void defLegalMove(int[][] vectorMove) {
-        defLegalMove(vectorMove, false);
-    }
-
-    /**
-     * Defines legal movements to this piece.
-     *
-     * @param vectorMove vector that defines movement orientations.
      * @param shortMove if true, piece makes short movement, if false, piece
      * makes long movement.
      */
-    protected void defLegalMove(int[][] vectorMove, boolean shortMove) {
+    protected void defLegalMove(boolean shortMove) {
         if(isCaptured()){return;}
         if(!living){return;}
         legalMove.clear();
         protectedSquares.clear();
 
         ChessBoard board = atualSquare.getChessBoard();
-        int mr = board.getNRows();
-        int mc = board.getNColumns();
-        int ai = atualSquare.getInternalRow();
-        int aj = atualSquare.getInternalColumn();
+        BoardGeometry geometry = board.getGeometry();
+        int sq = board.squareIndex(atualSquare);
 
-        for (int[] dm : vectorMove) {
-            int di = dm[0];
-            int dj = dm[1];
-            for (int i = ai + di, j = aj + dj;
-                    i > -1 && i < mr && j > -1 && j < mc;
-                    i += di, j += dj) {
-                Square destiny = board.getSquare(i, j);
-                if (!destiny.isOccupied()) {
-                    legalMove.add(destiny);
+        if (shortMove) {
+            for (int t : geometry.targets(pType)[sq]) {
+                Square destiny = board.getSquare(t);
+                if (destiny.isOccupied()
+                        && destiny.getPiece().getPieceColor() == getPieceColor()) {
+                    protectedSquares.add(destiny);
                 } else {
-                    Piece piece = destiny.getPiece();
-                    if (piece.getPieceColor() != getPieceColor()) {
-                        legalMove.add(destiny);
-                        if(piece.getPieceType() == PieceType.KING && !shortMove){
-                            protectedSquares.add(board.getSquare(i + di, j + dj));
-                        }
-                    } else{
-                        protectedSquares.add(destiny);
-                    }
-                    break;
+                    legalMove.add(destiny);
                 }
+            }
+            return;
+        }
 
-                if (shortMove) {
-                    break;
+        for (int d : BoardGeometry.directions(pType)) {
+            int[] ray = geometry.rays[d][sq];
+            for (int k = 0; k < ray.length; k++) {
+                Square destiny = board.getSquare(ray[k]);
+                if (!destiny.isOccupied()) {
+                    legalMove.add(destiny);
+                    continue;
                 }
-
+                Piece piece = destiny.getPiece();
+                if (piece.getPieceColor() != getPieceColor()) {
+                    legalMove.add(destiny);
+                    if (piece.getPieceType() == PieceType.KING && k + 1 < ray.length) {
+                        protectedSquares.add(board.getSquare(ray[k + 1]));
+                    }
+                } else {
+                    protectedSquares.add(destiny);
+                }
+                break;
             }
         }
     }
@@ -223,11 +222,37 @@ public abstract class Piece{
      */
     public void doMove(Square sq) {
         Square oldSquare = this.getSquare();
+        Piece captured = sq.getPiece();
 
         oldSquare.removePiece();
         sq.addPiece(Piece.this);
         atualSquare = sq;
+        sq.getChessBoard().pieceMoved(Piece.this, oldSquare, captured);
+
+    }
 
+    /**
+     * Takes back a movement done by {@code doMove}. This piece returns to
+     * square {@code from}, which must be empty.
+     *
+     * @param from square where this piece stayed before movement.
+     */
+    void undoMove(Square from) {
+        atualSquare.removePiece();
+        from.atualPiece = this;
+        atualSquare = from;
+    }
+
+    /**
+     * Puts back in game a piece captured by last movement.
+     *
+     * @param square square where this piece was captured.
+     */
+    void restoreCaptured(Square square) {
+        isCaptured = false;
+        living = true;
+        atualSquare = square;
+        square.atualPiece = this;
     }
 
     /**
@@ -0,0 +1,255 @@
+package pchess.core;
+
+import java.util.Arrays;
+import pchess.core.enums.PieceColor;
+
+/**
+ * Immutable snapshot of a chessboard position: piece in each square, player
+ * to move, legal movements of that player and game result. Games publish a
+ * snapshot after each movement, so that it can be read by any thread (for
+ * example, to draw chessboard) while chessboard itself is changed or
+ * searched by another thread.
+ * <p>
+ * Squares are numbered as {@code row * nColumns + column}, with internal
+ * rows and columns.
+ */
+public final class PositionSnapshot {
+
+    /**
+     * Number of rows.
+     */
+    private final int nRows;
+
+    /**
+     * Number of columns.
+     */
+    private final int nColumns;
+
+    /**
+     * Piece code by square (see {@code Piece.getPieceCode}), -1 if square is
+     * empty.
+     */
+    private final byte[] codes;
+
+    /**
+     * Piece color index by square, -1 if square is empty.
+     */
+    private final byte[] colors;
+
+    /**
+     * Legal movements of player to move, packed by {@code Move}. It is empty
+     * if game is over.
+     */
+    private final int[] moves;
+
+    /**
+     * Player to move.
+     */
+    private final PieceColor currentPlayer;
+
+    /**
+     * Number of movements done in chessboard.
+     */
+    private final int ply;
+
+    /**
+     * True if game is over.
+     */
+    private final boolean gameOver;
+
+    /**
+     * Winner, or {@code null} if game is not over or is a draw.
+     */
+    private final PieceColor winner;
+
+    /**
+     * Constructor. Makes a snapshot of current position of a chessboard.
+     *
+     * @param board chessboard.
+     * @param gameOver true if game is over in chessboard position; winner
+     * must be already defined in chessboard.
+     */
+    public PositionSnapshot(ChessBoard board, boolean gameOver) {
+        nRows = board.getNRows();
+        nColumns = board.getNColumns();
+        codes = new byte[nRows * nColumns];
+        colors = new byte[nRows * nColumns];
+        Arrays.fill(codes, (byte) -1);
+        Arrays.fill(colors, (byte) -1);
+        for (Piece[] pieces : new Piece[][]{board.getWhitePieces(), board.getBlackPieces()}) {
+            for (Piece p : pieces) {
+                if (p.isLiving()) {
+                    int sq = board.squareIndex(p.getSquare());
+                    codes[sq] = (byte) p.getPieceCode();
+                    colors[sq] = (byte) BitBoard.colorIndex(p.getPieceColor());
+                }
+            }
+        }
+        if (gameOver) {
+            moves = new int[0];
+        } else {
+            MoveList list = new MoveList(64);
+            int n = board.generateMoves(list);
+            moves = new int[n];
+            for (int i = 0; i < n; i++) {
+                moves[i] = list.get(i);
+            }
+        }
+        currentPlayer = board.getCurrentPlayer();
+        ply = board.getPly();
+        this.gameOver = gameOver;
+        winner = (gameOver ? board.getWinner() : null);
+    }
+
+    /**
+     * Returns number of rows.
+     *
+     * @return number of rows.
+     */
+    public int getNRows() {
+        return nRows;
+    }
+
+    /**
+     * Returns number of columns.
+     *
+     * @return number of columns.
+     */
+    public int getNColumns() {
+        return nColumns;
+    }
+
+    /**
+     * Returns index of a square.
+     *
+     * @param row internal square row.
+     * @param column internal square column.
+     * @return square index.
+     */
+    public int index(int row, int column) {
+        return row * nColumns + column;
+    }
+
+    /**
+     * Returns true if a square has a piece.
+     *
+     * @param square square index.
+     * @return true if square is occupied.
+     */
+    public boolean isOccupied(int square) {
+        return codes[square] >= 0;
+    }
+
+    /**
+     * Returns code of piece in a square (see {@code Piece.getPieceCode}).
+     *
+     * @param square square index.
+     * @return piece code, or -1 if square is empty.
+     */
+    public int getPieceCode(int square) {
+        return codes[square];
+    }
+
+    /**
+     * Returns color of piece in a square.
+     *
+     * @param square square index.
+     * @return piece color, or {@code null} if square is empty.
+     */
+    public PieceColor getPieceColor(int square) {
+        switch (colors[square]) {
+            case BitBoard.WHITE:
+                return PieceColor.WHITE;
+            case BitBoard.BLACK:
+                return PieceColor.BLACK;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Returns true if piece in a square has legal movements.
+     *
+     * @param square square index.
+     * @return true if piece can move.
+     */
+    public boolean canMove(int square) {
+        for (int move : moves) {
+            if (Move.from(move) == square) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns legal movement between two squares.
+     *
+     * @param from square index of moving piece.
+     * @param to destination square index.
+     * @return movement packed by {@code Move}, or -1 if movement isn't legal.
+     */
+    public int findMove(int from, int to) {
+        for (int move : moves) {
+            if (Move.from(move) == from && Move.to(move) == to) {
+                return move;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns destinations of legal movements of piece in a square.
+     *
+     * @param square square index.
+     * @return destination square indexes, in generation order.
+     */
+    public int[] getTargets(int square) {
+        int[] targets = new int[moves.length];
+        int n = 0;
+        for (int move : moves) {
+            if (Move.from(move) == square) {
+                targets[n++] = Move.to(move);
+            }
+        }
+        return Arrays.copyOf(targets, n);
+    }
+
+    /**
+     * Returns player to move.
+     *
+     * @return color of player to move.
+     */
+    public PieceColor getCurrentPlayer() {
+        return currentPlayer;
+    }
+
+    /**
+     * Returns number of movements done in chessboard.
+     *
+     * @return number of plies.
+     */
+    public int getPly() {
+        return ply;
+    }
+
+    /**
+     * Returns true if game is over.
+     *
+     * @return true if game is over.
+     */
+    public boolean isGameOver() {
+        return gameOver;
+    }
+
+    /**
+     * Returns winner.
+     *
+     * @return winner color, or {@code null} if game is not over or is a
+     * draw.
+     */
+    public PieceColor getWinner() {
+        return winner;
+    }
+
+}
@@ -8,13 +8,6 @@ import pchess.core.enums.PieceColor;
  */
 public class Queen extends Piece {
 
-    /**
-     * Vector that defines queen movements.
-     */
-    private static final int[][] QUEEN_MOVE
-            = {{-1, -1}, {-1, 0}, {-1, 1}, {0, -1},
-            {0, 1}, {1, -1}, {1, 0}, {1, 1}};
-
     /**
      * Constructor. Makes a new queen.
      *
@@ -27,7 +20,7 @@ public class Queen extends Piece {
 
     @Override
     public void defLegalMove() {
-        defLegalMove(QUEEN_MOVE);
+        defLegalMove(false);
     }
 
 }
@@ -8,12 +8,6 @@ import pchess.core.enums.PieceColor;
  */
 class Rook extends Piece {
 
-    /**
-     * Vector that defines rock movements.
-     */
-    private static final int[][] ROCK_MOVE
-            = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
-
     /**
      * Constructor. Makes a new rock.
      *
@@ -26,6 +20,6 @@ class Rook extends Piece {
 
     @Override
     public void defLegalMove() {
-        defLegalMove(ROCK_MOVE);
+        defLegalMove(false);
     }
 }
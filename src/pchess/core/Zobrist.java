@@ -0,0 +1,140 @@
+package pchess.core;
+
+import pchess.core.enums.PieceColor;
+import pchess.core.enums.PieceType;
+
+/**
+ * Random keys used to compute Zobrist hash of chessboard positions. A position
+ * hash is the exclusive or of keys for each piece in game (by color, type and
+ * square), for each pawn that still can move two squares, for player to move
+ * and for chessboard dimensions.
+ * <p>
+ * Keys are generated from a fixed seed, so the same position has the same hash
+ * in every run of this application.
+ */
+public final class Zobrist {
+
+    /**
+     * Maximum number of squares that have their own keys.
+     */
+    private static final int MAX_SQUARES = 256;
+
+    /**
+     * Keys by color, piece type ordinal and square index.
+     */
+    private static final long[][][] PIECE_KEYS;
+
+    /**
+     * Keys for pawns that can move two squares, by color and square index.
+     */
+    private static final long[][] FIRST_MOVE_KEYS;
+
+    /**
+     * Key used when black player has move.
+     */
+    private static final long BLACK_TO_MOVE;
+
+    /**
+     * Seed for next key.
+     */
+    private static long seed = 0x9E3779B97F4A7C15L;
+
+    static {
+        int types = PieceType.values().length;
+        PIECE_KEYS = new long[2][types][MAX_SQUARES];
+        FIRST_MOVE_KEYS = new long[2][MAX_SQUARES];
+        for (int c = 0; c < 2; c++) {
+            for (int t = 0; t < types; t++) {
+                for (int s = 0; s < MAX_SQUARES; s++) {
+                    PIECE_KEYS[c][t][s] = nextKey();
+                }
+            }
+            for (int s = 0; s < MAX_SQUARES; s++) {
+                FIRST_MOVE_KEYS[c][s] = nextKey();
+            }
+        }
+        BLACK_TO_MOVE = nextKey();
+    }
+
+    /**
+     * Private constructor. This class only has static methods.
+     */
+    private Zobrist() {
+    }
+
+    /**
+     * Returns next pseudo-random key, using SplitMix64 generator.
+     *
+     * @return a new key.
+     */
+    private static long nextKey() {
+        seed += 0x9E3779B97F4A7C15L;
+        return mix(seed);
+    }
+
+    /**
+     * Mixes bits of a value.
+     *
+     * @param z value.
+     * @return mixed value.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Returns key for a piece in a square.
+     *
+     * @param pc piece color.
+     * @param type piece type.
+     * @param square square index.
+     * @return piece key.
+     */
+    public static long piece(PieceColor pc, PieceType type, int square) {
+        int c = (pc == PieceColor.WHITE ? 0 : 1);
+        if (square < MAX_SQUARES) {
+            return PIECE_KEYS[c][type.ordinal()][square];
+        }
+        return mix(PIECE_KEYS[c][type.ordinal()][square % MAX_SQUARES] + square);
+    }
+
+    /**
+     * Returns key for a pawn that can move two squares.
+     *
+     * @param pc pawn color.
+     * @param square square index.
+     * @return first move key.
+     */
+    public static long firstMove(PieceColor pc, int square) {
+        int c = (pc == PieceColor.WHITE ? 0 : 1);
+        if (square < MAX_SQUARES) {
+            return FIRST_MOVE_KEYS[c][square];
+        }
+        return mix(FIRST_MOVE_KEYS[c][square % MAX_SQUARES] + square);
+    }
+
+    /**
+     * Returns key for player to move.
+     *
+     * @param pc player to move.
+     * @return key for player to move.
+     */
+    public static long player(PieceColor pc) {
+        return (pc == PieceColor.WHITE ? 0 : BLACK_TO_MOVE);
+    }
+
+    /**
+     * Returns key for chessboard dimensions, so that positions in chessboards
+     * of different sizes have different hashes.
+     *
+     * @param nRows number of rows.
+     * @param nColumns number of columns.
+     * @return key for chessboard dimensions.
+     */
+    public static long geometry(int nRows, int nColumns) {
+        return mix(BLACK_TO_MOVE ^ (((long) nRows << 32) | nColumns));
+    }
+
+}
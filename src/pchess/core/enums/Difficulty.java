@@ -17,37 +17,46 @@ package pchess.core.enums;
  * </li>
  * <li>In <em>HARD</em> mode, all moves is done by computing best move</li>
  * </ol>
+ * Each level also defines default time that computer uses to compute its
+ * best move.
  */
 public enum Difficulty {
     
     /**
      * Difficulty level is easy.
      */
-    EASY(0.5),
+    EASY(0.5, 300),
     
     /**
      * Difficulty level is medium.
      */
-    MEDIUM(0.2),
+    MEDIUM(0.2, 600),
     
     /**
      * Difficulty level is hard.
      */
-    HARD(0);
+    HARD(0, 1200);
     
     /**
      * In difficulty level, defines percentage in which computer does
      * random movement.
      */
     private final double percent;
+
+    /**
+     * Time in milliseconds to compute best move.
+     */
+    private final long searchTime;
     
     /**
      * Constructor. Makes a Difficulty.
      * 
      * @param percent percentage in which computer does random movement.
+     * @param searchTime time in milliseconds to compute best move.
      */
-    private Difficulty(double percent){
+    private Difficulty(double percent, long searchTime){
         this.percent = percent;
+        this.searchTime = searchTime;
     }
     
     /**
@@ -58,4 +67,13 @@ public enum Difficulty {
     public double getPercent(){
         return percent;
     }
+
+    /**
+     * Returns time in milliseconds that computer uses to compute best move.
+     * 
+     * @return search time in milliseconds.
+     */
+    public long getSearchTime(){
+        return searchTime;
+    }
 }
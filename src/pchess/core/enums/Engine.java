@@ -0,0 +1,22 @@
+package pchess.core.enums;
+
+/**
+ * Engine is a enum type to configure which artificial intelligence is used
+ * by computer players. Two engines are defined:
+ * <ul>
+ * <li>NEGAMAX, alpha-beta search implemented by {@code ComputerPlayer}</li>
+ * <li>MCTS, Monte Carlo tree search implemented by {@code MctsPlayer}</li>
+ * </ul>
+ */
+public enum Engine {
+
+    /**
+     * Negamax search with alpha-beta pruning.
+     */
+    NEGAMAX,
+
+    /**
+     * Monte Carlo tree search.
+     */
+    MCTS
+}
@@ -8,35 +8,35 @@ public enum PieceType {
     /**
      * Standard king.
      */
-    KING(5, 'K'),
+    KING(5, 'K', 100),
     /**
      * Standard queen.
      */
-    QUEEN(4, 'Q'),
+    QUEEN(4, 'Q', 9),
     /**
      * Standard rock.
      */
-    ROCK(3, 'R'),
+    ROCK(3, 'R', 5),
     /**
      * Standard bishop.
      */
-    BISHOP(2, 'B'),
+    BISHOP(2, 'B', 3),
     /**
      * Standard knight.
      */
-    KNIGHT(1, 'N'),
+    KNIGHT(1, 'N', 3),
     /**
      * Standard pawn.
      */
-    PAWN(0, 'P'),
+    PAWN(0, 'P', 1),
     /**
      * Pawn that can move only one square in its first move.
      */
-    PAWN_VAR(0, 'V'),
+    PAWN_VAR(0, 'V', 1),
     /**
      * A diamond is a special piece that can't move.
      */
-    DIAMOND(-1, 'D');
+    DIAMOND(-1, 'D', 1);
 
     /**
      * Piece type id.
@@ -48,15 +48,22 @@ public enum PieceType {
      */
     private final char charId;
 
+    /**
+     * Piece type value, in pawns.
+     */
+    private final int value;
+
     /**
      * Constructor. Makes a PieceType.
      * 
      * @param id piece type id.
      * @param charId piece type character id.
+     * @param value piece type value, in pawns.
      */
-    private PieceType(int id, char charId) {
+    private PieceType(int id, char charId, int value) {
         this.id = id;
         this.charId = charId;
+        this.value = value;
     }
 
     /**
@@ -77,6 +84,16 @@ public enum PieceType {
         return charId;
     }
     
+    /**
+     * Returns piece type value, in pawns. It is used by AI to find what
+     * captures are better.
+     * 
+     * @return piece type value.
+     */
+    public int getValue(){
+        return value;
+    }
+    
     @Override
     public String toString() {
         return this.name().toLowerCase();
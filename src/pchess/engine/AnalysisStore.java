@@ -0,0 +1,270 @@
+package pchess.engine;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Persistent table of search results, kept in a memory-mapped file, so that
+ * analysis done by a process is found again by next processes. Entries have
+ * the same data of {@code TranspositionTable} entries (depth, distance from
+ * search root, bound, score and best movement) and they are read and written
+ * directly in file pages, without copies.
+ * <p>
+ * File has a fixed size: it is divided in buckets of two entries, where
+ * first entry is replaced only by deeper searches and second entry is always
+ * replaced. Each entry keeps {@code key ^ data} and {@code data}, so an entry
+ * partially written when a process stopped doesn't match any key and it is
+ * read as a miss.
+ * <p>
+ * File header keeps a magic number, format version, number of buckets, game
+ * variant salt and a check value. A file whose header doesn't match or whose
+ * length is wrong (for instance, a truncated file) is not read: it is
+ * rebuilt empty. Position keys are mixed with variant salt, so that
+ * positions of different game variants don't match.
+ */
+public class AnalysisStore {
+
+    /**
+     * File magic number.
+     */
+    private static final int MAGIC = 0x50434153;
+
+    /**
+     * File format version. It must change when entry format or search scores
+     * change.
+     */
+    private static final int VERSION = 2;
+
+    /**
+     * Size of file header in bytes.
+     */
+    private static final int HEADER = 32;
+
+    /**
+     * Size of a bucket in bytes.
+     */
+    private static final int BUCKET = 32;
+
+    /**
+     * Memory-mapped file.
+     */
+    private final MappedByteBuffer buffer;
+
+    /**
+     * Mask to find bucket from key.
+     */
+    private final int mask;
+
+    /**
+     * Game variant salt.
+     */
+    private final long salt;
+
+    /**
+     * Number of probes that found position.
+     */
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * Number of probes that didn't find position.
+     */
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Number of stored entries.
+     */
+    private final LongAdder writes = new LongAdder();
+
+    /**
+     * Constructor. Makes a store over a mapped file.
+     *
+     * @param buffer memory-mapped file.
+     * @param buckets number of buckets, a power of two.
+     * @param salt game variant salt.
+     */
+    private AnalysisStore(MappedByteBuffer buffer, int buckets, long salt) {
+        this.buffer = buffer;
+        this.mask = buckets - 1;
+        this.salt = salt;
+    }
+
+    /**
+     * Returns salt of a game variant.
+     *
+     * @param variant game variant description.
+     * @return variant salt.
+     */
+    public static long salt(String variant) {
+        long h = 0xCBF29CE484222325L;
+        for (byte b : variant.getBytes(StandardCharsets.UTF_8)) {
+            h = (h ^ (b & 0xFF)) * 0x100000001B3L;
+        }
+        return h;
+    }
+
+    /**
+     * Returns check value of a file header.
+     *
+     * @param buckets number of buckets.
+     * @param salt game variant salt.
+     * @return check value.
+     */
+    private static long check(long buckets, long salt) {
+        long h = (MAGIC * 31L + VERSION) * 0x9E3779B97F4A7C15L;
+        h = (h ^ buckets) * 0x9E3779B97F4A7C15L;
+        return (h ^ salt) * 0x9E3779B97F4A7C15L;
+    }
+
+    /**
+     * Opens a store file, or makes a new empty one if file doesn't exist or
+     * is not valid for this format, size and game variant.
+     *
+     * @param file store file.
+     * @param megabytes store size in megabytes. Number of buckets is rounded
+     * down to a power of two.
+     * @param salt game variant salt.
+     * @return store.
+     * @throws IOException if file can't be opened or created.
+     */
+    public static AnalysisStore open(File file, int megabytes, long salt) throws IOException {
+        long bytes = Math.max(1, megabytes) * 1024L * 1024L;
+        int buckets = (int) Math.min(Long.highestOneBit(bytes / BUCKET),
+                Integer.highestOneBit((Integer.MAX_VALUE - HEADER) / BUCKET));
+        long length = HEADER + (long) buckets * BUCKET;
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Can't create directory " + dir);
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+                FileChannel channel = raf.getChannel()) {
+            boolean valid = false;
+            if (raf.length() == length) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER);
+                while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+                }
+                header.flip();
+                valid = header.remaining() == HEADER
+                        && header.getInt() == MAGIC && header.getInt() == VERSION
+                        && header.getLong() == buckets && header.getLong() == salt
+                        && header.getLong() == check(buckets, salt);
+            }
+            MappedByteBuffer buffer;
+            if (valid) {
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+            } else {
+                raf.setLength(0);
+                raf.setLength(length);
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+                buffer.force();
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, VERSION);
+                buffer.putLong(8, buckets);
+                buffer.putLong(16, salt);
+                buffer.putLong(24, check(buckets, salt));
+                buffer.force();
+            }
+            return new AnalysisStore(buffer, buckets, salt);
+        }
+    }
+
+    /**
+     * Returns entry data for a position.
+     *
+     * @param hash position hash.
+     * @return packed entry data, read by {@code TranspositionTable} static
+     * methods, or 0 if position is not in store.
+     */
+    public long probe(long hash) {
+        long key = hash ^ salt;
+        int b = HEADER + ((int) key & mask) * BUCKET;
+        for (int i = b; i < b + BUCKET; i += 16) {
+            long data = buffer.getLong(i + 8);
+            if ((buffer.getLong(i) ^ data) == key && data != 0) {
+                hits.increment();
+                return data;
+            }
+        }
+        misses.increment();
+        return 0;
+    }
+
+    /**
+     * Stores a search result.
+     *
+     * @param hash position hash.
+     * @param depth search depth.
+     * @param ply distance from search root.
+     * @param bound bound type ({@code TranspositionTable.EXACT},
+     * {@code LOWER} or {@code UPPER}).
+     * @param score position score.
+     * @param move best movement.
+     */
+    public void store(long hash, int depth, int ply, int bound, int score, int move) {
+        long key = hash ^ salt;
+        int b = HEADER + ((int) key & mask) * BUCKET;
+        long data = TranspositionTable.pack(Math.min(depth, TranspositionTable.MAX_DEPTH),
+                ply, bound, score, move, 0);
+        long oldData = buffer.getLong(b + 8);
+        int i = (oldData == 0 || (buffer.getLong(b) ^ oldData) == key
+                || depth >= TranspositionTable.depth(oldData) ? b : b + 16);
+        buffer.putLong(i, key ^ data);
+        buffer.putLong(i + 8, data);
+        writes.increment();
+    }
+
+    /**
+     * Writes changed pages to file.
+     */
+    public void flush() {
+        buffer.force();
+    }
+
+    /**
+     * Returns number of probes that found position.
+     *
+     * @return number of hits.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns number of probes that didn't find position.
+     *
+     * @return number of misses.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns number of stored entries.
+     *
+     * @return number of writes.
+     */
+    public long getWrites() {
+        return writes.sum();
+    }
+
+    /**
+     * Returns number of entries in this store.
+     *
+     * @return store capacity.
+     */
+    public int getCapacity() {
+        return 2 * (mask + 1);
+    }
+
+    @Override
+    public String toString() {
+        return "AnalysisStore " + getCapacity() + " entries (hits = " + getHits()
+                + ", misses = " + getMisses() + ", writes = " + getWrites() + ")";
+    }
+
+}
@@ -0,0 +1,148 @@
+package pchess.engine;
+
+/**
+ * Defines order in which movements are searched, so that best movements are
+ * searched first and search is pruned earlier. Movements are ordered by:
+ * <ol>
+ * <li>best movement from transposition table;</li>
+ * <li>captures, most valuable victim first and, for the same victim, least
+ * valuable attacker first (MVV-LVA);</li>
+ * <li>killer movements, two per ply, that caused cutoffs in sibling
+ * nodes;</li>
+ * <li>other movements by history, that is, how often a movement from a square
+ * to another caused cutoffs.</li>
+ * </ol>
+ * Each search thread must have its own orderer.
+ */
+public class MoveOrderer {
+
+    /**
+     * Value used to mark absence of movement.
+     */
+    public static final int NO_MOVE = -1;
+
+    /**
+     * Score for transposition table movement.
+     */
+    private static final int TABLE_SCORE = Integer.MAX_VALUE;
+
+    /**
+     * Base score for captures.
+     */
+    private static final int CAPTURE_SCORE = 1 << 28;
+
+    /**
+     * Score for killer movements. Second slot has one less.
+     */
+    private static final int KILLER_SCORE = 1 << 26;
+
+    /**
+     * Maximum history value. History is halved when it reaches this value.
+     */
+    private static final int MAX_HISTORY = 1 << 24;
+
+    /**
+     * Killer movements by ply.
+     */
+    private final int[][] killers;
+
+    /**
+     * History by origin and destination square.
+     */
+    private final int[][] history;
+
+    /**
+     * Constructor. Makes a new movement orderer.
+     *
+     * @param squares number of squares in chessboard.
+     */
+    public MoveOrderer(int squares) {
+        killers = new int[TranspositionTable.MAX_DEPTH + 1][2];
+        history = new int[squares][squares];
+        clearKillers();
+    }
+
+    /**
+     * Prepares this orderer to a new search. Killer movements are removed
+     * and history is aged.
+     */
+    public void newSearch() {
+        clearKillers();
+        for (int[] h : history) {
+            for (int i = 0; i < h.length; i++) {
+                h[i] /= 2;
+            }
+        }
+    }
+
+    private void clearKillers() {
+        for (int[] k : killers) {
+            k[0] = NO_MOVE;
+            k[1] = NO_MOVE;
+        }
+    }
+
+    /**
+     * Returns score for transposition table movement.
+     *
+     * @return movement score.
+     */
+    public int tableScore() {
+        return TABLE_SCORE;
+    }
+
+    /**
+     * Returns score for a capture.
+     *
+     * @param victimValue value of captured piece.
+     * @param attackerValue value of capturing piece.
+     * @return movement score.
+     */
+    public int captureScore(int victimValue, int attackerValue) {
+        return CAPTURE_SCORE + victimValue * 1024 - Math.min(attackerValue, 1023);
+    }
+
+    /**
+     * Returns score for a movement that is not a capture.
+     *
+     * @param move encoded movement.
+     * @param from origin square index.
+     * @param to destination square index.
+     * @param ply distance from search root.
+     * @return movement score.
+     */
+    public int quietScore(int move, int from, int to, int ply) {
+        if (killers[ply][0] == move) {
+            return KILLER_SCORE;
+        }
+        if (killers[ply][1] == move) {
+            return KILLER_SCORE - 1;
+        }
+        return history[from][to];
+    }
+
+    /**
+     * Records a movement that is not a capture and caused a beta cutoff.
+     *
+     * @param move encoded movement.
+     * @param from origin square index.
+     * @param to destination square index.
+     * @param ply distance from search root.
+     * @param depth remaining search depth.
+     */
+    public void cutoff(int move, int from, int to, int ply, int depth) {
+        if (killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+        history[from][to] += depth * depth;
+        if (history[from][to] >= MAX_HISTORY) {
+            for (int[] h : history) {
+                for (int i = 0; i < h.length; i++) {
+                    h[i] /= 2;
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,219 @@
+package pchess.engine;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Opening book: movements for positions near start of a game variant, with
+ * weights that define how often each movement is played. Book is a file of
+ * fixed size records (position key, encoded movement, weight) sorted by
+ * key, so it is memory-mapped and positions are found by binary search,
+ * without reading book into heap.
+ * <p>
+ * File header keeps a magic number, format version, game variant salt
+ * (see {@code AnalysisStore.salt}) and number of records.
+ */
+public class OpeningBook {
+
+    /**
+     * File magic number.
+     */
+    private static final int MAGIC = 0x5043424B;
+
+    /**
+     * File format version.
+     */
+    private static final int VERSION = 2;
+
+    /**
+     * Size of file header in bytes.
+     */
+    private static final int HEADER = 24;
+
+    /**
+     * Size of a record in bytes.
+     */
+    private static final int RECORD = 16;
+
+    /**
+     * Memory-mapped records.
+     */
+    private final MappedByteBuffer records;
+
+    /**
+     * Number of records.
+     */
+    private final int size;
+
+    /**
+     * Constructor. Makes a book over mapped records.
+     *
+     * @param records memory-mapped records.
+     * @param size number of records.
+     */
+    private OpeningBook(MappedByteBuffer records, int size) {
+        this.records = records;
+        this.size = size;
+    }
+
+    /**
+     * Writes a book file. Records don't need to be sorted.
+     *
+     * @param file destination file.
+     * @param salt game variant salt.
+     * @param keys position keys of records.
+     * @param moves encoded movements of records.
+     * @param weights weights of records, greater than 0.
+     * @param n number of records.
+     * @throws IOException if file can't be written.
+     * @throws IllegalArgumentException if a weight is not positive.
+     */
+    public static void write(File file, long salt, long[] keys, int[] moves, int[] weights, int n)
+            throws IOException {
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            if (weights[i] <= 0) {
+                throw new IllegalArgumentException("Invalid weight: " + weights[i]);
+            }
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> keys[a] != keys[b] ? Long.compare(keys[a], keys[b])
+                : Integer.compare(weights[b], weights[a]));
+
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Can't create directory " + dir);
+        }
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(salt);
+            out.writeInt(n);
+            out.writeInt(0);
+            for (int i : order) {
+                out.writeLong(keys[i]);
+                out.writeInt(moves[i]);
+                out.writeInt(weights[i]);
+            }
+        }
+        if (file.exists() && !file.delete() || !tmp.renameTo(file)) {
+            throw new IOException("Can't write " + file);
+        }
+    }
+
+    /**
+     * Loads a book file. File is memory-mapped.
+     *
+     * @param file book file.
+     * @param salt game variant salt.
+     * @return opening book.
+     * @throws IOException if file can't be read, it isn't a valid book or it
+     * is a book of another variant.
+     */
+    public static OpeningBook load(File file, long salt) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+                FileChannel channel = raf.getChannel()) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+            }
+            header.flip();
+            if (header.remaining() != HEADER || header.getInt() != MAGIC
+                    || header.getInt() != VERSION || header.getLong() != salt) {
+                throw new IOException("Invalid book header: " + file);
+            }
+            int size = header.getInt();
+            if (size < 0 || channel.size() != HEADER + (long) size * RECORD) {
+                throw new IOException("Invalid book size: " + file);
+            }
+            MappedByteBuffer records = channel.map(FileChannel.MapMode.READ_ONLY,
+                    HEADER, (long) size * RECORD);
+            return new OpeningBook(records, size);
+        }
+    }
+
+    /**
+     * Returns number of records.
+     *
+     * @return book size.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns first record of a position.
+     *
+     * @param key position key.
+     * @return record index, or {@code size} if position is not in book.
+     */
+    private int first(long key) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (records.getLong(mid * RECORD) < key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return (lo < size && records.getLong(lo * RECORD) == key ? lo : size);
+    }
+
+    /**
+     * Returns book movements of a position, best weighted first.
+     *
+     * @param key position key.
+     * @return encoded movements, empty if position is not in book.
+     */
+    public int[] getMoves(long key) {
+        int i = first(key);
+        int j = i;
+        while (j < size && records.getLong(j * RECORD) == key) {
+            j++;
+        }
+        int[] moves = new int[j - i];
+        for (int k = i; k < j; k++) {
+            moves[k - i] = records.getInt(k * RECORD + 8);
+        }
+        return moves;
+    }
+
+    /**
+     * Chooses a book movement of a position at random, with probability
+     * proportional to movement weight.
+     *
+     * @param key position key.
+     * @return encoded movement, or {@code MoveOrderer.NO_MOVE} if position
+     * is not in book.
+     */
+    public int pick(long key) {
+        int i = first(key);
+        long total = 0;
+        for (int k = i; k < size && records.getLong(k * RECORD) == key; k++) {
+            total += records.getInt(k * RECORD + 12);
+        }
+        if (total == 0) {
+            return MoveOrderer.NO_MOVE;
+        }
+        long r = ThreadLocalRandom.current().nextLong(total);
+        for (int k = i; ; k++) {
+            r -= records.getInt(k * RECORD + 12);
+            if (r < 0) {
+                return records.getInt(k * RECORD + 8);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,75 @@
+package pchess.engine;
+
+/**
+ * Limits for a computer player search. Search is done with iterative
+ * deepening and stops when any of these limits is reached. Best movement of
+ * last completed iteration is played.
+ */
+public class SearchLimits {
+
+    /**
+     * Maximum search depth allowed.
+     */
+    public static final int MAX_DEPTH = TranspositionTable.MAX_DEPTH;
+
+    /**
+     * Time budget in milliseconds, or 0 for no time limit.
+     */
+    private final long time;
+
+    /**
+     * Node budget, or 0 for no node limit.
+     */
+    private final long nodes;
+
+    /**
+     * Maximum depth to search.
+     */
+    private final int depth;
+
+    /**
+     * Constructor. Makes search limits.
+     *
+     * @param time time budget in milliseconds, or 0 for no time limit.
+     * @param nodes node budget, or 0 for no node limit.
+     * @param depth maximum depth to search, at most {@code MAX_DEPTH}.
+     */
+    public SearchLimits(long time, long nodes, int depth) {
+        this.time = time;
+        this.nodes = nodes;
+        this.depth = Math.max(1, Math.min(depth, MAX_DEPTH));
+    }
+
+    /**
+     * Returns time budget in milliseconds.
+     *
+     * @return time budget, or 0 if there is no time limit.
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * Returns node budget.
+     *
+     * @return node budget, or 0 if there is no node limit.
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Returns maximum depth to search.
+     *
+     * @return maximum depth.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    @Override
+    public String toString() {
+        return "time = " + time + " ms, nodes = " + nodes + ", depth = " + depth;
+    }
+
+}
@@ -0,0 +1,106 @@
+package pchess.engine;
+
+/**
+ * Statistics of a computer player search. They are used to measure how well
+ * search is pruned.
+ */
+public class SearchStatistics {
+
+    /**
+     * Number of visited nodes.
+     */
+    private long nodes;
+
+    /**
+     * Number of nodes where a movement caused a beta cutoff.
+     */
+    private long cutoffs;
+
+    /**
+     * Number of beta cutoffs caused by first searched movement.
+     */
+    private long firstMoveCutoffs;
+
+    /**
+     * Clears all statistics.
+     */
+    public void clear() {
+        nodes = 0;
+        cutoffs = 0;
+        firstMoveCutoffs = 0;
+    }
+
+    /**
+     * Adds statistics of another search, such as a helper thread search.
+     *
+     * @param other statistics to add.
+     */
+    public void add(SearchStatistics other) {
+        nodes += other.nodes;
+        cutoffs += other.cutoffs;
+        firstMoveCutoffs += other.firstMoveCutoffs;
+    }
+
+    /**
+     * Counts a visited node.
+     */
+    public void node() {
+        nodes++;
+    }
+
+    /**
+     * Counts a beta cutoff.
+     *
+     * @param firstMove true if cutoff was caused by first searched movement.
+     */
+    public void cutoff(boolean firstMove) {
+        cutoffs++;
+        if (firstMove) {
+            firstMoveCutoffs++;
+        }
+    }
+
+    /**
+     * Returns number of visited nodes.
+     *
+     * @return number of visited nodes.
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Returns number of beta cutoffs.
+     *
+     * @return number of beta cutoffs.
+     */
+    public long getCutoffs() {
+        return cutoffs;
+    }
+
+    /**
+     * Returns number of beta cutoffs caused by first searched movement.
+     *
+     * @return number of first movement cutoffs.
+     */
+    public long getFirstMoveCutoffs() {
+        return firstMoveCutoffs;
+    }
+
+    /**
+     * Returns fraction of beta cutoffs caused by first searched movement.
+     * Better movement ordering gives values closer to 1.
+     *
+     * @return first movement cutoff rate, or 0 if there was no cutoff.
+     */
+    public double getFirstMoveCutoffRate() {
+        return (cutoffs == 0 ? 0 : (double) firstMoveCutoffs / cutoffs);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("nodes = %d, cutoffs = %d, first move cutoffs = %.1f%%",
+                nodes, cutoffs, 100 * getFirstMoveCutoffRate());
+    }
+
+}
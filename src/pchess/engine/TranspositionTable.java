@@ -0,0 +1,280 @@
+package pchess.engine;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed size transposition table used by computer player search. Each entry
+ * stores position hash, search depth, bound type, score and best movement
+ * packed in two {@code long} values.
+ * <p>
+ * Table is divided in buckets of two entries: first entry is replaced only by
+ * deeper searches (or by entries of a newer search), second entry is always
+ * replaced. Table can be shared by many search threads without locks: each
+ * entry stores {@code hash ^ data} and {@code data}, so an entry whose words
+ * were written by different threads doesn't match any hash and it is read as
+ * a miss.
+ */
+public class TranspositionTable {
+
+    /**
+     * Score is exact.
+     */
+    public static final int EXACT = 1;
+
+    /**
+     * Score is a lower bound (search failed high).
+     */
+    public static final int LOWER = 2;
+
+    /**
+     * Score is an upper bound (search failed low).
+     */
+    public static final int UPPER = 3;
+
+    /**
+     * Maximum depth and ply that can be stored.
+     */
+    public static final int MAX_DEPTH = 63;
+
+    /**
+     * Number of {@code long} values in a bucket.
+     */
+    private static final int BUCKET = 4;
+
+    /**
+     * Table entries. Each bucket has {@code hash ^ data, data} for its
+     * depth-preferred entry followed by its always-replace entry.
+     */
+    private final long[] table;
+
+    /**
+     * Mask to find bucket from hash.
+     */
+    private final int mask;
+
+    /**
+     * Current search generation, used to replace entries of old searches.
+     */
+    private int generation;
+
+    /**
+     * Number of probes that found position.
+     */
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * Number of probes that didn't find position.
+     */
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Number of stores that overwrote another position.
+     */
+    private final LongAdder collisions = new LongAdder();
+
+    /**
+     * Constructor. Makes a new transposition table.
+     *
+     * @param megabytes table size in megabytes. Number of buckets is
+     * rounded down to a power of two.
+     */
+    public TranspositionTable(int megabytes) {
+        long bytes = Math.max(1, megabytes) * 1024L * 1024L;
+        long buckets = Long.highestOneBit(bytes / (BUCKET * 8));
+        buckets = Math.min(buckets, Integer.highestOneBit(Integer.MAX_VALUE / BUCKET));
+        table = new long[(int) buckets * BUCKET];
+        mask = (int) buckets - 1;
+    }
+
+    /**
+     * Starts a new search. Entries from previous searches can be replaced by
+     * shallower entries of this search.
+     */
+    public void newSearch() {
+        generation = (generation + 1) & 3;
+    }
+
+    /**
+     * Removes all entries from this table.
+     */
+    public void clear() {
+        Arrays.fill(table, 0);
+    }
+
+    /**
+     * Packs entry data in a {@code long}.
+     *
+     * @param depth search depth.
+     * @param ply distance from search root.
+     * @param bound bound type.
+     * @param score position score.
+     * @param move best movement.
+     * @param generation search generation.
+     * @return packed data.
+     */
+    static long pack(int depth, int ply, int bound, int score, int move, int generation) {
+        int s = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, score));
+        return (move & 0xFFFFFFFFL)
+                | ((long) (s & 0xFFFF) << 32)
+                | ((long) (depth & 63) << 48)
+                | ((long) bound << 54)
+                | ((long) (ply & 63) << 56)
+                | ((long) generation << 62);
+    }
+
+    /**
+     * Returns entry data for a position.
+     *
+     * @param hash position hash.
+     * @return packed entry data, or 0 if position is not in table.
+     */
+    public long probe(long hash) {
+        int b = ((int) hash & mask) * BUCKET;
+        for (int i = b; i < b + BUCKET; i += 2) {
+            long data = table[i + 1];
+            if ((table[i] ^ data) == hash && data != 0) {
+                hits.increment();
+                return data;
+            }
+        }
+        misses.increment();
+        return 0;
+    }
+
+    /**
+     * Stores a search result.
+     *
+     * @param hash position hash.
+     * @param depth search depth.
+     * @param ply distance from search root.
+     * @param bound bound type ({@code EXACT}, {@code LOWER} or {@code UPPER}).
+     * @param score position score.
+     * @param move best movement.
+     */
+    public void store(long hash, int depth, int ply, int bound, int score, int move) {
+        int b = ((int) hash & mask) * BUCKET;
+        long data = pack(Math.min(depth, MAX_DEPTH), ply, bound, score, move, generation);
+
+        long oldData = table[b + 1];
+        long oldHash = table[b] ^ oldData;
+        int i;
+        if (oldData == 0 || oldHash == hash || depth >= depth(oldData)
+                || generation(oldData) != generation) {
+            i = b;
+        } else {
+            i = b + 2;
+            oldData = table[i + 1];
+            oldHash = table[i] ^ oldData;
+        }
+        if (oldData != 0 && oldHash != hash) {
+            collisions.increment();
+        }
+        table[i] = hash ^ data;
+        table[i + 1] = data;
+    }
+
+    /**
+     * Returns best movement of an entry.
+     *
+     * @param data packed entry data.
+     * @return best movement.
+     */
+    public static int move(long data) {
+        return (int) data;
+    }
+
+    /**
+     * Returns score of an entry.
+     *
+     * @param data packed entry data.
+     * @return score.
+     */
+    public static int score(long data) {
+        return (short) (data >>> 32);
+    }
+
+    /**
+     * Returns search depth of an entry.
+     *
+     * @param data packed entry data.
+     * @return search depth.
+     */
+    public static int depth(long data) {
+        return (int) (data >>> 48) & 63;
+    }
+
+    /**
+     * Returns bound type of an entry.
+     *
+     * @param data packed entry data.
+     * @return bound type.
+     */
+    public static int bound(long data) {
+        return (int) (data >>> 54) & 3;
+    }
+
+    /**
+     * Returns distance from search root of an entry.
+     *
+     * @param data packed entry data.
+     * @return ply.
+     */
+    public static int ply(long data) {
+        return (int) (data >>> 56) & 63;
+    }
+
+    /**
+     * Returns search generation of an entry.
+     *
+     * @param data packed entry data.
+     * @return search generation.
+     */
+    private static int generation(long data) {
+        return (int) (data >>> 62) & 3;
+    }
+
+    /**
+     * Returns number of probes that found position.
+     *
+     * @return number of hits.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns number of probes that didn't find position.
+     *
+     * @return number of misses.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns number of stores that overwrote another position.
+     *
+     * @return number of collisions.
+     */
+    public long getCollisions() {
+        return collisions.sum();
+    }
+
+    /**
+     * Returns number of entries in this table.
+     *
+     * @return table capacity.
+     */
+    public int getCapacity() {
+        return table.length / 2;
+    }
+
+    @Override
+    public String toString() {
+        return "TranspositionTable " + getCapacity() + " entries (hits = "
+                + getHits() + ", misses = " + getMisses() + ", collisions = "
+                + getCollisions() + ")";
+    }
+
+}
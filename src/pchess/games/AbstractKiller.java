@@ -1,11 +1,17 @@
 package pchess.games;
 
+import java.util.function.BooleanSupplier;
 import pchess.core.ChessBoard;
+import pchess.core.Movement;
 import pchess.core.Piece;
 import pchess.core.Square;
+import pchess.core.enums.Difficulty;
 import pchess.core.enums.PieceColor;
 import pchess.core.enums.PieceType;
 import pchess.core.enums.PlayerType;
+import pchess.engine.SearchLimits;
+import pchess.solver.KillerKnightBitbase;
+import pchess.solver.ProofNumberSearch;
 
 /**
  * This abstract class defines common behavior to killer games serie. Killer
@@ -67,6 +73,29 @@ public abstract class AbstractKiller extends PreChessGame {
      */
     private final int numberOfDiamonds;
 
+    /**
+     * Winner messages, made once so that search doesn't build strings:
+     * killer captured by black, by white, all white diamonds captured and
+     * all black diamonds captured.
+     */
+    private final String[] winnerMessages;
+
+    /**
+     * Squares of white diamonds, as internal row * 8 + internal column. Only
+     * defined in Killer Knight, where endgame table is used.
+     */
+    private int[] whiteSquares;
+
+    /**
+     * Squares of black diamonds. Only defined in Killer Knight.
+     */
+    private int[] blackSquares;
+
+    /**
+     * Proof-number searches of forced wins, for white and black.
+     */
+    private final ProofNumberSearch[] proofSearch = new ProofNumberSearch[2];
+
     /**
      * Constructor. Makes a killer game.
      *
@@ -81,6 +110,11 @@ public abstract class AbstractKiller extends PreChessGame {
         super(p1, p2, name);
         this.killer = killer;
         this.numberOfDiamonds = numberOfDiamonds;
+        winnerMessages = new String[]{
+            "black " + killer + " captured white " + killer + ".",
+            "white " + killer + " captured black " + killer + ".",
+            "black " + killer + " captured all white diamonds.",
+            "white " + killer + " captured all black diamonds."};
         chessBoard = new ChessBoard();
 
     }
@@ -142,21 +176,31 @@ public abstract class AbstractKiller extends PreChessGame {
         blackKiller = chessBoard.getPiece("h8");
         blackPlayer.setPieces(chessBoard.getBlackPieces());
 
+        if (killer == PieceType.KNIGHT) {
+            whiteSquares = new int[numberOfDiamonds];
+            blackSquares = new int[numberOfDiamonds];
+            for (int i = 1; i <= numberOfDiamonds; i++) {
+                Square w = chessBoard.getWhitePieces()[i].getSquare();
+                Square b = chessBoard.getBlackPieces()[i].getSquare();
+                whiteSquares[i - 1] = w.getInternalRow() * 8 + w.getInternalColumn();
+                blackSquares[i - 1] = b.getInternalRow() * 8 + b.getInternalColumn();
+            }
+            KillerKnightBitbase.get(whiteSquares, blackSquares);
+        }
+
     }
 
     @Override
     public boolean isGameOver(ChessBoard board) {
         Piece boardWhiteKiller = board.getWhitePieces()[0];
         if (!boardWhiteKiller.isLiving()) {
-            board.setWinner(PieceColor.BLACK, "black " + killer.toString() + " captured white "
-                    + killer.toString() + ".");
+            board.setWinner(PieceColor.BLACK, winnerMessages[0]);
             return true;
         }
 
         Piece boardBlackKiller = board.getBlackPieces()[0];
         if (!boardBlackKiller.isLiving()) {
-            board.setWinner(PieceColor.WHITE, "white " + killer.toString() + " captured black "
-                    + killer.toString() + ".");
+            board.setWinner(PieceColor.WHITE, winnerMessages[1]);
             return true;
         }
 
@@ -173,12 +217,12 @@ public abstract class AbstractKiller extends PreChessGame {
         }
 
         if (whiteDiamonds == 0) {
-            board.setWinner(PieceColor.BLACK, "black " + killer.toString() + " captured all white diamonds.");
+            board.setWinner(PieceColor.BLACK, winnerMessages[2]);
             return true;
         }
 
         if (blackDiamonds == 0) {
-            board.setWinner(PieceColor.WHITE, "white " + killer.toString() + " captured all black diamonds.");
+            board.setWinner(PieceColor.WHITE, winnerMessages[3]);
             return true;
         }
 
@@ -251,6 +295,114 @@ public abstract class AbstractKiller extends PreChessGame {
         return 100 * c + 20 * a - 100 * m - 20 * d;
     }
 
+    /**
+     * Returns value of a piece type. Killer piece is worth more than any
+     * other piece, since capturing it ends game, and a diamond is worth
+     * one hundred, as in {@code evaluate}.
+     * 
+     * @param type piece type.
+     * @return piece type value.
+     */
+    @Override
+    public int getPieceValue(PieceType type) {
+        if (type == killer) {
+            return 1000;
+        }
+        if (type == PieceType.DIAMOND) {
+            return 100;
+        }
+        return super.getPieceValue(type);
+    }
+
+    /**
+     * Returns endgame table of this game.
+     * 
+     * @return endgame table, or {@code null} if this game has no table or it
+     * is not ready yet.
+     */
+    private KillerKnightBitbase getBitbase() {
+        return (whiteSquares == null ? null
+                : KillerKnightBitbase.get(whiteSquares, blackSquares));
+    }
+
+    /**
+     * Returns a movement from endgame table or, if position is not in table,
+     * first movement of a forced win proved by proof-number search.
+     * 
+     * @param board chessboard with position.
+     * @return best movement, defined in {@code board}, or {@code null} if
+     * no forced win is known.
+     */
+    @Override
+    public Movement findPerfectMove(ChessBoard board) {
+        return findPerfectMove(board, 0, () -> false);
+    }
+
+    /**
+     * Returns a movement from endgame table or, if position is not in table,
+     * first movement of a forced win proved by proof-number search before
+     * deadline or stop condition.
+     */
+    @Override
+    public Movement findPerfectMove(ChessBoard board, long deadline, BooleanSupplier stop) {
+        KillerKnightBitbase bb = getBitbase();
+        Movement move = (bb == null ? null : bb.bestMove(board));
+        if (move != null) {
+            return move;
+        }
+        int c = (board.getCurrentPlayer() == PieceColor.WHITE ? 0 : 1);
+        if (proofSearch[c] == null) {
+            proofSearch[c] = new ProofNumberSearch(this, 1 << 16);
+        }
+        return proofSearch[c].findWin(board, deadline, stop);
+    }
+
+    /**
+     * Returns score of a Killer Knight position decided by endgame table.
+     * Score is the one search gives to the end of game, at distance from
+     * root where it happens.
+     * 
+     * @param board chessboard with position, where game is not over.
+     * @param ply distance from search root.
+     * @return position score for player to move, or {@code NO_SCORE} if
+     * position is not decided by table.
+     */
+    @Override
+    public int probeScore(ChessBoard board, int ply) {
+        KillerKnightBitbase bb = getBitbase();
+        int value = (bb == null ? -1 : bb.probe(board));
+        if (value <= 0) {
+            return NO_SCORE;
+        }
+        int score = 1000 + ply + KillerKnightBitbase.getDistance(value);
+        return (KillerKnightBitbase.isWin(value) ? score : -score);
+    }
+
+    /**
+     * Returns true, since in killer games a hanging diamond or killer changes
+     * evaluation a lot, so captures are searched after leaf positions.
+     * 
+     * @return true.
+     */
+    @Override
+    public boolean useQuiescence() {
+        return true;
+    }
+
+    /**
+     * Each diamond is a capture target, so more diamonds make quiescence
+     * searches larger: 8 diamonds take difficulty time, 12 diamonds take a
+     * quarter more and 16 diamonds half more.
+     */
+    @Override
+    public SearchLimits getSearchLimits(Difficulty difficulty) {
+        if (getSearchLimits() != null) {
+            return getSearchLimits();
+        }
+        return new SearchLimits(difficulty.getSearchTime() * (numberOfDiamonds + 8) / 16, 0,
+                SearchLimits.MAX_DEPTH);
+    }
+
     /**
      * Returns number of diamonds for each player.
      * 
@@ -260,4 +412,13 @@ public abstract class AbstractKiller extends PreChessGame {
         return numberOfDiamonds;
     }
 
+    /**
+     * Variant includes number of diamonds, since each number has its own
+     * diamond map.
+     */
+    @Override
+    public String getVariant() {
+        return super.getVariant() + " " + numberOfDiamonds;
+    }
+
 }
@@ -23,8 +23,8 @@ public class BishopAgainstPawn extends MinorPieceAgainstPawn {
 
     @Override
     public PreChessGame newGame() {
-        return new BishopAgainstPawn(whitePlayer.getPlayerType(),
-                blackPlayer.getPlayerType(), getMinorPieceColor());
+        return copySettings(new BishopAgainstPawn(whitePlayer.getPlayerType(),
+                blackPlayer.getPlayerType(), getMinorPieceColor()));
     }
 
 }
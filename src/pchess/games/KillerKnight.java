@@ -20,7 +20,7 @@ public class KillerKnight extends AbstractKiller{
 
     @Override
     public PreChessGame newGame(){
-        return new KillerKnight(whitePlayer.getPlayerType(),
-                blackPlayer.getPlayerType(), getNumberOfDiamonds());
+        return copySettings(new KillerKnight(whitePlayer.getPlayerType(),
+                blackPlayer.getPlayerType(), getNumberOfDiamonds()));
     }    
 }
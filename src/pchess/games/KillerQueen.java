@@ -21,8 +21,8 @@ public class KillerQueen extends AbstractKiller {
 
     @Override
     public PreChessGame newGame() {
-        return new KillerQueen(whitePlayer.getPlayerType(),
-                blackPlayer.getPlayerType(), getNumberOfDiamonds());
+        return copySettings(new KillerQueen(whitePlayer.getPlayerType(),
+                blackPlayer.getPlayerType(), getNumberOfDiamonds()));
     }
 
 }
@@ -21,8 +21,8 @@ public class KillerRook extends AbstractKiller {
 
     @Override
     public PreChessGame newGame(){
-        return new KillerRook(whitePlayer.getPlayerType(),
-                blackPlayer.getPlayerType(), getNumberOfDiamonds());
+        return copySettings(new KillerRook(whitePlayer.getPlayerType(),
+                blackPlayer.getPlayerType(), getNumberOfDiamonds()));
     }
     
 }
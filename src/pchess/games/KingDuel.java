@@ -1,9 +1,11 @@
 package pchess.games;
 
 import pchess.core.ChessBoard;
+import pchess.core.Movement;
 import pchess.core.Piece;
 import pchess.core.enums.PieceColor;
 import pchess.core.enums.PlayerType;
+import pchess.solver.KingDuelSolver;
 
 /**
  * King Duel game.
@@ -15,6 +17,11 @@ public class KingDuel extends PreChessGame {
      */
     private final int maxMov;
 
+    /**
+     * Message shown when move limit is reached.
+     */
+    private final String limitMessage;
+
     /**
      * Constructor. Makes a new King Duel Pawn Game.
      *
@@ -26,6 +33,7 @@ public class KingDuel extends PreChessGame {
         super(p1, p2, "King Duel");
         chessBoard = new ChessBoard();
         this.maxMov = maxMov;
+        limitMessage = "black king blocks white king after " + maxMov + " movements";
     }
 
     @Override
@@ -45,9 +53,8 @@ public class KingDuel extends PreChessGame {
     @Override
     public boolean isGameOver(ChessBoard board){
         
-        if(getMovementCount() == maxMov){
-            board.setWinner(PieceColor.BLACK, "black king blocks white king after "
-            + maxMov + " movements");
+        if(board.getPly() / 2 >= maxMov){
+            board.setWinner(PieceColor.BLACK, limitMessage);
             return true;
         }
         
@@ -61,10 +68,32 @@ public class KingDuel extends PreChessGame {
         return false;
     }
 
+    /**
+     * Position key includes ply, since game result depends on number of
+     * movements made.
+     */
+    @Override
+    public long getPositionKey(ChessBoard board) {
+        return board.getHash() ^ (board.getPly() * 0x9E3779B97F4A7C15L);
+    }
+
+    /**
+     * Variant includes move limit, since game result depends on it.
+     */
+    @Override
+    public String getVariant() {
+        return super.getVariant() + " " + maxMov;
+    }
+
+    @Override
+    public Movement findPerfectMove(ChessBoard board) {
+        return KingDuelSolver.bestMove(board, maxMov);
+    }
+
     @Override
     public PreChessGame newGame() {
-        return new KingDuel(whitePlayer.getPlayerType(),
-                blackPlayer.getPlayerType(), maxMov);
+        return copySettings(new KingDuel(whitePlayer.getPlayerType(),
+                blackPlayer.getPlayerType(), maxMov));
     }
     
     @Override
@@ -24,8 +24,8 @@ public class KnightAgainstPawn extends MinorPieceAgainstPawn {
 
     @Override
     public PreChessGame newGame(){
-        return new KnightAgainstPawn(whitePlayer.getPlayerType(),
-                blackPlayer.getPlayerType(), getMinorPieceColor());
+        return copySettings(new KnightAgainstPawn(whitePlayer.getPlayerType(),
+                blackPlayer.getPlayerType(), getMinorPieceColor()));
     }
     
 }
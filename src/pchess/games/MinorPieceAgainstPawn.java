@@ -1,11 +1,13 @@
 package pchess.games;
 
 import pchess.core.ChessBoard;
+import pchess.core.Movement;
 import pchess.core.Piece;
 import pchess.core.Player;
 import pchess.core.enums.PieceColor;
 import pchess.core.enums.PieceType;
 import pchess.core.enums.PlayerType;
+import pchess.solver.MinorPieceTablebase;
 
 /**
  * This abstract class implements common roles to games "Bishops Against Pawns"
@@ -33,6 +35,11 @@ public abstract class MinorPieceAgainstPawn extends PreChessGame {
      */
     private final char[] columns;
 
+    /**
+     * Messages shown when all pawns or all minor pieces are captured.
+     */
+    private final String pawnsCapturedMessage, minorsCapturedMessage;
+
     /**
      * Constructor. Makes a new Minor Piece Against Pawn Game.
      *
@@ -59,6 +66,8 @@ public abstract class MinorPieceAgainstPawn extends PreChessGame {
         }
 
         this.columns = columns;
+        pawnsCapturedMessage = minorPiece + "s captured all pawns.";
+        minorsCapturedMessage = "Pawns captured all " + minorPiece + "s.";
     }
 
     @Override
@@ -131,14 +140,12 @@ public abstract class MinorPieceAgainstPawn extends PreChessGame {
         }
         
         if(nPawns == 0){
-            board.setWinner(minor[0].getPieceColor(),
-                    minorPiece.toString() + "s captured all pawns.");
+            board.setWinner(minor[0].getPieceColor(), pawnsCapturedMessage);
             return true;
         }
         
         if(nMinor == 0){
-            board.setWinner(pawns[0].getPieceColor(),
-                    "Pawns captured all " + minorPiece.toString() + "s.");
+            board.setWinner(pawns[0].getPieceColor(), minorsCapturedMessage);
             return true;
         }
         
@@ -229,6 +236,19 @@ public abstract class MinorPieceAgainstPawn extends PreChessGame {
         return nPawns*pawnVal + nMinor*minorVal;
     }
     
+    /**
+     * Returns best movement from minor piece tablebase, if its file was
+     * generated.
+     * 
+     * @param board chessboard with position.
+     * @return best movement, or {@code null} if tablebase is not available.
+     */
+    @Override
+    public Movement findPerfectMove(ChessBoard board) {
+        MinorPieceTablebase tb = MinorPieceTablebase.get(minorPiece);
+        return (tb == null ? null : tb.bestMove(board));
+    }
+    
     /**
      * Returns minor piece color.
      * 
@@ -238,4 +258,13 @@ public abstract class MinorPieceAgainstPawn extends PreChessGame {
         return minorPieceColor;
     }
 
+    /**
+     * Variant includes minor piece color, since each color has its own start
+     * position.
+     */
+    @Override
+    public String getVariant() {
+        return super.getVariant() + " " + minorPieceColor.name().toLowerCase();
+    }
+
 }
@@ -1,10 +1,15 @@
 package pchess.games;
 
+import java.util.function.BooleanSupplier;
 import pchess.core.ChessBoard;
+import pchess.core.Movement;
 import pchess.core.Pawn;
 import pchess.core.Piece;
+import pchess.core.enums.Difficulty;
 import pchess.core.enums.PieceColor;
 import pchess.core.enums.PlayerType;
+import pchess.engine.SearchLimits;
+import pchess.solver.PawnBattleSolver;
 
 /**
  * Pawn battle game.
@@ -56,17 +61,17 @@ public class PawnBattle extends PreChessGame{
             return true;
         }
         
-        for(Piece wp : getLivingPieces(board.getWhitePieces())){
+        for(Piece wp : board.getWhitePieces()){
             Pawn pawn = (Pawn)wp;
-            if(pawn.isPromoted()){
+            if(pawn.isLiving() && pawn.isPromoted()){
                 board.setWinner(PieceColor.WHITE, "white pawn arrives last rank");
                 return true;
             }
         }
         
-        for(Piece bp : getLivingPieces(board.getBlackPieces())){
+        for(Piece bp : board.getBlackPieces()){
             Pawn pawn = (Pawn)bp;
-            if(pawn.isPromoted()){
+            if(pawn.isLiving() && pawn.isPromoted()){
                 board.setWinner(PieceColor.BLACK, "black pawn arrives last rank");
                 return true;
             }
@@ -85,10 +90,43 @@ public class PawnBattle extends PreChessGame{
         return false;
     }
 
+    /**
+     * Narrow chessboards are solved by {@code PawnBattleSolver}, when its
+     * node budget is enough.
+     */
+    @Override
+    public Movement findPerfectMove(ChessBoard board) {
+        return findPerfectMove(board, 0, () -> false);
+    }
+
+    /**
+     * Narrow chessboards are solved by {@code PawnBattleSolver}, when its
+     * node budget and time limit are enough.
+     */
+    @Override
+    public Movement findPerfectMove(ChessBoard board, long deadline, BooleanSupplier stop) {
+        PawnBattleSolver solver = PawnBattleSolver.get(board.getNColumns());
+        return (solver == null ? null : solver.bestMove(board, deadline, stop));
+    }
+
+    /**
+     * Narrower chessboards have fewer movements by ply, and narrow ones are
+     * mostly solved, so search time grows with number of columns: 8 columns
+     * take difficulty time, 4 columns take half.
+     */
+    @Override
+    public SearchLimits getSearchLimits(Difficulty difficulty) {
+        if (getSearchLimits() != null) {
+            return getSearchLimits();
+        }
+        return new SearchLimits(difficulty.getSearchTime() * chessBoard.getNColumns() / 8, 0,
+                SearchLimits.MAX_DEPTH);
+    }
+
     @Override
     public PreChessGame newGame(){
-        return new PawnBattle(whitePlayer.getPlayerType(), 
-        blackPlayer.getPlayerType(), chessBoard.getNColumns());
+        return copySettings(new PawnBattle(whitePlayer.getPlayerType(), 
+        blackPlayer.getPlayerType(), chessBoard.getNColumns()));
     }
     
     @Override
@@ -108,11 +146,14 @@ public class PawnBattle extends PreChessGame{
             opponentColor = PieceColor.WHITE;
         }
         
-        if(countLivingPieces(thisPawns) == 0){
+        int thisCount = countLivingPieces(thisPawns);
+        int opponentCount = countLivingPieces(opponentPawns);
+        
+        if(thisCount == 0){
             return -1000;
         }
         
-        if(countLivingPieces(opponentPawns) == 0){
+        if(opponentCount == 0){
             return 1000;
         }
         
@@ -124,19 +165,16 @@ public class PawnBattle extends PreChessGame{
             return 1000;
         }
         
-        int thisCount = getLivingPieces(thisPawns).length;
-        int opponentCount = getLivingPieces(opponentPawns).length;
-        
-        for(Piece piece : getLivingPieces(thisPawns)){
+        for(Piece piece : thisPawns){
             Pawn pawn = (Pawn)piece;
-            if(pawn.isPromoted()){
+            if(pawn.isLiving() && pawn.isPromoted()){
                 return 1000;
             }
         }
         
-        for(Piece piece : getLivingPieces(opponentPawns)){
+        for(Piece piece : opponentPawns){
             Pawn pawn = (Pawn)piece;
-            if(pawn.isPromoted()){
+            if(pawn.isLiving() && pawn.isPromoted()){
                 return -1000;
             }
         }        
@@ -1,17 +1,28 @@
 package pchess.games;
 
+import java.util.function.BooleanSupplier;
 import pchess.core.ChessBoard;
 import pchess.core.ComputerPlayer;
+import pchess.core.Movement;
 import pchess.core.Piece;
+import pchess.core.PositionSnapshot;
 import pchess.core.enums.PieceColor;
 import pchess.core.Player;
+import pchess.core.enums.Difficulty;
+import pchess.core.enums.PieceType;
 import pchess.core.enums.PlayerType;
+import pchess.engine.SearchLimits;
 
 /**
  * Super class for all prechessgames.
  */
 public abstract class PreChessGame {
 
+    /**
+     * Score returned by {@code probeScore} when position score is not known.
+     */
+    public static final int NO_SCORE = Integer.MIN_VALUE;
+
     /**
      * Chessboard.
      */
@@ -47,6 +58,17 @@ public abstract class PreChessGame {
      */
     private int countMove;
 
+    /**
+     * Limits for computer player search in this game, or {@code null} to use
+     * difficulty limits.
+     */
+    private SearchLimits searchLimits;
+
+    /**
+     * Snapshot of current position, published after each movement.
+     */
+    private volatile PositionSnapshot snapshot;
+
     /**
      * Constructor. Initiates a prechessgame.
      *
@@ -61,13 +83,13 @@ public abstract class PreChessGame {
         if (p1 == PlayerType.HUMAN) {
             whitePlayer = new Player(PieceColor.WHITE, this);
         } else {
-            whitePlayer = new ComputerPlayer(PieceColor.WHITE, this);
+            whitePlayer = ComputerPlayer.newComputerPlayer(PieceColor.WHITE, this);
         }
 
         if (p2 == PlayerType.HUMAN) {
             blackPlayer = new Player(PieceColor.BLACK, this);
         } else {
-            blackPlayer = new ComputerPlayer(PieceColor.BLACK, this);
+            blackPlayer = ComputerPlayer.newComputerPlayer(PieceColor.BLACK, this);
         }
 
         whitePlayer.setOpponent(blackPlayer);
@@ -161,6 +183,7 @@ public abstract class PreChessGame {
     public void startGame() {
         startPlayerPieces();
         whitePlayer.gainMove();
+        publishSnapshot();
     }
 
     /**
@@ -171,6 +194,25 @@ public abstract class PreChessGame {
         currentPlayer = currentPlayer.getOpponent();
         chessBoard.passMoveTo(currentPlayer);
         countMove++;
+        publishSnapshot();
+    }
+
+    /**
+     * Publishes a snapshot of current position, checking whether game is
+     * over.
+     */
+    private void publishSnapshot() {
+        snapshot = new PositionSnapshot(chessBoard, isGameOver(chessBoard));
+    }
+
+    /**
+     * Returns snapshot of position after last movement. Snapshot is
+     * immutable, so it can be read by any thread while game is played.
+     *
+     * @return position snapshot, or {@code null} if game was not started.
+     */
+    public PositionSnapshot getSnapshot() {
+        return snapshot;
     }
 
     /**
@@ -192,12 +234,26 @@ public abstract class PreChessGame {
     abstract public boolean isGameOver(ChessBoard board);
 
     /**
-     * Returns a new instance of this Pre Chess Game.
+     * Returns a new instance of this Pre Chess Game. Settings that are not
+     * game rules, such as search limits, are copied with
+     * {@code copySettings}.
      *
      * @return a new instance of this Pre Chess Game.
      */
     abstract public PreChessGame newGame();
 
+    /**
+     * Copies settings of this game that are not game rules (search limits
+     * set with {@code setSearchLimits}) to a new game of same variant.
+     *
+     * @param game new game.
+     * @return new game.
+     */
+    protected PreChessGame copySettings(PreChessGame game) {
+        game.searchLimits = searchLimits;
+        return game;
+    }
+
     /**
      * Returns winner message.
      *
@@ -216,6 +272,136 @@ public abstract class PreChessGame {
      */
     abstract public int evaluate(ChessBoard board);
 
+    /**
+     * Returns value of a piece type in this game, in the same scale used by
+     * {@code evaluate}. This method is used by AI to try best captures first.
+     * By default, a pawn is worth 100.
+     * 
+     * @param type piece type.
+     * @return piece type value.
+     */
+    public int getPieceValue(PieceType type) {
+        return 100 * type.getValue();
+    }
+
+    /**
+     * Returns a description of game variant: positions with same key in games
+     * with same variant must have same rules and evaluation. It is used to
+     * keep analysis of different variants apart. By default, it is game name
+     * and chessboard size.
+     * 
+     * @return game variant.
+     */
+    public String getVariant() {
+        return name + " " + chessBoard.getNRows() + "x" + chessBoard.getNColumns();
+    }
+
+    /**
+     * Returns a key that identifies a position in searches, such as
+     * transposition table searches. Key must include everything that game
+     * rules depend on; by default, it is chessboard hash.
+     * 
+     * @param board chessboard with position.
+     * @return position key.
+     */
+    public long getPositionKey(ChessBoard board) {
+        return board.getHash();
+    }
+
+    /**
+     * Returns a movement known to be best in a position, for instance from a
+     * solved game table, so that computer doesn't need to search it. By
+     * default, no movement is known.
+     * 
+     * @param board chessboard with position.
+     * @return best movement, defined in {@code board}, or {@code null} if
+     * best movement is not known.
+     */
+    public Movement findPerfectMove(ChessBoard board) {
+        return null;
+    }
+
+    /**
+     * Returns a movement known to be best in a position, as
+     * {@code findPerfectMove(ChessBoard)} does, giving up when a deadline is
+     * reached or when search must stop. Games that find perfect movements
+     * by searching (not only by table lookup) override this method. By
+     * default, {@code findPerfectMove(ChessBoard)} is returned.
+     * 
+     * @param board chessboard with position.
+     * @param deadline {@code System.nanoTime} value when search must give
+     * up, or 0 if there is no time limit.
+     * @param stop returns true when search must give up, for instance when
+     * computer player is cancelled.
+     * @return best movement, defined in {@code board}, or {@code null} if
+     * best movement is not known or search gave up.
+     */
+    public Movement findPerfectMove(ChessBoard board, long deadline, BooleanSupplier stop) {
+        return findPerfectMove(board);
+    }
+
+    /**
+     * Returns exact score of a position known from a solved game table, so
+     * that search doesn't need to go on from it. Score must be the one search
+     * would find for perfect play from this position. By default, no score is
+     * known.
+     * 
+     * @param board chessboard with position, where game is not over.
+     * @param ply distance from search root.
+     * @return position score for player to move, or {@code NO_SCORE} if it
+     * is not known.
+     */
+    public int probeScore(ChessBoard board, int ply) {
+        return NO_SCORE;
+    }
+
+    /**
+     * Returns true if AI must extend search with captures at leaf positions
+     * (quiescence search). By default, leaf positions are only evaluated.
+     * 
+     * @return true if quiescence search is used in this game.
+     */
+    public boolean useQuiescence() {
+        return false;
+    }
+
+    /**
+     * Returns limits for computer player search in this game. Unless limits
+     * were set with {@code setSearchLimits}, search time is defined by
+     * difficulty level. Games override this method to adapt difficulty time
+     * to their size.
+     * 
+     * @param difficulty game difficulty.
+     * @return search limits.
+     */
+    public SearchLimits getSearchLimits(Difficulty difficulty) {
+        if (searchLimits != null) {
+            return searchLimits;
+        }
+        return new SearchLimits(difficulty.getSearchTime(), 0,
+                SearchLimits.MAX_DEPTH);
+    }
+
+    /**
+     * Returns limits set for computer player search in this game.
+     * 
+     * @return search limits, or {@code null} if difficulty limits are used.
+     */
+    public SearchLimits getSearchLimits() {
+        return searchLimits;
+    }
+
+    /**
+     * Sets limits for computer player search in this game, used instead of
+     * difficulty limits.
+     * 
+     * @param searchLimits search limits, or {@code null} to use difficulty
+     * limits.
+     */
+    public void setSearchLimits(SearchLimits searchLimits) {
+        this.searchLimits = searchLimits;
+    }
+
     /**
      * Returns number of living pieces.
      * 
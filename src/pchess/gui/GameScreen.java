@@ -8,6 +8,7 @@ import java.awt.Font;
 import java.awt.FontMetrics;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.Stroke;
 import java.awt.event.ComponentAdapter;
@@ -15,13 +16,21 @@ import java.awt.event.ComponentEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.image.BufferedImage;
+import java.lang.reflect.InvocationTargetException;
 import java.net.URL;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
 import javax.imageio.ImageIO;
 import javax.swing.JPanel;
-import pchess.core.Piece;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import pchess.core.ComputerPlayer;
+import pchess.core.Move;
+import pchess.core.Movement;
 import pchess.core.Player;
-import pchess.core.Square;
-import pchess.core.enums.SquareType;
+import pchess.core.PositionSnapshot;
+import pchess.core.enums.PieceColor;
 import pchess.games.PreChessGame;
 
 /**
@@ -76,9 +85,18 @@ public class GameScreen extends JPanel {
     private String[] columns;
 
     /**
-     * Controller variable to wait human player do move.
+     * Minimum time, in milliseconds, from start of a computer turn until its
+     * movement is shown. Default value is taken from system property
+     * {@code pchess.delay}; 0 shows computer movements as soon as they are
+     * found, to play computer against computer without pauses.
      */
-    private boolean waitingPlayerToMove;
+    private static long moveDelay = Math.max(0, Long.getLong("pchess.delay", 1000));
+
+    /**
+     * Movements chosen by human player, packed by {@code Move}, handed from
+     * mouse listener to game motor.
+     */
+    private final BlockingQueue<Integer> humanMoves;
 
     /**
      * Enum that defines game states.
@@ -88,9 +106,15 @@ public class GameScreen extends JPanel {
     }
 
     /**
-     * Current game state.
+     * Current game state, changed only in event dispatch thread.
      */
-    private GameState gameState;
+    private volatile GameState gameState;
+
+    /**
+     * Time, in milliseconds, without resize events before piece images are
+     * derived to new square size.
+     */
+    private static final int RESIZE_DELAY = 150;
 
     /**
      * Stroke to draw a 'X' over attacked pieces.
@@ -113,14 +137,9 @@ public class GameScreen extends JPanel {
     private int xs, ys, xsf, ysf; // chessboard squares limit
 
     /**
-     * List of players in the game.
-     */
-    private final Player[] players;
-
-    /**
-     * Piece that is selected.
+     * Square index of selected piece, or -1 if no piece is selected.
      */
-    private Piece selectedPiece;
+    private int selectedSquare;
 
     /**
      * Object to draw piece images.
@@ -133,9 +152,38 @@ public class GameScreen extends JPanel {
     private final GameWindow gameWindow;
 
     /**
-     * Thread to run game motor.
+     * Session of current game, or {@code null} if no game was started.
+     */
+    private GameSession session;
+
+    /**
+     * Timer that derives piece images when screen stops being resized. While
+     * screen is resized, old piece images are scaled to square size.
+     */
+    private final Timer resizeTimer;
+
+    /**
+     * Image with background, chessboard border, squares and coordinates.
+     * Pieces and movement markers are drawn over it in each paint. It is
+     * {@code null} when it must be drawn again: screen size, colors,
+     * coordinates or chessboard geometry changed.
+     */
+    private BufferedImage boardLayer;
+
+    /**
+     * Number of game paints since this screen was made.
      */
-    private Thread thread;
+    private long paintCount;
+
+    /**
+     * Total time of game paints, in nanoseconds.
+     */
+    private long paintTime;
+
+    /**
+     * Time of last game paint, in nanoseconds.
+     */
+    private long lastPaintTime;
 
     /**
      * Constructos. Makes this screen.
@@ -164,9 +212,7 @@ public class GameScreen extends JPanel {
 
         isCoordinateDrawn = true;
 
-        players = new Player[2];
-
-        selectedPiece = null;
+        selectedSquare = -1;
 
         stroke = new BasicStroke(5, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND);
 
@@ -175,15 +221,26 @@ public class GameScreen extends JPanel {
         addMouseListener(listener);
         addMouseMotionListener(listener);
 
+        resizeTimer = new Timer(RESIZE_DELAY, e -> {
+            if (game != null) {
+                pieceImage.deriveImages(sqS);
+                repaint();
+            }
+        });
+        resizeTimer.setRepeats(false);
+
         addComponentListener(new ComponentAdapter() {
             @Override
             public void componentResized(ComponentEvent e) {
-                pieceImage.deriveImages(sqS);
+                if (game != null) {
+                    initScreen();
+                    resizeTimer.restart();
+                }
                 repaint();
             }
         });
 
-        waitingPlayerToMove = false;
+        humanMoves = new ArrayBlockingQueue<>(1);
 
         gameState = GameState.FINISHED;
 
@@ -193,6 +250,7 @@ public class GameScreen extends JPanel {
      * Initiates variable coordinates values to draw this GameScreen.
      */
     private void initScreen() {
+        boardLayer = null;
         sW = getWidth();
         sH = getHeight();
 
@@ -219,6 +277,14 @@ public class GameScreen extends JPanel {
      */
     public void setGame(PreChessGame game) {
 
+        GameSession previous = session;
+        if (previous != null) {
+            previous.cancel();
+            session = null;
+        }
+        gameState = GameState.FINISHED;
+        selectedSquare = -1;
+
         this.game = game;
 
         if (game == null) {
@@ -246,15 +312,27 @@ public class GameScreen extends JPanel {
             columns[i] = String.valueOf(c);
         }
 
-        players[0] = game.getWhitePlayer();
-        players[1] = game.getBlackPlayer();
 
         initScreen();
         pieceImage.deriveImages(sqS);
         repaint();
 
-        thread = new Thread(new GameMotor());
-        thread.start();
+        session = new GameSession(game, new GameMotor(game), previous);
+    }
+
+    /**
+     * Sets minimum time from start of a computer turn until its movement is
+     * shown.
+     *
+     * @param delay time in milliseconds, 0 to show computer movements as
+     * soon as they are found.
+     * @throws IllegalArgumentException if delay is negative.
+     */
+    public static void setMoveDelay(long delay) {
+        if (delay < 0) {
+            throw new IllegalArgumentException("Delay can't be negative");
+        }
+        moveDelay = delay;
     }
 
     /**
@@ -264,6 +342,7 @@ public class GameScreen extends JPanel {
      */
     public void setChessboardColor(Color cbColor) {
         this.cbColor = cbColor;
+        boardLayer = null;
     }
 
     /**
@@ -273,6 +352,7 @@ public class GameScreen extends JPanel {
      */
     public void setLightSquareColor(Color lsColor) {
         this.lsColor = lsColor;
+        boardLayer = null;
     }
 
     /**
@@ -282,6 +362,20 @@ public class GameScreen extends JPanel {
      */
     public void setDarkSquareColor(Color dsColor) {
         this.dsColor = dsColor;
+        boardLayer = null;
+    }
+
+    /**
+     * Sets background color. Board layer is drawn again, as it is filled
+     * with background color.
+     *
+     * @param bg new background color.
+     */
+    @Override
+    public void setBackground(Color bg) {
+        super.setBackground(bg);
+        boardLayer = null;
+        repaint();
     }
 
     /**
@@ -291,6 +385,7 @@ public class GameScreen extends JPanel {
      */
     public void setCoordinateDrawing(boolean isCoordinateDrawn) {
         this.isCoordinateDrawn = isCoordinateDrawn;
+        boardLayer = null;
     }
 
     /**
@@ -311,35 +406,91 @@ public class GameScreen extends JPanel {
         return game;
     }
 
+    /**
+     * Returns number of game paints since this screen was made.
+     *
+     * @return number of paints.
+     */
+    public long getPaintCount() {
+        return paintCount;
+    }
+
+    /**
+     * Returns total time of game paints.
+     *
+     * @return paint time in nanoseconds.
+     */
+    public long getPaintTime() {
+        return paintTime;
+    }
+
+    /**
+     * Returns time of last game paint.
+     *
+     * @return paint time in nanoseconds.
+     */
+    public long getLastPaintTime() {
+        return lastPaintTime;
+    }
+
     /**
      * Shows end game dialog.
      */
     public void endGame() {
-        EndGameDialog endDialog = new EndGameDialog(gameWindow, game.getChessBoard().getWinner());
+        EndGameDialog endDialog = new EndGameDialog(gameWindow, game.getSnapshot().getWinner());
         endDialog.setVisible(true);
     }
 
     @Override
     public void paintComponent(Graphics g) {
 
-        super.paintComponent(g);
-
         if (game == null) {
+            super.paintComponent(g);
             int xi = (getWidth() - startingImage.getWidth()) / 2;
             int yi = (getHeight() - startingImage.getHeight()) / 2;
             g.drawImage(startingImage, xi, yi, this);
             return;
         }
 
-        initScreen();
+        long start = System.nanoTime();
+        if (getWidth() != sW || getHeight() != sH) {
+            initScreen();
+        }
+        if (boardLayer == null) {
+            boardLayer = drawBoardLayer();
+        }
+        g.drawImage(boardLayer, 0, 0, this);
 
+        PositionSnapshot snapshot = game.getSnapshot();
         Graphics2D g2 = (Graphics2D) g;
         g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
                 RenderingHints.VALUE_ANTIALIAS_ON);
-        drawSquares(g2);
-        drawCoordinates(g2);
-        drawPieces(g2);
-        drawMovements(g2);
+        drawPieces(g2, snapshot);
+        drawMovements(g2, snapshot);
+
+        lastPaintTime = System.nanoTime() - start;
+        paintTime += lastPaintTime;
+        paintCount++;
+    }
+
+    /**
+     * Draws static part of screen: background, chessboard border, squares
+     * and coordinates.
+     *
+     * @return board layer image, of screen size.
+     */
+    private BufferedImage drawBoardLayer() {
+        BufferedImage layer = new BufferedImage(Math.max(1, sW), Math.max(1, sH),
+                BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = layer.createGraphics();
+        g.setColor(getBackground());
+        g.fillRect(0, 0, sW, sH);
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                RenderingHints.VALUE_ANTIALIAS_ON);
+        drawSquares(g);
+        drawCoordinates(g);
+        g.dispose();
+        return layer;
     }
 
     /**
@@ -354,9 +505,7 @@ public class GameScreen extends JPanel {
 
         for (int i = 0; i < nR; i++) {
             for (int j = 0; j < nC; j++) {
-                Square square = game.getChessBoard().getSquare(i, j);
-                SquareType st = square.getSquareType();
-                Color color = (st == SquareType.LIGHT) ? lsColor : dsColor;
+                Color color = ((i + j) % 2 == 0) ? lsColor : dsColor;
                 g.setColor(color);
                 g.fillRect(xs + sqS * j, ys + sqS * i, sqS, sqS);
             }
@@ -397,40 +546,64 @@ public class GameScreen extends JPanel {
     }
 
     /**
-     * Draws pieces.
+     * Draws pieces in squares inside clip area.
      *
      * @param g graphics object.
+     * @param snapshot position to draw.
      */
-    private void drawPieces(Graphics2D g) {
+    private void drawPieces(Graphics2D g, PositionSnapshot snapshot) {
 
-        for (Player player : players) {
-            for (Piece piece : player.getPieces()) {
+        int r0 = 0, c0 = 0, r1 = nR - 1, c1 = nC - 1;
+        Rectangle clip = g.getClipBounds();
+        if (clip != null && sqS > 0) {
+            r0 = Math.max(r0, Math.floorDiv(clip.y - ys, sqS));
+            c0 = Math.max(c0, Math.floorDiv(clip.x - xs, sqS));
+            r1 = Math.min(r1, Math.floorDiv(clip.y + clip.height - 1 - ys, sqS));
+            c1 = Math.min(c1, Math.floorDiv(clip.x + clip.width - 1 - xs, sqS));
+        }
 
-                if (!piece.isLiving()) {
-                    continue;
+        for (int i = r0; i <= r1; i++) {
+            for (int j = c0; j <= c1; j++) {
+                int code = snapshot.getPieceCode(snapshot.index(i, j));
+                if (code >= 0) {
+                    g.drawImage(pieceImage.getPieceImage(code), xs + sqS * j, ys + sqS * i,
+                            sqS, sqS, this);
                 }
+            }
+        }
 
-                Square square = piece.getSquare();
-                int is = square.getInternalRow();
-                int js = square.getInternalColumn();
+    }
 
-                int xr = xs + sqS * js;
-                int yr = ys + sqS * is;
-                g.drawImage(pieceImage.getPieceImage(piece.getPieceCode()), xr, yr, this);
+    /**
+     * Repaints only a square.
+     *
+     * @param square square index.
+     */
+    private void repaintSquare(int square) {
+        repaint(xs + sqS * (square % nC), ys + sqS * (square / nC), sqS, sqS);
+    }
 
-            }
+    /**
+     * Repaints squares marked as destinations of a piece.
+     *
+     * @param snapshot position where piece is selected.
+     * @param square square index of piece.
+     */
+    private void repaintTargets(PositionSnapshot snapshot, int square) {
+        for (int target : snapshot.getTargets(square)) {
+            repaintSquare(target);
         }
-
     }
 
     /**
      * Draws movement markers.
      * 
      * @param g graphics object.
+     * @param snapshot position to draw.
      */
-    private void drawMovements(Graphics2D g) {
+    private void drawMovements(Graphics2D g, PositionSnapshot snapshot) {
 
-        if (selectedPiece == null) {
+        if (selectedSquare < 0) {
             return;
         }
 
@@ -439,14 +612,14 @@ public class GameScreen extends JPanel {
         g.setColor(Color.RED);
         Stroke old = g.getStroke();
         g.setStroke(stroke);
-        selectedPiece.getLegalMoves().stream().forEach((square) -> {
-            int is = square.getInternalRow();
-            int js = square.getInternalColumn();
+        for (int target : snapshot.getTargets(selectedSquare)) {
+            int is = target / nC;
+            int js = target % nC;
 
             int xc = xs + sqS * js + sqS / 20;
             int yc = ys + sqS * is + sqS / 20;
 
-            if (square.isOccupied()) {
+            if (snapshot.isOccupied(target)) {
                 int x1 = xc + d;
                 int y1 = yc + d;
                 int x2 = xc + sqS * 9 / 10 - d;
@@ -460,29 +633,21 @@ public class GameScreen extends JPanel {
                 g.fillOval(xa, ya, sqS / 3, sqS / 3);
 
             }
-        });
+        }
         g.setStroke(old);
     }
 
     /**
-     * Changes controller variable to wait human player to move.
-     * 
-     * @param boo if true, wait human player do move. 
-     */
-    synchronized private void changeWaiting(boolean boo) {
-        waitingPlayerToMove = boo;
-    }
-
-    /**
-     * Inner class to handle mouse events.
+     * Inner class to handle mouse events. Mouse listener reads only position
+     * snapshots, never game chessboard.
      */
     private class GameMouseListener extends MouseAdapter {
 
         @Override
         public void mouseMoved(MouseEvent e) {
 
-            Square square = getSquare(e.getX(), e.getY());
-            if (square == null) {
+            int square = getSquare(e.getX(), e.getY());
+            if (square < 0) {
                 setCursor(Cursor.getDefaultCursor());
                 return;
             }
@@ -492,21 +657,17 @@ public class GameScreen extends JPanel {
                 return;
             }
 
-            if (selectedPiece != null && selectedPiece.isLegalMove(square)) {
+            PositionSnapshot snapshot = game.getSnapshot();
+            if (selectedSquare >= 0 && snapshot.findMove(selectedSquare, square) >= 0) {
                 setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
                 return;
             }
 
-            if (square.isOccupied()) {
-                Piece piece = square.getPiece();
-                Player player = game.getPlayer(piece.getPieceColor());
-                if (player.isHuman() && player.hasMove()) {
-                    if ((selectedPiece == null && piece.isBlocked() == false) || selectedPiece == piece) {
-                        setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
-                        return;
-                    }
+            if (isHumanPiece(snapshot, square)) {
+                if ((selectedSquare < 0 && snapshot.canMove(square)) || selectedSquare == square) {
+                    setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+                    return;
                 }
-
             }
             setCursor(Cursor.getDefaultCursor());
 
@@ -519,103 +680,147 @@ public class GameScreen extends JPanel {
                 return;
             }
 
-            Square square = getSquare(e.getX(), e.getY());
-            if (square == null) {
+            int square = getSquare(e.getX(), e.getY());
+            if (square < 0) {
                 return;
             }
-            if (square.isOccupied()) {
-                Piece piece = square.getPiece();
-                Player player = game.getPlayer(piece.getPieceColor());
-                if (player.isHuman() && player.hasMove()) {
-                    if (selectedPiece == null && piece.isBlocked() == false) {
-                        selectedPiece = piece;
-
-                        repaint();
-                    } else if (selectedPiece == piece) {
-
-                        selectedPiece = null;
-
-                        repaint();
-                    }
-                } else if (selectedPiece != null && selectedPiece.isLegalMove(square)) {
-                    selectedPiece.doMove(square);
-                    changeWaiting(false);
-                    selectedPiece = null;
-                    repaint();
+            PositionSnapshot snapshot = game.getSnapshot();
+            if (isHumanPiece(snapshot, square)) {
+                if (selectedSquare < 0 && snapshot.canMove(square)) {
+                    selectedSquare = square;
+                    repaintTargets(snapshot, square);
+                } else if (selectedSquare == square) {
+                    selectedSquare = -1;
+                    repaintTargets(snapshot, square);
+                }
+            } else if (selectedSquare >= 0) {
+                int move = snapshot.findMove(selectedSquare, square);
+                if (move >= 0) {
+                    humanMoves.offer(move);
                 }
-            } else if (selectedPiece != null && selectedPiece.isLegalMove(square)) {
-                selectedPiece.doMove(square);
-                changeWaiting(false);
-                selectedPiece = null;
-                repaint();
             }
         }
 
+        /**
+         * Returns true if a square has a piece of a human player to move.
+         *
+         * @param snapshot current position.
+         * @param square square index.
+         * @return true if human player can select piece in square.
+         */
+        private boolean isHumanPiece(PositionSnapshot snapshot, int square) {
+            PieceColor pc = snapshot.getPieceColor(square);
+            return pc != null && pc == snapshot.getCurrentPlayer()
+                    && game.getPlayer(pc).isHuman();
+        }
+
         /**
          * Returns square pointed by mouse.
          *
          * @param x mouse x-position.
          * @param y mouse y-position.
-         * @return square pointed by mouse.
+         * @return square index pointed by mouse, or -1 if mouse is out of
+         * chessboard.
          */
-        private Square getSquare(int x, int y) {
+        private int getSquare(int x, int y) {
 
             if (x < xs || x > xsf - 1 || y < ys || y > ysf - 1) {
-                return null;
+                return -1;
             } else {
                 int ci = (x - xs) / sqS;
                 int ri = (y - ys) / sqS;
 
-                Square square = game.getChessBoard().getSquare(ri, ci);
-                return square;
+                return ri * nC + ci;
             }
         }
     }
 
     /**
-     * Inner class to run game motor.
+     * Inner class to run game motor. Motor waits for each movement without
+     * using processor: human movements are handed by mouse listener through
+     * {@code humanMoves} and computer movements are returned by search.
+     * Movements are done, and screen is updated, in event dispatch thread,
+     * only while motor game is shown by this screen. Motor stops when game is
+     * over or when its session is cancelled.
      */
     private class GameMotor implements Runnable {
 
-        @Override
-        public void run() {
-
-            while (true) {
-
-                Player player = game.getCurrentPlayer();
-                if (player.isComputer()) {
-                    gameState = GameState.COMPUTER_TO_MOVE;
-                    player.doMove();
-                    try {
-                        Thread.sleep(1000);
-                    } catch (Exception e) {
+        /**
+         * Game played by this motor.
+         */
+        private final PreChessGame game;
 
-                    }
-                } else {
-                    gameState = GameState.HUMAN_TO_MOVE;
-                    changeWaiting(true);
+        /**
+         * Constructor. Makes a motor for a game.
+         *
+         * @param game game to play.
+         */
+        GameMotor(PreChessGame game) {
+            this.game = game;
+        }
 
-                    while (waitingPlayerToMove) {
-                        if (!waitingPlayerToMove) {
-                            System.out.println("A problem here");
+        @Override
+        public void run() {
+            try {
+                while (!game.getSnapshot().isGameOver()) {
+                    Player player = game.getCurrentPlayer();
+                    Movement move;
+                    if (player.isComputer()) {
+                        long start = System.currentTimeMillis();
+                        setState(GameState.COMPUTER_TO_MOVE);
+                        move = ((ComputerPlayer) player).chooseMove();
+                        long wait = start + moveDelay - System.currentTimeMillis();
+                        if (wait > 0) {
+                            Thread.sleep(wait);
                         }
+                    } else {
+                        humanMoves.clear();
+                        setState(GameState.HUMAN_TO_MOVE);
+                        move = game.getChessBoard().decode(humanMoves.take());
                     }
-
-                }
-                repaint();
-
-                game.passMove();
-
-                if (game.isGameOver()) {
-                    gameState = GameState.FINISHED;
-                    selectedPiece = null;
-                    break;
+                    if (Thread.interrupted()) {
+                        return;
+                    }
+                    SwingUtilities.invokeAndWait(() -> {
+                        if (GameScreen.this.game != game) {
+                            return;
+                        }
+                        PositionSnapshot before = game.getSnapshot();
+                        int packed = game.getChessBoard().encode(move);
+                        move.doMove();
+                        game.passMove();
+                        if (selectedSquare >= 0) {
+                            repaintTargets(before, selectedSquare);
+                            selectedSquare = -1;
+                        }
+                        repaintSquare(Move.from(packed));
+                        repaintSquare(Move.to(packed));
+                    });
                 }
-
+                SwingUtilities.invokeLater(() -> {
+                    if (GameScreen.this.game == game) {
+                        gameState = GameState.FINISHED;
+                        endGame();
+                    }
+                });
+            } catch (InterruptedException | CancellationException e) {
+                // a new game was started
+            } catch (InvocationTargetException e) {
+                throw new IllegalStateException(e.getCause());
             }
+        }
 
-            endGame();
-
+        /**
+         * Changes game state in event dispatch thread.
+         *
+         * @param state new game state.
+         */
+        private void setState(GameState state) {
+            SwingUtilities.invokeLater(() -> {
+                if (GameScreen.this.game == game) {
+                    gameState = state;
+                }
+            });
         }
 
     }
@@ -0,0 +1,197 @@
+package pchess.gui;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import pchess.core.ComputerPlayer;
+import pchess.core.Player;
+import pchess.games.PreChessGame;
+
+/**
+ * A game played in a game screen. Session runs game motor in a thread of an
+ * executor shared by all sessions. When a new game starts, old session is
+ * cancelled: its computer players stop searching and release their memory,
+ * its motor is interrupted and its thread returns to executor, so no thread
+ * keeps playing an abandoned game. New session motor waits, in its own
+ * thread, until old motor finishes, so that games never run together and
+ * event dispatch thread never waits for a motor.
+ */
+public class GameSession {
+
+    /**
+     * Executor that runs game motors. Idle threads are kept for 60 seconds
+     * to run next sessions.
+     */
+    private static final ThreadPoolExecutor MOTORS;
+
+    /**
+     * Number of sessions whose motor is running.
+     */
+    private static final AtomicInteger ACTIVE = new AtomicInteger();
+
+    static {
+        AtomicInteger count = new AtomicInteger();
+        MOTORS = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), r -> {
+                    Thread t = new Thread(r, "pchess-game-" + count.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    /**
+     * Game played in this session.
+     */
+    private final PreChessGame game;
+
+    /**
+     * Signals end of motor.
+     */
+    private final CountDownLatch finished;
+
+    /**
+     * Thread running motor, or {@code null} if motor is not running.
+     */
+    private Thread runner;
+
+    /**
+     * Previous session, whose motor must finish before motor of this
+     * session starts, or {@code null}. It is dropped as soon as it
+     * finishes, so that its game can be garbage collected.
+     */
+    private GameSession previous;
+
+    /**
+     * True if this session was cancelled.
+     */
+    private volatile boolean cancelled;
+
+    /**
+     * Constructor. Makes a session and starts its motor.
+     *
+     * @param game game played in session.
+     * @param motor game motor, which plays game until it is over or its
+     * thread is interrupted.
+     */
+    public GameSession(PreChessGame game, Runnable motor) {
+        this(game, motor, null);
+    }
+
+    /**
+     * Constructor. Makes a session that starts its motor when motor of a
+     * previous session finishes.
+     *
+     * @param game game played in session.
+     * @param motor game motor, which plays game until it is over or its
+     * thread is interrupted.
+     * @param previous previous session, usually just cancelled, or
+     * {@code null}.
+     */
+    public GameSession(PreChessGame game, Runnable motor, GameSession previous) {
+        this.game = game;
+        this.previous = previous;
+        finished = new CountDownLatch(1);
+        MOTORS.execute(() -> {
+            GameSession old;
+            synchronized (this) {
+                runner = Thread.currentThread();
+                old = this.previous;
+                this.previous = null;
+            }
+            ACTIVE.incrementAndGet();
+            try {
+                if (old != null) {
+                    old.join();
+                    old = null;
+                }
+                if (!cancelled) {
+                    motor.run();
+                }
+            } finally {
+                ACTIVE.decrementAndGet();
+                synchronized (this) {
+                    runner = null;
+                    Thread.interrupted();
+                }
+                finished.countDown();
+            }
+        });
+    }
+
+    /**
+     * Returns game played in this session.
+     *
+     * @return session game.
+     */
+    public PreChessGame getGame() {
+        return game;
+    }
+
+    /**
+     * Returns true if this session was cancelled.
+     *
+     * @return true if session is cancelled.
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Cancels this session: computer players stop searching and motor
+     * thread is interrupted. This method doesn't wait for motor to finish;
+     * see {@code join}.
+     */
+    public void cancel() {
+        cancelled = true;
+        for (Player player : new Player[]{game.getWhitePlayer(), game.getBlackPlayer()}) {
+            if (player instanceof ComputerPlayer) {
+                ((ComputerPlayer) player).cancel();
+            }
+        }
+        synchronized (this) {
+            if (runner != null) {
+                runner.interrupt();
+            }
+        }
+    }
+
+    /**
+     * Waits until motor of this session finishes. If calling thread is
+     * interrupted, it keeps waiting and its interrupt status is restored.
+     */
+    public void join() {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                finished.await();
+                break;
+            } catch (InterruptedException ex) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns number of sessions whose motor is running.
+     *
+     * @return number of running sessions.
+     */
+    public static int getActiveSessions() {
+        return ACTIVE.get();
+    }
+
+    /**
+     * Returns number of motor threads alive, running or idle.
+     *
+     * @return number of motor threads.
+     */
+    public static int getThreads() {
+        return MOTORS.getPoolSize();
+    }
+
+}
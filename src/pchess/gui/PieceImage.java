@@ -4,23 +4,54 @@ import java.awt.Color;
 import java.awt.Font;
 import java.awt.FontMetrics;
 import java.awt.Graphics2D;
-import java.awt.Point;
 import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
-import java.util.LinkedList;
+import java.awt.image.WritableRaster;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
 import pchess.core.enums.PieceFont;
 
 /**
  * This class provides image manipulation to format piece images showed in game
  * screen. A piece font set can be used to draw standard chess pieces. Special
  * font is used to draw diamonds.
+ * <p>
+ * Piece images are rasterized in parallel and kept in a least recently used
+ * cache by font and size, so a size already drawn (for instance, while a
+ * window is resized back and forth) is never rasterized again.
  */
 public class PieceImage {
 
+    /**
+     * Number of image sets (one font and size each) kept in cache.
+     */
+    private static final int CACHE_SIZE = 8;
+
+    /**
+     * Number of piece images.
+     */
+    private static final int IMAGES = 14;
+
+    /**
+     * Color of piece interiors and borders.
+     */
+    private static final int WHITE = Color.WHITE.getRGB();
+
+    /**
+     * Neighbour x-offsets used to draw piece borders.
+     */
+    private static final int[] BORDER_X = {1, -1, 0, 0, 1, 1, -1, -1};
+
+    /**
+     * Neighbour y-offsets used to draw piece borders.
+     */
+    private static final int[] BORDER_Y = {0, 0, 1, -1, 1, -1, 1, -1};
+
     /**
      * List of piece images. Piece images are stored as BufferedImage.
      */
-    private final BufferedImage[] images;
+    private volatile BufferedImage[] images;
 
     /**
      * String code to draw each piece image, accordingly piece font.
@@ -33,11 +64,22 @@ public class PieceImage {
      */
     private Font currentFont = PieceFont.CONDFONT.getFont();
 
+    /**
+     * Image sets already drawn, by font and size, in access order.
+     */
+    private final Map<ImageKey, BufferedImage[]> cache;
+
     /**
      * Constructor. Starts piece image list, initialy empty.
      */
     public PieceImage() {
-        images = new BufferedImage[14];
+        images = new BufferedImage[IMAGES];
+        cache = new LinkedHashMap<ImageKey, BufferedImage[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ImageKey, BufferedImage[]> eldest) {
+                return size() > CACHE_SIZE;
+            }
+        };
     }
 
     /**
@@ -62,16 +104,25 @@ public class PieceImage {
     }
 
     /**
-     * Derive piece images based on specified piece font.
+     * Derive piece images based on specified piece font. Images are taken
+     * from cache if they were already drawn with this font and size.
      *
      * @param size square size where piece image will be stay.
      * @param pieceFont piece font to use in drawing piece images. This font is
      * set to {@code currentFont}.
      */
-    public void deriveImages(int size, Font pieceFont) {
-        deriveImages(size, pieceFont, 0, 12);
-        deriveImages(size, PieceFont.DIAMONDFONT.getFont(), 12, 14);
+    public synchronized void deriveImages(int size, Font pieceFont) {
         currentFont = pieceFont;
+        if (size <= 0) {
+            return;
+        }
+        ImageKey key = new ImageKey(pieceFont, size);
+        BufferedImage[] set = cache.get(key);
+        if (set == null) {
+            set = drawImages(size, pieceFont);
+            cache.put(key, set);
+        }
+        images = set;
     }
 
     /**
@@ -86,121 +137,118 @@ public class PieceImage {
     }
 
     /**
-     * Derive piece images based on specified piece font.
+     * Draws all piece images in parallel: pieces with piece font and
+     * diamonds with diamond font.
+     *
      * @param size square size where piece image will be stay.
-     * @param pieceFont piece font to use in drawing piece images. This font is
-     * set to {@code currentFont}.
-     * @param first first image index in {@code images} to be drawn.
-     * @param last last image index in {@code images} to be drawn.
+     * @param pieceFont piece font to use in drawing piece images.
+     * @return piece images, by piece code.
      */
-    private void deriveImages(int size, Font pieceFont, int first, int last) {
-
-        if (size == 0) {
-            return;
-        }
+    private BufferedImage[] drawImages(int size, Font pieceFont) {
         float fontSize = ((float) size) * 0.85f;
         Font pFont = pieceFont.deriveFont(fontSize);
-        FontMetrics fm;
-        for (int i = first; i < last; i++) {
-            images[i] = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
-            Graphics2D g = images[i].createGraphics();
-            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
-                    RenderingHints.VALUE_ANTIALIAS_ON);
-            g.setFont(pFont);
-            g.setColor(Color.BLACK);
-            fm = g.getFontMetrics();
-            int hf = fm.getAscent();
-            int wf = fm.stringWidth(symbolLetters[i]);
-            int x = (size - wf) / 2;
-            int y = (size + hf) / 2;
-            g.drawString(symbolLetters[i], x, y);
-            g.dispose();
-            boolean[][] paintPixels = innerPixels(images[i]);
-
-            int white = Color.WHITE.getRGB();
-            for (int j = 0; j < size; j++) {
-                for (int k = 0; k < size; k++) {
-                    if (paintPixels[j][k]) {
-                        images[i].setRGB(j, k, white);
-                    }
-                }
-            }
-
-            makeImageBorder(images[i]);
+        Font dFont = PieceFont.DIAMONDFONT.getFont().deriveFont(fontSize);
+        BufferedImage[] set = new BufferedImage[IMAGES];
+        IntStream.range(0, IMAGES).parallel().forEach(i
+                -> set[i] = drawImage(size, (i < 12 ? pFont : dFont), symbolLetters[i]));
+        return set;
+    }
 
-        }
+    /**
+     * Draws a piece image: piece symbol in black, with a white interior and
+     * a white border.
+     *
+     * @param size square size where piece image will be stay.
+     * @param font font to draw symbol, already derived to its size.
+     * @param symbol symbol letter.
+     * @return piece image.
+     */
+    private static BufferedImage drawImage(int size, Font font, String symbol) {
+        BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setFont(font);
+        g.setColor(Color.BLACK);
+        FontMetrics fm = g.getFontMetrics();
+        int hf = fm.getAscent();
+        int wf = fm.stringWidth(symbol);
+        int x = (size - wf) / 2;
+        int y = (size + hf) / 2;
+        g.drawString(symbol, x, y);
+        g.dispose();
 
+        WritableRaster raster = image.getRaster();
+        int[] pixels = (int[]) raster.getDataElements(0, 0, size, size, null);
+        fillInnerPixels(pixels, size, size);
+        makeImageBorder(pixels, size, size);
+        raster.setDataElements(0, 0, size, size, pixels);
+        return image;
     }
 
     /**
-     * Define pixels in image that must be colored in white color. Pixels 
-     * inside picture must be colored.
-     * @param image image to be colored
-     * @return boolean double array that defines those pixels to be colored.
+     * Colors in white transparent pixels inside picture: those that can't be
+     * reached from top left pixel through transparent pixels.
+     *
+     * @param pixels image pixels as ARGB, by rows.
+     * @param width image width.
+     * @param height image height.
      */
-    private boolean[][] innerPixels(BufferedImage image) {
+    private static void fillInnerPixels(int[] pixels, int width, int height) {
 
-        boolean[][] pixels = new boolean[image.getWidth()][image.getHeight()];
+        int n = width * height;
+        boolean[] outside = new boolean[n];
+        int[] stack = new int[n];
+        int top = 0;
+        stack[top++] = 0;
+        outside[0] = true;
 
-        for (int i = 0; i < image.getWidth(); i++) {
-            for (int j = 0; j < image.getHeight(); j++) {
-                int color = image.getRGB(i, j);
-                int alpha = (color >> 24) & 0xFF;
-                pixels[i][j] = (alpha == 0);
+        while (top > 0) {
+            int p = stack[--top];
+            int x = p % width;
+            if (x > 0 && !outside[p - 1] && pixels[p - 1] >>> 24 == 0) {
+                outside[p - 1] = true;
+                stack[top++] = p - 1;
             }
-        }
-
-        LinkedList<Point> queue = new LinkedList<>();
-        queue.add(new Point());
-        pixels[0][0] = false;
-
-        while (!queue.isEmpty()) {
-
-            Point p = queue.poll();
-
-            if (p.x > 0 && pixels[p.x - 1][p.y]) {
-                queue.add(new Point(p.x - 1, p.y));
-                pixels[p.x - 1][p.y] = false;
+            if (x < width - 1 && !outside[p + 1] && pixels[p + 1] >>> 24 == 0) {
+                outside[p + 1] = true;
+                stack[top++] = p + 1;
             }
-
-            if (p.x < image.getWidth() - 1 && pixels[p.x + 1][p.y]) {
-                queue.add(new Point(p.x + 1, p.y));
-                pixels[p.x + 1][p.y] = false;
+            if (p >= width && !outside[p - width] && pixels[p - width] >>> 24 == 0) {
+                outside[p - width] = true;
+                stack[top++] = p - width;
             }
-
-            if (p.y > 0 && pixels[p.x][p.y - 1]) {
-                queue.add(new Point(p.x, p.y - 1));
-                pixels[p.x][p.y - 1] = false;
+            if (p < n - width && !outside[p + width] && pixels[p + width] >>> 24 == 0) {
+                outside[p + width] = true;
+                stack[top++] = p + width;
             }
+        }
 
-            if (p.y < image.getHeight() - 1 && pixels[p.x][p.y + 1]) {
-                queue.add(new Point(p.x, p.y + 1));
-                pixels[p.x][p.y + 1] = false;
+        for (int p = 0; p < n; p++) {
+            if (!outside[p] && pixels[p] >>> 24 == 0) {
+                pixels[p] = WHITE;
             }
         }
-
-        return pixels;
     }
 
     /**
      * Draws a white border around picture limits.
-     * @param image image to draw border in.
-     */
-    private void makeImageBorder(BufferedImage image) {
-        int[] x = {1, -1, 0, 0, 1, 1, -1, -1};
-        int[] y = {0, 0, 1, -1, 1, -1, 1, -1};
-        int white = Color.WHITE.getRGB();
-
-        for (int h = 0; h < image.getHeight(); h++) {
-            for (int w = 0; w < image.getWidth(); w++) {
-                int color = image.getRGB(w, h);
-                int alpha = (color >> 24) & 0xFF;
-                if (alpha > 0 && color != white) {
-                    for (int c = 0; c < x.length; c++) {
-                        int nColor = image.getRGB(w + x[c], h + y[c]);
-                        int nAlpha = (nColor >> 24) & 0xFF;
-                        if (nAlpha == 0) {
-                            image.setRGB(w + x[c], h + y[c], white);
+     *
+     * @param pixels image pixels as ARGB, by rows.
+     * @param width image width.
+     * @param height image height.
+     */
+    private static void makeImageBorder(int[] pixels, int width, int height) {
+        for (int h = 0; h < height; h++) {
+            for (int w = 0; w < width; w++) {
+                int color = pixels[h * width + w];
+                if (color >>> 24 > 0 && color != WHITE) {
+                    for (int c = 0; c < BORDER_X.length; c++) {
+                        int x = w + BORDER_X[c];
+                        int y = h + BORDER_Y[c];
+                        if (x > -1 && x < width && y > -1 && y < height
+                                && pixels[y * width + x] >>> 24 == 0) {
+                            pixels[y * width + x] = WHITE;
                         }
                     }
                 }
@@ -208,4 +256,45 @@ public class PieceImage {
         }
     }
 
+    /**
+     * Cache key of an image set: piece font and size.
+     */
+    private static final class ImageKey {
+
+        /**
+         * Piece font.
+         */
+        private final Font font;
+
+        /**
+         * Square size.
+         */
+        private final int size;
+
+        /**
+         * Constructor. Makes a key.
+         *
+         * @param font piece font.
+         * @param size square size.
+         */
+        ImageKey(Font font, int size) {
+            this.font = font;
+            this.size = size;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof ImageKey)) {
+                return false;
+            }
+            ImageKey k = (ImageKey) o;
+            return size == k.size && font.equals(k.font);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * font.hashCode() + size;
+        }
+    }
+
 }
@@ -24,6 +24,7 @@ import javax.swing.JScrollPane;
 import javax.swing.JSlider;
 import pchess.core.ComputerPlayer;
 import pchess.core.enums.Difficulty;
+import pchess.core.enums.Engine;
 import pchess.core.enums.PieceColor;
 import pchess.core.enums.PlayerType;
 
@@ -117,6 +118,18 @@ public class SelectGame extends JDialog {
         difficulty.setLabelTable(difficultyLabels);
         difficulty.setPaintLabels(true);
 
+        JPanel engine = new JPanel();
+        engine.setLayout(new GridLayout(1, 2));
+        JRadioButton negamax = new JRadioButton("Negamax");
+        negamax.setSelected(true);
+        JRadioButton mcts = new JRadioButton("Monte Carlo");
+        ButtonGroup eGroup = new ButtonGroup();
+        eGroup.add(negamax);
+        eGroup.add(mcts);
+        engine.add(negamax);
+        engine.add(mcts);
+        makeBorder(engine, "Engine", 6);
+
         gameOptions = new JPanel();
         cl = new CardLayout();
         gameOptions.setLayout(cl);
@@ -129,6 +142,7 @@ public class SelectGame extends JDialog {
         playerOptions.add(whitePlayer);
         playerOptions.add(blackPlayer);
         playerOptions.add(difficulty);
+        playerOptions.add(engine);
         playerOptions.add(gameOptions);
         int pw = 0;
         int ph = 0;
@@ -160,6 +174,8 @@ public class SelectGame extends JDialog {
                     : PlayerType.COMPUTER);
             bt = (bHuman.isSelected() ? PlayerType.HUMAN
                     : PlayerType.COMPUTER);
+            ComputerPlayer.setEngine(mcts.isSelected() ? Engine.MCTS
+                    : Engine.NEGAMAX);
 
             for (int i = 0; i < games.length; i++) {
                 JRadioButton sel = (JRadioButton) opcoes.getComponent(i);
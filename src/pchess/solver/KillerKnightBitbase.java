@@ -0,0 +1,766 @@
+package pchess.solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+import pchess.core.ChessBoard;
+import pchess.core.MoveUndo;
+import pchess.core.Movement;
+import pchess.core.Piece;
+import pchess.core.enums.PieceColor;
+
+/**
+ * Endgame table of "Killer Knight" game, for positions where each player has
+ * both knight and at most {@code K} diamonds. Diamonds never move, so a
+ * position is defined by knight squares, sets of remaining diamonds and
+ * player to move.
+ * <p>
+ * Diamond maps of Killer Knight are symmetric: turning chessboard half a
+ * turn (8 and 12 diamonds) or reflecting it between first and last ranks (16
+ * diamonds), and swapping colors, gives the same map. Both transformations
+ * keep knight movements, so a position with black to move has the same value
+ * as the turned position with white to move, and only positions with white
+ * to move are kept.
+ * <p>
+ * Each position takes one byte: bit 7 is set if player to move wins, bits 0
+ * to 6 keep number of plies until game is over with perfect play, and zero
+ * means that game is not decided within 127 plies (knights can move back and
+ * forth forever). A byte is used instead of a bit so that winner can make
+ * progress.
+ * <p>
+ * Positions with the same diamonds (a layer) only depend on each other and
+ * on layers with one diamond less, where game goes after a capture. Layers
+ * are solved from fewest diamonds, in parallel, each one by retrograde
+ * analysis ordered by distance. A layer and its turned layer are solved
+ * together.
+ */
+public final class KillerKnightBitbase {
+
+    /**
+     * Number of squares of chessboard.
+     */
+    private static final int SQUARES = 64;
+
+    /**
+     * Number of positions of a layer with white to move.
+     */
+    private static final int LAYER = SQUARES * SQUARES;
+
+    /**
+     * Bit set in position value if player to move wins.
+     */
+    public static final int WIN = 0x80;
+
+    /**
+     * Mask of distance in position value.
+     */
+    private static final int DISTANCE = 0x7F;
+
+    /**
+     * Distance of a position not yet solved.
+     */
+    private static final int INFINITE = Integer.MAX_VALUE;
+
+    /**
+     * Knight movements by square.
+     */
+    private static final long[] KNIGHT_MASK = new long[SQUARES];
+
+    /**
+     * Tables by number of diamonds, generated in background.
+     */
+    private static final ConcurrentHashMap<Integer, CompletableFuture<KillerKnightBitbase>> TABLES
+            = new ConcurrentHashMap<>();
+
+    /**
+     * Maximum memory, in bytes, of a table.
+     */
+    private static long memoryBudget = 96L << 20;
+
+    static {
+        int[][] knight = {{-2, -1}, {-2, 1}, {-1, -2}, {-1, 2},
+            {1, -2}, {1, 2}, {2, -1}, {2, 1}};
+        for (int sq = 0; sq < SQUARES; sq++) {
+            int r = sq / 8;
+            int c = sq % 8;
+            for (int[] v : knight) {
+                int i = r + v[0];
+                int j = c + v[1];
+                if (i >= 0 && i < 8 && j >= 0 && j < 8) {
+                    KNIGHT_MASK[sq] |= 1L << (i * 8 + j);
+                }
+            }
+        }
+    }
+
+    /**
+     * Number of diamonds of each player.
+     */
+    private final int nDiamonds;
+
+    /**
+     * Maximum number of diamonds of each player in table positions.
+     */
+    private final int maxDiamonds;
+
+    /**
+     * Squares of white diamonds.
+     */
+    private final int[] whiteSquares;
+
+    /**
+     * Squares of black diamonds.
+     */
+    private final int[] blackSquares;
+
+    /**
+     * Square of turned chessboard, for each square.
+     */
+    private final int[] turn = new int[SQUARES];
+
+    /**
+     * Set of white diamonds in turned chessboard for each set of black
+     * diamonds.
+     */
+    private final int[] turnBlack;
+
+    /**
+     * Set of black diamonds in turned chessboard for each set of white
+     * diamonds.
+     */
+    private final int[] turnWhite;
+
+    /**
+     * Index of each diamond set in table, or -1 if set is not in table.
+     */
+    private final int[] setIndex;
+
+    /**
+     * Diamond sets in table, by index.
+     */
+    private final int[] sets;
+
+    /**
+     * Position values.
+     */
+    private final byte[] table;
+
+    /**
+     * Constructor. Makes an empty table.
+     *
+     * @param whiteSquares squares of white diamonds, as internal row * 8 +
+     * internal column.
+     * @param blackSquares squares of black diamonds.
+     * @param maxDiamonds maximum number of diamonds of each player.
+     * @throws IllegalArgumentException if diamond map is not symmetric.
+     */
+    KillerKnightBitbase(int[] whiteSquares, int[] blackSquares, int maxDiamonds) {
+        nDiamonds = whiteSquares.length;
+        if (blackSquares.length != nDiamonds || nDiamonds > 16
+                || maxDiamonds < 1 || maxDiamonds > nDiamonds) {
+            throw new IllegalArgumentException("Diamond map not allowed");
+        }
+        this.whiteSquares = whiteSquares.clone();
+        this.blackSquares = blackSquares.clone();
+        this.maxDiamonds = maxDiamonds;
+
+        int[] blackToWhite = new int[nDiamonds];
+        int[] whiteToBlack = new int[nDiamonds];
+        boolean symmetric = false;
+        for (int t = 0; t < 2 && !symmetric; t++) {
+            for (int sq = 0; sq < SQUARES; sq++) {
+                turn[sq] = (t == 0 ? SQUARES - 1 - sq : (7 - sq / 8) * 8 + sq % 8);
+            }
+            symmetric = true;
+            for (int i = 0; i < nDiamonds; i++) {
+                blackToWhite[i] = find(whiteSquares, turn[blackSquares[i]]);
+                whiteToBlack[i] = find(blackSquares, turn[whiteSquares[i]]);
+                symmetric &= (blackToWhite[i] >= 0 && whiteToBlack[i] >= 0);
+            }
+        }
+        if (!symmetric) {
+            throw new IllegalArgumentException("Diamond map is not symmetric");
+        }
+        turnBlack = new int[1 << nDiamonds];
+        turnWhite = new int[1 << nDiamonds];
+        setIndex = new int[1 << nDiamonds];
+        List<Integer> list = new ArrayList<>();
+        for (int k = 1; k <= maxDiamonds; k++) {
+            for (int set = 1; set < (1 << nDiamonds); set++) {
+                if (Integer.bitCount(set) == k) {
+                    list.add(set);
+                }
+            }
+        }
+        Arrays.fill(setIndex, -1);
+        sets = new int[list.size()];
+        for (int i = 0; i < sets.length; i++) {
+            sets[i] = list.get(i);
+            setIndex[sets[i]] = i;
+        }
+        for (int set = 0; set < (1 << nDiamonds); set++) {
+            for (int i = 0; i < nDiamonds; i++) {
+                if ((set & (1 << i)) != 0) {
+                    turnBlack[set] |= 1 << blackToWhite[i];
+                    turnWhite[set] |= 1 << whiteToBlack[i];
+                }
+            }
+        }
+        table = new byte[(int) size(nDiamonds, maxDiamonds)];
+    }
+
+    /**
+     * Returns index of a square in a list.
+     *
+     * @param squares square list.
+     * @param square square to find.
+     * @return square index, or -1 if square is not in list.
+     */
+    private static int find(int[] squares, int square) {
+        for (int i = 0; i < squares.length; i++) {
+            if (squares[i] == square) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns number of diamond sets with 1 to {@code k} diamonds.
+     *
+     * @param n number of diamonds.
+     * @param k maximum number of diamonds in a set.
+     * @return number of sets.
+     */
+    private static long sets(int n, int k) {
+        long total = 0;
+        long binomial = 1;
+        for (int i = 1; i <= k; i++) {
+            binomial = binomial * (n - i + 1) / i;
+            total += binomial;
+        }
+        return total;
+    }
+
+    /**
+     * Returns table size in bytes.
+     *
+     * @param n number of diamonds of each player.
+     * @param k maximum number of diamonds of each player in table positions.
+     * @return table size.
+     */
+    static long size(int n, int k) {
+        long s = sets(n, k);
+        return s * s * LAYER;
+    }
+
+    /**
+     * Sets maximum memory of tables generated from now on. Number of
+     * diamonds in table positions is the largest one that fits.
+     *
+     * @param bytes memory budget in bytes.
+     * @throws IllegalArgumentException if budget is negative.
+     */
+    public static void setMemoryBudget(long bytes) {
+        if (bytes < 0) {
+            throw new IllegalArgumentException("Memory budget can't be negative");
+        }
+        memoryBudget = bytes;
+    }
+
+    /**
+     * Returns maximum number of diamonds of each player in a table that fits
+     * memory budget.
+     *
+     * @param nDiamonds number of diamonds of each player in game.
+     * @return maximum number of diamonds, or 0 if no table fits.
+     */
+    public static int getMaxDiamonds(int nDiamonds) {
+        int k = 0;
+        while (k < nDiamonds && size(nDiamonds, k + 1) <= Math.min(memoryBudget, Integer.MAX_VALUE)) {
+            k++;
+        }
+        return k;
+    }
+
+    /**
+     * Returns table of a diamond map. The first time, table is generated in
+     * background and {@code null} is returned until it is ready.
+     *
+     * @param whiteSquares squares of white diamonds, as internal row * 8 +
+     * internal column. Killer Knight has one map by number of diamonds.
+     * @param blackSquares squares of black diamonds.
+     * @return table, or {@code null} if it is not ready or doesn't fit memory
+     * budget.
+     */
+    public static KillerKnightBitbase get(int[] whiteSquares, int[] blackSquares) {
+        int k = getMaxDiamonds(whiteSquares.length);
+        if (k == 0) {
+            return null;
+        }
+        CompletableFuture<KillerKnightBitbase> future = TABLES.get(whiteSquares.length);
+        if (future == null) {
+            future = TABLES.computeIfAbsent(whiteSquares.length, n -> CompletableFuture.supplyAsync(
+                    () -> generate(whiteSquares, blackSquares, k)));
+        }
+        return (future.isDone() && !future.isCompletedExceptionally()
+                ? future.join() : null);
+    }
+
+    /**
+     * Generates a table.
+     *
+     * @param whiteSquares squares of white diamonds.
+     * @param blackSquares squares of black diamonds.
+     * @param maxDiamonds maximum number of diamonds of each player.
+     * @return table.
+     */
+    public static KillerKnightBitbase generate(int[] whiteSquares, int[] blackSquares,
+            int maxDiamonds) {
+        KillerKnightBitbase bb = new KillerKnightBitbase(whiteSquares, blackSquares, maxDiamonds);
+        for (int total = 2; total <= 2 * maxDiamonds; total++) {
+            List<int[]> layers = new ArrayList<>();
+            for (int w : bb.sets) {
+                for (int b : bb.sets) {
+                    if (Integer.bitCount(w) + Integer.bitCount(b) == total
+                            && bb.layer(w, b) <= bb.layer(bb.turnBlack[b], bb.turnWhite[w])) {
+                        layers.add(new int[]{w, b});
+                    }
+                }
+            }
+            ThreadLocal<Layer> scratch = ThreadLocal.withInitial(() -> bb.new Layer());
+            IntStream.range(0, layers.size()).parallel().forEach(i
+                    -> scratch.get().solve(layers.get(i)[0], layers.get(i)[1]));
+        }
+        return bb;
+    }
+
+    /**
+     * Returns index of a layer.
+     *
+     * @param w white diamond set.
+     * @param b black diamond set.
+     * @return layer index.
+     */
+    private int layer(int w, int b) {
+        return setIndex[w] * sets.length + setIndex[b];
+    }
+
+    /**
+     * Returns square set of a diamond set.
+     *
+     * @param set diamond set.
+     * @param squares diamond squares.
+     * @return square set.
+     */
+    private static long squares(int set, int[] squares) {
+        long mask = 0;
+        for (int i = 0; i < squares.length; i++) {
+            if ((set & (1 << i)) != 0) {
+                mask |= 1L << squares[i];
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Returns value of a position in a solved layer.
+     *
+     * @param w white diamond set.
+     * @param b black diamond set.
+     * @param wk white knight square.
+     * @param bk black knight square.
+     * @param whiteToMove true if white moves.
+     * @return position value.
+     */
+    private int value(int w, int b, int wk, int bk, boolean whiteToMove) {
+        if (whiteToMove) {
+            return table[layer(w, b) * LAYER + wk * SQUARES + bk] & 0xFF;
+        }
+        return table[layer(turnBlack[b], turnWhite[w]) * LAYER
+                + turn[bk] * SQUARES + turn[wk]] & 0xFF;
+    }
+
+    /**
+     * Retrograde analysis of a layer. Positions are numbered by player to
+     * move (white first), white knight square and black knight square.
+     */
+    private final class Layer {
+
+        /**
+         * Value of each position.
+         */
+        private final int[] value = new int[2 * LAYER];
+
+        /**
+         * Shortest win found for each position.
+         */
+        private final int[] win = new int[2 * LAYER];
+
+        /**
+         * Longest loss found for each position.
+         */
+        private final int[] loss = new int[2 * LAYER];
+
+        /**
+         * Number of movements in layer not yet known to lose, for each
+         * position.
+         */
+        private final int[] open = new int[2 * LAYER];
+
+        /**
+         * True for positions that can't lose, since they have a movement to
+         * an undecided position of another layer.
+         */
+        private final boolean[] safe = new boolean[2 * LAYER];
+
+        /**
+         * First entry of each distance bucket.
+         */
+        private final int[] head = new int[DISTANCE + 2];
+
+        /**
+         * Position of each bucket entry.
+         */
+        private int[] entry = new int[4 * LAYER];
+
+        /**
+         * Next entry of each bucket entry.
+         */
+        private int[] next = new int[4 * LAYER];
+
+        /**
+         * Number of bucket entries.
+         */
+        private int entries;
+
+        /**
+         * Adds a position to a distance bucket.
+         *
+         * @param p position.
+         * @param d distance.
+         */
+        private void push(int p, int d) {
+            if (d > DISTANCE) {
+                return;
+            }
+            if (entries == entry.length) {
+                entry = Arrays.copyOf(entry, 2 * entries);
+                next = Arrays.copyOf(next, 2 * entries);
+            }
+            entry[entries] = p;
+            next[entries] = head[d];
+            head[d] = entries++;
+        }
+
+        /**
+         * Solves a layer and its turned layer.
+         *
+         * @param w white diamond set.
+         * @param b black diamond set.
+         */
+        void solve(int w, int b) {
+            long wd = squares(w, whiteSquares);
+            long bd = squares(b, blackSquares);
+            long occupied = wd | bd;
+            Arrays.fill(head, -1);
+            entries = 0;
+
+            for (int p = 0; p < 2 * LAYER; p++) {
+                boolean white = (p < LAYER);
+                int wk = (p >> 6) & 63;
+                int bk = p & 63;
+                value[p] = 0;
+                win[p] = INFINITE;
+                loss[p] = 0;
+                open[p] = 0;
+                safe[p] = false;
+                if (wk == bk || (occupied & (1L << wk | 1L << bk)) != 0) {
+                    value[p] = -1;
+                    continue;
+                }
+                int from = (white ? wk : bk);
+                int enemy = (white ? bk : wk);
+                long targets = KNIGHT_MASK[from] & ~(white ? wd : bd);
+                if (targets == 0) {
+                    safe[p] = true;
+                    continue;
+                }
+                long enemyDiamonds = (white ? bd : wd);
+                for (long t = targets; t != 0; t &= t - 1) {
+                    int to = Long.numberOfTrailingZeros(t);
+                    if (to == enemy || (enemyDiamonds == 1L << to)) {
+                        win[p] = 1;
+                    } else if ((enemyDiamonds & (1L << to)) != 0) {
+                        int v = (white
+                                ? value(w, b & ~(1 << find(blackSquares, to)), to, bk, false)
+                                : value(w & ~(1 << find(whiteSquares, to)), b, wk, to, true));
+                        if (v == 0) {
+                            safe[p] = true;
+                        } else if ((v & WIN) == 0) {
+                            win[p] = Math.min(win[p], v + 1);
+                        } else {
+                            loss[p] = Math.max(loss[p], (v & DISTANCE) + 1);
+                        }
+                    } else {
+                        open[p]++;
+                    }
+                }
+                if (win[p] != INFINITE) {
+                    push(p, win[p]);
+                } else if (open[p] == 0 && !safe[p]) {
+                    push(p, loss[p]);
+                }
+            }
+
+            for (int d = 1; d <= DISTANCE; d++) {
+                for (int e = head[d]; e >= 0; e = next[e]) {
+                    int p = entry[e];
+                    if (value[p] != 0) {
+                        continue;
+                    }
+                    boolean won = (win[p] == d);
+                    if (!won && (open[p] != 0 || safe[p] || loss[p] != d)) {
+                        continue;
+                    }
+                    value[p] = (won ? WIN | d : d);
+                    boolean white = (p < LAYER);
+                    int wk = (p >> 6) & 63;
+                    int bk = p & 63;
+                    int moved = (white ? bk : wk);
+                    int still = (white ? wk : bk);
+                    for (long t = KNIGHT_MASK[moved] & ~occupied & ~(1L << still); t != 0; t &= t - 1) {
+                        int from = Long.numberOfTrailingZeros(t);
+                        int q = (white ? LAYER + wk * SQUARES + from : from * SQUARES + bk);
+                        if (value[q] != 0) {
+                            continue;
+                        }
+                        if (!won) {
+                            if (d + 1 < win[q]) {
+                                win[q] = d + 1;
+                                push(q, d + 1);
+                            }
+                        } else {
+                            open[q]--;
+                            loss[q] = Math.max(loss[q], d + 1);
+                            if (open[q] == 0 && !safe[q] && win[q] == INFINITE) {
+                                push(q, loss[q]);
+                            }
+                        }
+                    }
+                }
+            }
+
+            int base = layer(w, b) * LAYER;
+            int turned = layer(turnBlack[b], turnWhite[w]) * LAYER;
+            for (int wk = 0; wk < SQUARES; wk++) {
+                for (int bk = 0; bk < SQUARES; bk++) {
+                    int v = Math.max(value[wk * SQUARES + bk], 0);
+                    table[base + wk * SQUARES + bk] = (byte) v;
+                    v = Math.max(value[LAYER + wk * SQUARES + bk], 0);
+                    table[turned + turn[bk] * SQUARES + turn[wk]] = (byte) v;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns number of diamonds of each player in game.
+     *
+     * @return number of diamonds.
+     */
+    public int getNumberOfDiamonds() {
+        return nDiamonds;
+    }
+
+    /**
+     * Returns maximum number of diamonds of each player in table positions.
+     *
+     * @return maximum number of diamonds.
+     */
+    public int getMaxDiamonds() {
+        return maxDiamonds;
+    }
+
+    /**
+     * Returns diamond set of a player.
+     *
+     * @param pieces player pieces, knight first.
+     * @return diamond set.
+     */
+    private static int diamondSet(Piece[] pieces) {
+        int set = 0;
+        for (int i = 1; i < pieces.length; i++) {
+            if (pieces[i].isLiving()) {
+                set |= 1 << (i - 1);
+            }
+        }
+        return set;
+    }
+
+    /**
+     * Returns square of a piece, as internal row * 8 + internal column.
+     *
+     * @param p living piece.
+     * @return piece square.
+     */
+    private static int square(Piece p) {
+        return p.getSquare().getInternalRow() * 8 + p.getSquare().getInternalColumn();
+    }
+
+    /**
+     * Returns value of a position: bit {@code WIN} is set if player to move
+     * wins, {@code getDistance} returns number of plies until game is over,
+     * and zero means that game is not decided.
+     *
+     * @param board chessboard of a Killer Knight game with this table
+     * diamond map.
+     * @return position value, or -1 if position is not in table.
+     */
+    public int probe(ChessBoard board) {
+        Piece[] white = board.getWhitePieces();
+        Piece[] black = board.getBlackPieces();
+        if (white.length != nDiamonds + 1 || !white[0].isLiving() || !black[0].isLiving()) {
+            return -1;
+        }
+        int w = diamondSet(white);
+        int b = diamondSet(black);
+        if (setIndex[w] < 0 || setIndex[b] < 0) {
+            return -1;
+        }
+        return value(w, b, square(white[0]), square(black[0]),
+                board.getCurrentPlayer() == PieceColor.WHITE);
+    }
+
+    /**
+     * Returns true if a position value is a win for player to move.
+     *
+     * @param value position value.
+     * @return true if player to move wins.
+     */
+    public static boolean isWin(int value) {
+        return (value & WIN) != 0;
+    }
+
+    /**
+     * Returns number of plies until game is over with perfect play.
+     *
+     * @param value position value.
+     * @return distance to end of game, or 0 if game is not decided.
+     */
+    public static int getDistance(int value) {
+        return value & DISTANCE;
+    }
+
+    /**
+     * Returns best movement in a decided position: the fastest win, or the
+     * slowest loss.
+     *
+     * @param board chessboard of a Killer Knight game with this table
+     * diamond map.
+     * @return best movement, defined in {@code board}, or {@code null} if
+     * position is not in table or is not decided.
+     */
+    public Movement bestMove(ChessBoard board) {
+        int value = probe(board);
+        if (value <= 0) {
+            return null;
+        }
+        boolean white = (board.getCurrentPlayer() == PieceColor.WHITE);
+        ChessBoard cb = board.copy();
+        Movement best = null;
+        int bestWin = INFINITE;
+        int bestLoss = -1;
+        for (Movement m : cb.getMoves()) {
+            MoveUndo undo = cb.make(m);
+            Piece[] enemy = (white ? cb.getBlackPieces() : cb.getWhitePieces());
+            boolean over = !enemy[0].isLiving() || diamondSet(enemy) == 0;
+            int next = (over ? 0 : probe(cb));
+            cb.unmake(undo);
+            if (over) {
+                if (bestWin > 1) {
+                    bestWin = 1;
+                    best = m;
+                }
+            } else if (next > 0 && !isWin(next)) {
+                if (getDistance(next) + 1 < bestWin) {
+                    bestWin = getDistance(next) + 1;
+                    best = m;
+                }
+            } else if (next > 0 && bestWin == INFINITE && getDistance(next) > bestLoss) {
+                bestLoss = getDistance(next);
+                best = m;
+            }
+        }
+        return (best == null ? null : board.translate(best));
+    }
+
+    /**
+     * Returns squares of a list of square names.
+     *
+     * @param names square names, like "a1".
+     * @return squares, as internal row * 8 + internal column.
+     */
+    private static int[] squares(String[] names) {
+        int[] squares = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            squares[i] = (8 - (names[i].charAt(1) - '0')) * 8 + names[i].charAt(0) - 'a';
+        }
+        return squares;
+    }
+
+    /**
+     * Generates tables of every Killer Knight map, reporting size, values
+     * and time.
+     *
+     * @param args memory budget in megabytes, by default 96.
+     */
+    public static void main(String[] args) {
+        if (args.length > 0) {
+            setMemoryBudget(Long.parseLong(args[0]) << 20);
+        }
+        String[][] maps = {
+            {"a7", "b2", "d1", "d4", "d7", "g4", "h1", "h7"},
+            {"a2", "a8", "b5", "e2", "e5", "e8", "g7", "h2"},
+            {"b1", "g1", "g2", "d3", "e3", "a5", "c5", "f5", "h5", "g7", "d8", "e8"},
+            {"d1", "e1", "b2", "a4", "c4", "f4", "h4", "d6", "e6", "b7", "b8", "g8"},
+            {"b1", "g1", "a2", "e2", "h2", "b3", "f3", "g3", "e4", "g4", "a5", "b5",
+                "d5", "h5", "c6", "d7"},
+            {"d2", "c3", "a4", "b4", "d4", "h4", "e5", "g5", "b6", "f6", "g6", "a7",
+                "e7", "h7", "b8", "g8"}};
+        for (int m = 0; m < maps.length; m += 2) {
+            int[] white = squares(maps[m]);
+            int[] black = squares(maps[m + 1]);
+            String[] map = maps[m];
+            int k = getMaxDiamonds(map.length);
+            if (k == 0) {
+                System.out.printf("%d diamonds: no table fits memory budget%n", map.length);
+                continue;
+            }
+            long start = System.nanoTime();
+            KillerKnightBitbase bb = generate(white, black, k);
+            long wins = 0;
+            long losses = 0;
+            long undecided = 0;
+            int longest = 0;
+            for (byte v : bb.table) {
+                if (v == 0) {
+                    undecided++;
+                } else if (isWin(v)) {
+                    wins++;
+                } else {
+                    losses++;
+                }
+                longest = Math.max(longest, getDistance(v));
+            }
+            System.out.printf("%d diamonds, up to %d each: %d bytes, %d wins, %d losses, "
+                    + "%d undecided or illegal, longest %d plies, %.1f s%n",
+                    map.length, k, bb.table.length, wins, losses, undecided, longest,
+                    (System.nanoTime() - start) / 1e9);
+        }
+    }
+
+}
@@ -0,0 +1,249 @@
+package pchess.solver;
+
+import pchess.core.ChessBoard;
+import pchess.core.Movement;
+import pchess.core.Piece;
+import pchess.core.Square;
+import pchess.core.enums.PieceColor;
+
+/**
+ * Exact solver of "King Duel" game. A position is defined by both king
+ * squares and by number of plies left until move limit is reached; player to
+ * move follows from parity of plies left, since white moves first. Each
+ * position value depends only on positions with one ply less, so all
+ * positions are solved in one pass, for every move limit up to
+ * {@code MAX_MOVEMENTS}.
+ * <p>
+ * Each position keeps winner, number of plies until game is over with
+ * perfect play and best movement destination, packed in a {@code short}.
+ */
+public final class KingDuelSolver {
+
+    /**
+     * Maximum move limit solved.
+     */
+    public static final int MAX_MOVEMENTS = 40;
+
+    /**
+     * Number of rows and columns of chessboard.
+     */
+    private static final int SIZE = 8;
+
+    /**
+     * Number of squares of chessboard.
+     */
+    private static final int SQUARES = SIZE * SIZE;
+
+    /**
+     * Mask of best movement destination in position value.
+     */
+    private static final int MOVE = 0x3F;
+
+    /**
+     * Bit set in position value if white wins.
+     */
+    private static final int WHITE_WINS = 0x40;
+
+    /**
+     * Shift of distance in position value.
+     */
+    private static final int DISTANCE_SHIFT = 7;
+
+    /**
+     * King movements by square.
+     */
+    private static final long[] KING_MASK = new long[SQUARES];
+
+    /**
+     * Position values, by plies left, white king square and black king
+     * square.
+     */
+    private static final short[] TABLE;
+
+    static {
+        for (int sq = 0; sq < SQUARES; sq++) {
+            int r = sq / SIZE;
+            int c = sq % SIZE;
+            for (int i = Math.max(0, r - 1); i <= Math.min(SIZE - 1, r + 1); i++) {
+                for (int j = Math.max(0, c - 1); j <= Math.min(SIZE - 1, c + 1); j++) {
+                    if (i != r || j != c) {
+                        KING_MASK[sq] |= 1L << (i * SIZE + j);
+                    }
+                }
+            }
+        }
+        TABLE = solve();
+    }
+
+    /**
+     * Private constructor. This class only has static methods.
+     */
+    private KingDuelSolver() {
+    }
+
+    /**
+     * Returns table index of a position.
+     *
+     * @param left plies left until move limit.
+     * @param white white king square.
+     * @param black black king square.
+     * @return table index.
+     */
+    private static int index(int left, int white, int black) {
+        return (left * SQUARES + white) * SQUARES + black;
+    }
+
+    /**
+     * Packs a position value.
+     *
+     * @param whiteWins true if white wins.
+     * @param distance plies until game is over.
+     * @param move best movement destination square.
+     * @return position value.
+     */
+    private static int pack(boolean whiteWins, int distance, int move) {
+        return (whiteWins ? WHITE_WINS : 0) | distance << DISTANCE_SHIFT | move;
+    }
+
+    /**
+     * Solves all positions, following rules of {@code KingDuel.isGameOver}:
+     * game is won by black when move limit is reached, otherwise by white
+     * when white king arrives last rank (internal row 0). A king can't move
+     * next to opponent king.
+     *
+     * @return position values.
+     */
+    private static short[] solve() {
+        short[] table = new short[(2 * MAX_MOVEMENTS + 1) * SQUARES * SQUARES];
+        for (int left = 0; left <= 2 * MAX_MOVEMENTS; left++) {
+            boolean whiteToMove = (left % 2 == 0);
+            for (int w = 0; w < SQUARES; w++) {
+                for (int b = 0; b < SQUARES; b++) {
+                    if (w == b || (KING_MASK[w] & (1L << b)) != 0) {
+                        continue;
+                    }
+                    int value;
+                    if (left == 0) {
+                        value = pack(false, 0, 0);
+                    } else if (w < SIZE) {
+                        value = pack(true, 0, 0);
+                    } else {
+                        int mover = (whiteToMove ? w : b);
+                        int other = (whiteToMove ? b : w);
+                        long moves = KING_MASK[mover] & ~KING_MASK[other] & ~(1L << other);
+                        value = -1;
+                        for (; moves != 0; moves &= moves - 1) {
+                            int to = Long.numberOfTrailingZeros(moves);
+                            int next = table[whiteToMove ? index(left - 1, to, b)
+                                    : index(left - 1, w, to)];
+                            boolean whiteWins = (next & WHITE_WINS) != 0;
+                            int v = pack(whiteWins, (next >>> DISTANCE_SHIFT) + 1, to);
+                            if (value < 0 || better(v, value, whiteToMove)) {
+                                value = v;
+                            }
+                        }
+                        if (value < 0) {
+                            value = pack(!whiteToMove, 0, 0);
+                        }
+                    }
+                    table[index(left, w, b)] = (short) value;
+                }
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Returns true if a position value is better than another one for player
+     * to move: a win is better than a loss, a faster win is better than a
+     * slower one and a slower loss is better than a faster one.
+     *
+     * @param value position value.
+     * @param best best position value found.
+     * @param whiteToMove true if white moves.
+     * @return true if {@code value} is better than {@code best}.
+     */
+    private static boolean better(int value, int best, boolean whiteToMove) {
+        boolean win = ((value & WHITE_WINS) != 0) == whiteToMove;
+        boolean bestWin = ((best & WHITE_WINS) != 0) == whiteToMove;
+        if (win != bestWin) {
+            return win;
+        }
+        int d = value >>> DISTANCE_SHIFT;
+        int bd = best >>> DISTANCE_SHIFT;
+        return (win ? d < bd : d > bd);
+    }
+
+    /**
+     * Returns value of a position.
+     *
+     * @param board chessboard of a King Duel game.
+     * @param maxMov game move limit.
+     * @return position value, or -1 if position can't be solved.
+     */
+    private static int value(ChessBoard board, int maxMov) {
+        int left = 2 * maxMov - board.getPly();
+        if (board.getNRows() != SIZE || board.getNColumns() != SIZE
+                || maxMov > MAX_MOVEMENTS || left < 0
+                || (left % 2 == 0) != (board.getCurrentPlayer() == PieceColor.WHITE)) {
+            return -1;
+        }
+        Square w = board.getWhitePieces()[0].getSquare();
+        Square b = board.getBlackPieces()[0].getSquare();
+        return TABLE[index(left, w.getInternalRow() * SIZE + w.getInternalColumn(),
+                b.getInternalRow() * SIZE + b.getInternalColumn())];
+    }
+
+    /**
+     * Returns true if white wins a position with perfect play.
+     *
+     * @param board chessboard of a King Duel game.
+     * @param maxMov game move limit.
+     * @return true if white wins.
+     * @throws IllegalArgumentException if position can't be solved.
+     */
+    public static boolean isWhiteWin(ChessBoard board, int maxMov) {
+        int value = value(board, maxMov);
+        if (value < 0) {
+            throw new IllegalArgumentException("Position can't be solved");
+        }
+        return (value & WHITE_WINS) != 0;
+    }
+
+    /**
+     * Returns number of plies until game is over with perfect play.
+     *
+     * @param board chessboard of a King Duel game.
+     * @param maxMov game move limit.
+     * @return number of plies.
+     * @throws IllegalArgumentException if position can't be solved.
+     */
+    public static int getDistance(ChessBoard board, int maxMov) {
+        int value = value(board, maxMov);
+        if (value < 0) {
+            throw new IllegalArgumentException("Position can't be solved");
+        }
+        return value >>> DISTANCE_SHIFT;
+    }
+
+    /**
+     * Returns best movement in a position: the fastest win, or the slowest
+     * loss.
+     *
+     * @param board chessboard of a King Duel game.
+     * @param maxMov game move limit.
+     * @return best movement, defined in {@code board}, or {@code null} if
+     * game is over or position can't be solved.
+     */
+    public static Movement bestMove(ChessBoard board, int maxMov) {
+        int value = value(board, maxMov);
+        if (value < 0 || value >>> DISTANCE_SHIFT == 0) {
+            return null;
+        }
+        Piece king = (board.getCurrentPlayer() == PieceColor.WHITE
+                ? board.getWhitePieces()[0] : board.getBlackPieces()[0]);
+        int to = value & MOVE;
+        return new Movement(king, board.getSquare(to / SIZE, to % SIZE));
+    }
+
+}
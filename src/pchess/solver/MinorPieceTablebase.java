@@ -0,0 +1,727 @@
+package pchess.solver;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+import pchess.core.ChessBoard;
+import pchess.core.MoveUndo;
+import pchess.core.Movement;
+import pchess.core.Piece;
+import pchess.core.enums.PieceType;
+
+/**
+ * Tablebase of "Knights Against Pawns" and "Bishops Against Pawns" games.
+ * Every position with at most two minor pieces and five pawns on the 5x5
+ * chessboard is solved, so computer plays perfect movements.
+ * <p>
+ * Positions are normalized so that pawns always move from first internal row
+ * to last one; when minor pieces are black, rows are flipped. A position is
+ * indexed by pawn set (combinatorial number system), minor pieces among free
+ * squares and player to move. Each position takes one byte: bit 7 is set if
+ * player to move wins, bits 0 to 6 keep number of plies until game is over
+ * with perfect play. These games can't be drawn: pawns must move in each
+ * turn, so game always ends.
+ * <p>
+ * Positions are solved from last to first, since every pawn movement
+ * advances pawns and every capture removes a piece: positions with fewer
+ * pawns are solved first and, for the same number of pawns, positions with
+ * more advanced pawns are solved first. Positions in the same layer don't
+ * depend on each other and are solved in parallel.
+ * <p>
+ * Tablebases are generated offline by {@code main} and memory-mapped when
+ * loaded. When a pawn on last rank can be captured, game goes on; if two
+ * pawns are on last rank, the one with the highest column defines whether
+ * game is over, as in game piece order while pawns keep their files.
+ */
+public class MinorPieceTablebase {
+
+    /**
+     * Number of rows and columns of chessboard.
+     */
+    private static final int SIZE = 5;
+
+    /**
+     * Number of squares of chessboard.
+     */
+    private static final int SQUARES = SIZE * SIZE;
+
+    /**
+     * Maximum number of pawns.
+     */
+    private static final int PAWNS = 5;
+
+    /**
+     * Bit set in position value if player to move wins.
+     */
+    public static final int WIN = 0x80;
+
+    /**
+     * Mask of distance in position value.
+     */
+    private static final int DISTANCE = 0x7F;
+
+    /**
+     * File magic number.
+     */
+    private static final int MAGIC = 0x50434D54;
+
+    /**
+     * File format version.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Size of file header in bytes.
+     */
+    private static final int HEADER = 16;
+
+    /**
+     * Binomial coefficients.
+     */
+    private static final int[][] BINOMIAL = new int[SQUARES + 1][PAWNS + 1];
+
+    /**
+     * Number of values by number of pawns, for each pawn set.
+     */
+    private static final int[] STRIDE = new int[PAWNS + 1];
+
+    /**
+     * Index of first position by number of pawns.
+     */
+    private static final long[] BASE = new long[PAWNS + 2];
+
+    /**
+     * Knight movements by square.
+     */
+    private static final int[] KNIGHT_MASK = new int[SQUARES];
+
+    /**
+     * Bishop rays by square and direction, from nearest square.
+     */
+    private static final int[][][] BISHOP_RAYS = new int[SQUARES][4][];
+
+    static {
+        for (int n = 0; n <= SQUARES; n++) {
+            BINOMIAL[n][0] = 1;
+            for (int r = 1; r <= PAWNS && r <= n; r++) {
+                BINOMIAL[n][r] = BINOMIAL[n - 1][r - 1] + (r <= n - 1 ? BINOMIAL[n - 1][r] : 0);
+            }
+        }
+        for (int k = 0; k <= PAWNS; k++) {
+            int free = SQUARES - k;
+            STRIDE[k] = 2 * (1 + free + free * (free - 1) / 2);
+            BASE[k + 1] = BASE[k] + (long) BINOMIAL[SQUARES][k] * STRIDE[k];
+        }
+
+        int[][] knight = {{-2, -1}, {-2, 1}, {-1, -2}, {-1, 2},
+            {1, -2}, {1, 2}, {2, -1}, {2, 1}};
+        int[][] bishop = {{-1, -1}, {-1, 1}, {1, -1}, {1, 1}};
+        for (int sq = 0; sq < SQUARES; sq++) {
+            int r = sq / SIZE;
+            int c = sq % SIZE;
+            for (int[] v : knight) {
+                if (inside(r + v[0], c + v[1])) {
+                    KNIGHT_MASK[sq] |= 1 << ((r + v[0]) * SIZE + c + v[1]);
+                }
+            }
+            for (int d = 0; d < 4; d++) {
+                List<Integer> ray = new ArrayList<>();
+                for (int i = r + bishop[d][0], j = c + bishop[d][1]; inside(i, j);
+                        i += bishop[d][0], j += bishop[d][1]) {
+                    ray.add(i * SIZE + j);
+                }
+                BISHOP_RAYS[sq][d] = ray.stream().mapToInt(Integer::intValue).toArray();
+            }
+        }
+    }
+
+    /**
+     * Tablebases already loaded, by minor piece type.
+     */
+    private static final ConcurrentHashMap<PieceType, MinorPieceTablebase> LOADED
+            = new ConcurrentHashMap<>();
+
+    /**
+     * Minor piece type.
+     */
+    private final PieceType minorPiece;
+
+    /**
+     * Position values.
+     */
+    private final ByteBuffer data;
+
+    /**
+     * Constructor. Makes a tablebase with given values.
+     *
+     * @param minorPiece minor piece type.
+     * @param data position values.
+     */
+    private MinorPieceTablebase(PieceType minorPiece, ByteBuffer data) {
+        this.minorPiece = minorPiece;
+        this.data = data;
+    }
+
+    private static boolean inside(int r, int c) {
+        return r > -1 && r < SIZE && c > -1 && c < SIZE;
+    }
+
+    /**
+     * Returns number of positions in a tablebase.
+     *
+     * @return number of positions.
+     */
+    static int size() {
+        return (int) BASE[PAWNS + 1];
+    }
+
+    /**
+     * Returns index of a position.
+     *
+     * @param pawns pawn squares mask.
+     * @param a square of a minor piece, or -1 if it was captured.
+     * @param b square of other minor piece, or -1 if it was captured.
+     * @param pawnToMove true if pawns player is next to move.
+     * @return position index.
+     */
+    static int index(int pawns, int a, int b, boolean pawnToMove) {
+        int k = Integer.bitCount(pawns);
+        int rank = 0;
+        int i = 0;
+        for (int m = pawns; m != 0; m &= m - 1) {
+            i++;
+            rank += BINOMIAL[Integer.numberOfTrailingZeros(m)][i];
+        }
+
+        if (a > b) {
+            int t = a;
+            a = b;
+            b = t;
+        }
+        int minors;
+        if (b < 0) {
+            minors = 0;
+        } else if (a < 0) {
+            minors = 1 + free(pawns, b);
+        } else {
+            int ra = free(pawns, a);
+            int rb = free(pawns, b);
+            minors = 1 + (SQUARES - k) + rb * (rb - 1) / 2 + ra;
+        }
+        return (int) (BASE[k] + (long) rank * STRIDE[k]) + 2 * minors + (pawnToMove ? 1 : 0);
+    }
+
+    /**
+     * Returns rank of a square among squares without pawns.
+     */
+    private static int free(int pawns, int sq) {
+        return sq - Integer.bitCount(pawns & ((1 << sq) - 1));
+    }
+
+    /**
+     * Returns true if a minor piece attacks a square.
+     *
+     * @param bishop true for bishops, false for knights.
+     * @param from minor piece square.
+     * @param to attacked square.
+     * @param occ occupied squares mask.
+     * @return true if minor piece attacks square.
+     */
+    private static boolean attacks(boolean bishop, int from, int to, int occ) {
+        if (!bishop) {
+            return (KNIGHT_MASK[from] & (1 << to)) != 0;
+        }
+        for (int[] ray : BISHOP_RAYS[from]) {
+            for (int sq : ray) {
+                if (sq == to) {
+                    return true;
+                }
+                if ((occ & (1 << sq)) != 0) {
+                    break;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns value of a position if game is over, following rules of
+     * {@code MinorPieceAgainstPawn.isGameOver}.
+     *
+     * @return position value, or -1 if game is not over.
+     */
+    private static int terminal(boolean bishop, int pawns, int a, int b, boolean pawnToMove) {
+        if (pawns == 0) {
+            return (pawnToMove ? 0 : WIN);
+        }
+        if (a < 0 && b < 0) {
+            return (pawnToMove ? WIN : 0);
+        }
+        int occ = pawns | (a < 0 ? 0 : 1 << a) | (b < 0 ? 0 : 1 << b);
+        boolean lastRank = false;
+        for (int sq = SQUARES - SIZE; sq < SQUARES; sq++) {
+            if ((pawns & (1 << sq)) != 0) {
+                lastRank = !((a >= 0 && attacks(bishop, a, sq, occ))
+                        || (b >= 0 && attacks(bishop, b, sq, occ)));
+            }
+        }
+        if (lastRank) {
+            return (pawnToMove ? WIN : 0);
+        }
+        if (pawnToMove && pawnMoves(pawns, a, b, occ, null) == 0) {
+            return 0;
+        }
+        return -1;
+    }
+
+    /**
+     * Generates pawn movements.
+     *
+     * @param moves array where movements are stored as {@code from | to << 8},
+     * or {@code null} to only count movements.
+     * @return number of movements.
+     */
+    private static int pawnMoves(int pawns, int a, int b, int occ, int[] moves) {
+        int n = 0;
+        for (int m = pawns; m != 0; m &= m - 1) {
+            int sq = Integer.numberOfTrailingZeros(m);
+            int r = sq / SIZE;
+            int c = sq % SIZE;
+            if (r == SIZE - 1) {
+                continue;
+            }
+            int up = sq + SIZE;
+            if ((occ & (1 << up)) == 0) {
+                n = store(moves, n, sq, up);
+            }
+            if (c > 0 && (up - 1 == a || up - 1 == b)) {
+                n = store(moves, n, sq, up - 1);
+            }
+            if (c < SIZE - 1 && (up + 1 == a || up + 1 == b)) {
+                n = store(moves, n, sq, up + 1);
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Generates movements of a minor piece.
+     *
+     * @param from minor piece square.
+     * @param other square of other minor piece, or -1.
+     * @param moves array where destination squares are stored.
+     * @return number of movements.
+     */
+    private static int minorMoves(boolean bishop, int from, int other, int occ, int[] moves) {
+        int n = 0;
+        if (!bishop) {
+            for (int m = KNIGHT_MASK[from]; m != 0; m &= m - 1) {
+                int sq = Integer.numberOfTrailingZeros(m);
+                if (sq != other) {
+                    moves[n++] = sq;
+                }
+            }
+            return n;
+        }
+        for (int[] ray : BISHOP_RAYS[from]) {
+            for (int sq : ray) {
+                if (sq == other) {
+                    break;
+                }
+                moves[n++] = sq;
+                if ((occ & (1 << sq)) != 0) {
+                    break;
+                }
+            }
+        }
+        return n;
+    }
+
+    private static int store(int[] moves, int n, int from, int to) {
+        if (moves != null) {
+            moves[n] = from | to << 8;
+        }
+        return n + 1;
+    }
+
+    /**
+     * Returns value of a position from values of positions after each
+     * movement.
+     *
+     * @param best best value found, or -1 if no movement was found.
+     * @param next value of position after a movement, for opponent.
+     * @return best value.
+     */
+    private static int combine(int best, int next) {
+        int distance = (next & DISTANCE) + 1;
+        if (distance > DISTANCE) {
+            throw new IllegalStateException("Distance too long: " + distance);
+        }
+        int value = ((next & WIN) == 0 ? WIN : 0) | distance;
+        if (best < 0) {
+            return value;
+        }
+        boolean win = (value & WIN) != 0;
+        if (win != ((best & WIN) != 0)) {
+            return (win ? value : best);
+        }
+        int d = value & DISTANCE;
+        int bd = best & DISTANCE;
+        return ((win ? d < bd : d > bd) ? value : best);
+    }
+
+    /**
+     * Solves a position. All positions after its movements must be solved.
+     *
+     * @param table position values.
+     * @param bishop true for bishops, false for knights.
+     * @param moves buffer for movements.
+     * @return position value.
+     */
+    private static int solve(byte[] table, boolean bishop, int pawns, int a, int b,
+            boolean pawnToMove, int[] moves) {
+        int value = terminal(bishop, pawns, a, b, pawnToMove);
+        if (value >= 0) {
+            return value;
+        }
+        int occ = pawns | (a < 0 ? 0 : 1 << a) | (b < 0 ? 0 : 1 << b);
+        int best = -1;
+        if (pawnToMove) {
+            int n = pawnMoves(pawns, a, b, occ, moves);
+            for (int i = 0; i < n; i++) {
+                int from = moves[i] & 0xFF;
+                int to = moves[i] >>> 8;
+                int next = index(pawns & ~(1 << from) | 1 << to,
+                        (a == to ? -1 : a), (b == to ? -1 : b), false);
+                best = combine(best, table[next]);
+            }
+        } else {
+            for (int piece = 0; piece < 2; piece++) {
+                int from = (piece == 0 ? a : b);
+                int other = (piece == 0 ? b : a);
+                if (from < 0) {
+                    continue;
+                }
+                int n = minorMoves(bishop, from, other, occ, moves);
+                for (int i = 0; i < n; i++) {
+                    int to = moves[i];
+                    int next = index(pawns & ~(1 << to), to, other, true);
+                    best = combine(best, table[next]);
+                }
+            }
+        }
+        return (best < 0 ? 0 : best);
+    }
+
+    /**
+     * Solves all positions with a pawn set: first positions where pawns are
+     * next to move, then positions where minor pieces are next to move.
+     */
+    private static void solveSet(byte[] table, boolean bishop, int pawns) {
+        int[] moves = new int[32];
+        for (int side = 1; side >= 0; side--) {
+            boolean pawnToMove = (side == 1);
+            table[index(pawns, -1, -1, pawnToMove)]
+                    = (byte) solve(table, bishop, pawns, -1, -1, pawnToMove, moves);
+            for (int a = 0; a < SQUARES; a++) {
+                if ((pawns & (1 << a)) != 0) {
+                    continue;
+                }
+                table[index(pawns, a, -1, pawnToMove)]
+                        = (byte) solve(table, bishop, pawns, a, -1, pawnToMove, moves);
+                for (int b = a + 1; b < SQUARES; b++) {
+                    if ((pawns & (1 << b)) == 0) {
+                        table[index(pawns, a, b, pawnToMove)]
+                                = (byte) solve(table, bishop, pawns, a, b, pawnToMove, moves);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Generates tablebase values of a minor piece type.
+     *
+     * @param minorPiece {@code PieceType.KNIGHT} or {@code PieceType.BISHOP}.
+     * @return position values.
+     */
+    static byte[] generate(PieceType minorPiece) {
+        boolean bishop = checkType(minorPiece);
+        byte[] table = new byte[size()];
+        for (int k = 0; k <= PAWNS; k++) {
+            List<List<Integer>> layers = new ArrayList<>();
+            for (int i = 0; i <= k * (SIZE - 1); i++) {
+                layers.add(new ArrayList<>());
+            }
+            if (k == 0) {
+                layers.get(0).add(0);
+            } else {
+                for (int m = (1 << k) - 1; m < 1 << SQUARES; ) {
+                    int advance = 0;
+                    for (int p = m; p != 0; p &= p - 1) {
+                        advance += Integer.numberOfTrailingZeros(p) / SIZE;
+                    }
+                    layers.get(advance).add(m);
+                    int c = m & -m;
+                    int r = m + c;
+                    m = (((r ^ m) >>> 2) / c) | r;
+                }
+            }
+            for (int i = layers.size() - 1; i >= 0; i--) {
+                int[] sets = layers.get(i).stream().mapToInt(Integer::intValue).toArray();
+                IntStream.range(0, sets.length).parallel()
+                        .forEach(s -> solveSet(table, bishop, sets[s]));
+            }
+        }
+        return table;
+    }
+
+    private static boolean checkType(PieceType minorPiece) {
+        if (minorPiece != PieceType.KNIGHT && minorPiece != PieceType.BISHOP) {
+            throw new IllegalArgumentException("Invalid minor piece: " + minorPiece);
+        }
+        return minorPiece == PieceType.BISHOP;
+    }
+
+    /**
+     * Returns tablebase file of a minor piece type.
+     *
+     * @param minorPiece minor piece type.
+     * @return tablebase file, in directory defined by system property
+     * {@code pchess.tablebases} (by default, {@code .pchess} in user home).
+     */
+    public static File getFile(PieceType minorPiece) {
+        String dir = System.getProperty("pchess.tablebases",
+                System.getProperty("user.home") + File.separator + ".pchess");
+        return new File(dir, minorPiece.name().toLowerCase() + "-pawn.tb");
+    }
+
+    /**
+     * Writes tablebase values to a file.
+     *
+     * @param minorPiece minor piece type.
+     * @param table position values.
+     * @param file destination file.
+     * @throws IOException if file can't be written.
+     */
+    static void write(PieceType minorPiece, byte[] table, File file) throws IOException {
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Can't create directory " + dir);
+        }
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(minorPiece.ordinal());
+            out.writeInt(table.length);
+            out.write(table);
+        }
+        if (file.exists() && !file.delete() || !tmp.renameTo(file)) {
+            throw new IOException("Can't write " + file);
+        }
+    }
+
+    /**
+     * Loads tablebase of a minor piece type. File is memory-mapped, so
+     * values are not read into heap.
+     *
+     * @param minorPiece minor piece type.
+     * @param file tablebase file.
+     * @return tablebase.
+     * @throws IOException if file can't be read or it isn't a valid tablebase.
+     */
+    public static MinorPieceTablebase load(PieceType minorPiece, File file) throws IOException {
+        checkType(minorPiece);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+                FileChannel channel = raf.getChannel()) {
+            if (channel.size() != HEADER + size()) {
+                throw new IOException("Invalid tablebase size: " + file);
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+            }
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != VERSION
+                    || header.getInt() != minorPiece.ordinal() || header.getInt() != size()) {
+                throw new IOException("Invalid tablebase header: " + file);
+            }
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, HEADER, size());
+            return new MinorPieceTablebase(minorPiece, data);
+        }
+    }
+
+    /**
+     * Returns tablebase of a minor piece type, loading it from its default
+     * file the first time.
+     *
+     * @param minorPiece minor piece type.
+     * @return tablebase, or {@code null} if tablebase file doesn't exist or
+     * is not valid.
+     */
+    public static MinorPieceTablebase get(PieceType minorPiece) {
+        MinorPieceTablebase tb = LOADED.get(minorPiece);
+        if (tb != null) {
+            return tb;
+        }
+        File file = getFile(minorPiece);
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            tb = load(minorPiece, file);
+        } catch (IOException ex) {
+            return null;
+        }
+        MinorPieceTablebase old = LOADED.putIfAbsent(minorPiece, tb);
+        return (old == null ? tb : old);
+    }
+
+    /**
+     * Returns index of a chessboard position.
+     *
+     * @param board chessboard of a game with this tablebase minor pieces.
+     * @return position index.
+     */
+    private int index(ChessBoard board) {
+        Piece[] minors;
+        Piece[] pawns;
+        boolean flip;
+        if (board.getWhitePieces().length == 2) {
+            minors = board.getWhitePieces();
+            pawns = board.getBlackPieces();
+            flip = false;
+        } else {
+            minors = board.getBlackPieces();
+            pawns = board.getWhitePieces();
+            flip = true;
+        }
+        if (board.getNRows() != SIZE || board.getNColumns() != SIZE
+                || minors.length != 2 || pawns.length != PAWNS
+                || minors[0].getPieceType() != minorPiece) {
+            throw new IllegalArgumentException("Position is not in tablebase");
+        }
+        int mask = 0;
+        for (Piece p : pawns) {
+            if (p.isLiving()) {
+                mask |= 1 << square(p, flip);
+            }
+        }
+        int a = (minors[0].isLiving() ? square(minors[0], flip) : -1);
+        int b = (minors[1].isLiving() ? square(minors[1], flip) : -1);
+        return index(mask, a, b, board.getCurrentPlayer() == pawns[0].getPieceColor());
+    }
+
+    private static int square(Piece p, boolean flip) {
+        int r = p.getSquare().getInternalRow();
+        return (flip ? SIZE - 1 - r : r) * SIZE + p.getSquare().getInternalColumn();
+    }
+
+    /**
+     * Returns value of a position: bit {@code WIN} is set if player to move
+     * wins, and {@code getDistance} returns number of plies until game is
+     * over.
+     *
+     * @param board chessboard of a game with this tablebase minor pieces.
+     * @return position value.
+     */
+    public int probe(ChessBoard board) {
+        return data.get(index(board)) & 0xFF;
+    }
+
+    /**
+     * Returns true if a position value is a win for player to move.
+     *
+     * @param value position value.
+     * @return true if player to move wins.
+     */
+    public static boolean isWin(int value) {
+        return (value & WIN) != 0;
+    }
+
+    /**
+     * Returns number of plies until game is over with perfect play.
+     *
+     * @param value position value.
+     * @return distance to end of game.
+     */
+    public static int getDistance(int value) {
+        return value & DISTANCE;
+    }
+
+    /**
+     * Returns best movement in a position: the fastest win, or the slowest
+     * loss.
+     *
+     * @param board chessboard of a game with this tablebase minor pieces.
+     * @return best movement, defined in {@code board}, or {@code null} if
+     * game is over.
+     */
+    public Movement bestMove(ChessBoard board) {
+        int value = probe(board);
+        if (getDistance(value) == 0) {
+            return null;
+        }
+        ChessBoard cb = board.copy();
+        Movement best = null;
+        int bestValue = -1;
+        for (Movement m : cb.getMoves()) {
+            MoveUndo undo = cb.make(m);
+            int next = probe(cb);
+            cb.unmake(undo);
+            int v = combine(bestValue, next);
+            if (v != bestValue) {
+                bestValue = v;
+                best = m;
+            }
+        }
+        if (best == null) {
+            return null;
+        }
+        Movement move = board.translate(best);
+        move.setScore(bestValue);
+        return move;
+    }
+
+    /**
+     * Generates tablebase files.
+     *
+     * @param args minor piece types to generate ({@code knight},
+     * {@code bishop}), by default both of them.
+     * @throws IOException if a file can't be written.
+     */
+    public static void main(String[] args) throws IOException {
+        String[] types = (args.length == 0 ? new String[]{"knight", "bishop"} : args);
+        for (String type : types) {
+            PieceType minorPiece = PieceType.valueOf(type.toUpperCase());
+            long start = System.nanoTime();
+            byte[] table = generate(minorPiece);
+            File file = getFile(minorPiece);
+            write(minorPiece, table, file);
+            int wins = 0;
+            int longest = 0;
+            for (byte v : table) {
+                if (isWin(v)) {
+                    wins++;
+                }
+                longest = Math.max(longest, getDistance(v));
+            }
+            System.out.printf("%s: %d positions, %d wins for player to move, "
+                    + "longest game %d plies, %.1f s, written to %s%n",
+                    minorPiece, table.length, wins, longest,
+                    (System.nanoTime() - start) / 1e9, file);
+        }
+    }
+
+}
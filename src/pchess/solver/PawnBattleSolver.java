@@ -0,0 +1,849 @@
+package pchess.solver;
+
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.BooleanSupplier;
+import pchess.core.ChessBoard;
+import pchess.core.Movement;
+import pchess.core.Piece;
+import pchess.core.enums.PieceColor;
+
+/**
+ * Exact solver of "Pawn Battle" game on narrow chessboards. Pawns only move
+ * forward, so positions never repeat and game graph is acyclic: every
+ * position is solved by depth-first search, keeping solved positions in a
+ * memo table.
+ * <p>
+ * A position is keyed by its files: each file keeps a base 3 number with
+ * contents (empty, white pawn or black pawn) of internal rows 1 to 6, since a
+ * pawn on row 0 or 7 has finished game. Each file takes 10 bits, so six files
+ * and player to move fit in a {@code long}. A position and its mirror image
+ * have the same value, so smallest key of both is used.
+ * <p>
+ * Memo table is a primitive open-addressing hash table shared by all
+ * threads; each entry keeps position key and whether player to move wins. A
+ * position that can't be stored is solved again when found. Root movements
+ * are solved in parallel by a {@code ForkJoinPool}. Each search gives up
+ * when its node budget, its deadline or its stop condition is reached.
+ * <p>
+ * Solvers are kept by number of columns through soft references, so their
+ * memo tables (solved positions, used again by later searches) are released
+ * when memory is needed.
+ * <p>
+ * Game rules are the ones of {@code PawnBattle.isGameOver}: when player to
+ * move can't move, black wins.
+ */
+public final class PawnBattleSolver {
+
+    /**
+     * Maximum number of columns solved.
+     */
+    public static final int MAX_COLUMNS = 6;
+
+    /**
+     * Number of rows of chessboard.
+     */
+    private static final int ROWS = 8;
+
+    /**
+     * Number of bits of a file in position key.
+     */
+    private static final int FILE_BITS = 10;
+
+    /**
+     * Bit set in position key if white moves.
+     */
+    private static final long WHITE_TO_MOVE = 1L << (MAX_COLUMNS * FILE_BITS);
+
+    /**
+     * Squares of first column. Squares are numbered by internal row and
+     * column, with 8 squares by row.
+     */
+    private static final long FIRST_COLUMN = 0x0101010101010101L;
+
+    /**
+     * Squares of internal row 0, where white pawns finish.
+     */
+    private static final long WHITE_LAST_ROW = 0xFFL;
+
+    /**
+     * Squares of internal row 7, where black pawns finish.
+     */
+    private static final long BLACK_LAST_ROW = 0xFFL << 56;
+
+    /**
+     * Squares of internal row 6, where white pawns start.
+     */
+    private static final long WHITE_FIRST_ROW = 0xFFL << 48;
+
+    /**
+     * Squares of internal row 1, where black pawns start.
+     */
+    private static final long BLACK_FIRST_ROW = 0xFFL << 8;
+
+    /**
+     * Value of position if black wins.
+     */
+    private static final int BLACK_WINS = 0;
+
+    /**
+     * Value of position if white wins.
+     */
+    private static final int WHITE_WINS = 1;
+
+    /**
+     * Value of position if game is not over.
+     */
+    private static final int NOT_OVER = -1;
+
+    /**
+     * Value of position if solver exceeds its node budget.
+     */
+    private static final int UNKNOWN = -2;
+
+    /**
+     * Number of nodes counted by a task before they are added to solver
+     * count.
+     */
+    private static final int NODE_BATCH = 4096;
+
+    /**
+     * Maximum number of entries probed in memo table.
+     */
+    private static final int MAX_PROBES = 32;
+
+    /**
+     * Base 3 file code of a column of white pawns, indexed by gathered column.
+     */
+    private static final int[] FILE_CODE = new int[256];
+
+    /**
+     * Solvers by number of columns, softly referenced.
+     */
+    private static final Map<Integer, SoftReference<PawnBattleSolver>> SOLVERS
+            = new HashMap<>();
+
+    /**
+     * Log2 of number of memo table entries of new solvers.
+     */
+    private static int memoBits = 23;
+
+    /**
+     * Maximum number of nodes searched by each call of {@code bestMove}.
+     */
+    private static long nodeBudget = 1_000_000L;
+
+    static {
+        for (int mask = 0; mask < 256; mask++) {
+            long column = 0;
+            int code = 0;
+            for (int r = 1; r < ROWS - 1; r++) {
+                if ((mask & (1 << r)) != 0) {
+                    column |= 1L << (r * ROWS);
+                    code += pow3(r - 1);
+                }
+            }
+            FILE_CODE[gather(column)] = code;
+        }
+    }
+
+    /**
+     * Number of columns.
+     */
+    private final int nColumns;
+
+    /**
+     * Squares of chessboard.
+     */
+    private final long boardMask;
+
+    /**
+     * Squares of last column.
+     */
+    private final long lastColumn;
+
+    /**
+     * Memo table. An entry keeps position key shifted left by one bit, and
+     * lowest bit set if player to move wins; zero is an empty entry.
+     */
+    private final AtomicLongArray memo;
+
+    /**
+     * Number of nodes searched.
+     */
+    private final AtomicLong nodes = new AtomicLong();
+
+    /**
+     * Number of positions stored in memo table.
+     */
+    private final AtomicLong stored = new AtomicLong();
+
+    /**
+     * Constructor. Makes a solver with an empty memo table.
+     *
+     * @param nColumns number of columns.
+     * @param memoEntries number of memo table entries, a power of two.
+     */
+    PawnBattleSolver(int nColumns, int memoEntries) {
+        if (nColumns < 2 || nColumns > MAX_COLUMNS) {
+            throw new IllegalArgumentException("Number of columns must be between 2 and "
+                    + MAX_COLUMNS);
+        }
+        if (Integer.bitCount(memoEntries) != 1) {
+            throw new IllegalArgumentException("Memo size must be a power of two");
+        }
+        this.nColumns = nColumns;
+        long row = (1L << nColumns) - 1;
+        long mask = 0;
+        for (int r = 0; r < ROWS; r++) {
+            mask |= row << (r * ROWS);
+        }
+        boardMask = mask;
+        lastColumn = FIRST_COLUMN << (nColumns - 1);
+        memo = new AtomicLongArray(memoEntries);
+    }
+
+    /**
+     * Returns a power of 3.
+     *
+     * @param n exponent.
+     * @return 3 raised to {@code n}.
+     */
+    private static int pow3(int n) {
+        int p = 1;
+        for (int i = 0; i < n; i++) {
+            p *= 3;
+        }
+        return p;
+    }
+
+    /**
+     * Gathers first column of a square set in 8 bits, one by row.
+     *
+     * @param column square set, only first column is used.
+     * @return gathered column.
+     */
+    private static int gather(long column) {
+        return (int) (((column & FIRST_COLUMN) * 0x0102040810204080L) >>> 56);
+    }
+
+    /**
+     * Sets number of memo table entries of solvers made from now on.
+     *
+     * @param entries number of entries, a power of two.
+     * @throws IllegalArgumentException if entries is not a power of two.
+     */
+    public static void setMemoSize(int entries) {
+        if (Integer.bitCount(entries) != 1) {
+            throw new IllegalArgumentException("Memo size must be a power of two");
+        }
+        memoBits = Integer.numberOfTrailingZeros(entries);
+    }
+
+    /**
+     * Sets maximum number of nodes searched by each call of {@code bestMove}.
+     * When it is exceeded, positions solved so far are kept, so later calls
+     * go on from them.
+     *
+     * @param budget node budget.
+     * @throws IllegalArgumentException if budget is not positive.
+     */
+    public static void setNodeBudget(long budget) {
+        if (budget <= 0) {
+            throw new IllegalArgumentException("Node budget must be positive");
+        }
+        nodeBudget = budget;
+    }
+
+    /**
+     * Returns solver of a number of columns, making it the first time or
+     * when it was released to free memory.
+     *
+     * @param nColumns number of columns.
+     * @return solver, or {@code null} if number of columns is not supported.
+     */
+    public static synchronized PawnBattleSolver get(int nColumns) {
+        if (nColumns < 2 || nColumns > MAX_COLUMNS) {
+            return null;
+        }
+        SoftReference<PawnBattleSolver> ref = SOLVERS.get(nColumns);
+        PawnBattleSolver solver = (ref == null ? null : ref.get());
+        if (solver == null) {
+            solver = new PawnBattleSolver(nColumns, 1 << memoBits);
+            SOLVERS.put(nColumns, new SoftReference<>(solver));
+        }
+        return solver;
+    }
+
+    /**
+     * Returns number of columns.
+     *
+     * @return number of columns.
+     */
+    public int getNColumns() {
+        return nColumns;
+    }
+
+    /**
+     * Returns number of nodes searched since solver was made.
+     *
+     * @return number of nodes.
+     */
+    public long getNodes() {
+        return nodes.get();
+    }
+
+    /**
+     * Returns number of positions stored in memo table.
+     *
+     * @return number of positions.
+     */
+    public long getStoredPositions() {
+        return stored.get();
+    }
+
+    /**
+     * Returns number of memo table entries.
+     *
+     * @return number of entries.
+     */
+    public int getMemoSize() {
+        return memo.length();
+    }
+
+    /**
+     * Returns key of a position.
+     *
+     * @param w white pawns.
+     * @param b black pawns.
+     * @param whiteToMove true if white moves.
+     * @return position key.
+     */
+    private long key(long w, long b, boolean whiteToMove) {
+        long key = 0;
+        long mirror = 0;
+        for (int f = 0; f < nColumns; f++) {
+            long code = FILE_CODE[gather(w >>> f)] + 2 * FILE_CODE[gather(b >>> f)];
+            key |= code << (f * FILE_BITS);
+            mirror |= code << ((nColumns - 1 - f) * FILE_BITS);
+        }
+        return Math.min(key, mirror) | (whiteToMove ? WHITE_TO_MOVE : 0);
+    }
+
+    /**
+     * Returns memo table entry index where search of a key starts.
+     *
+     * @param key position key.
+     * @return entry index.
+     */
+    private int slot(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & (memo.length() - 1);
+    }
+
+    /**
+     * Looks up a position in memo table.
+     *
+     * @param key position key.
+     * @return 1 if player to move wins, 0 if it loses, or -1 if position is
+     * not stored.
+     */
+    private int lookup(long key) {
+        int mask = memo.length() - 1;
+        int i = slot(key);
+        for (int n = 0; n < MAX_PROBES; n++) {
+            long entry = memo.get(i);
+            if (entry == 0) {
+                return -1;
+            }
+            if (entry >>> 1 == key) {
+                return (int) (entry & 1);
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Stores a position in memo table, unless its entries are full.
+     *
+     * @param key position key.
+     * @param win true if player to move wins.
+     */
+    private void store(long key, boolean win) {
+        long entry = key << 1 | (win ? 1 : 0);
+        int mask = memo.length() - 1;
+        int i = slot(key);
+        for (int n = 0; n < MAX_PROBES; n++) {
+            long old = memo.get(i);
+            if (old == 0 && memo.compareAndSet(i, 0, entry)) {
+                stored.incrementAndGet();
+                return;
+            }
+            if (memo.get(i) >>> 1 == key) {
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    /**
+     * Returns destination squares of pawn pushes by one square.
+     */
+    private long push(long w, long b, boolean white) {
+        long empty = boardMask & ~(w | b);
+        return (white ? w >>> ROWS : b << ROWS) & empty;
+    }
+
+    /**
+     * Returns destination squares of pawn pushes by two squares.
+     */
+    private long doublePush(long w, long b, boolean white) {
+        long empty = boardMask & ~(w | b);
+        if (white) {
+            return ((((w & WHITE_FIRST_ROW) >>> ROWS) & empty) >>> ROWS) & empty;
+        }
+        return ((((b & BLACK_FIRST_ROW) << ROWS) & empty) << ROWS) & empty;
+    }
+
+    /**
+     * Returns destination squares of captures to lower column.
+     */
+    private long captureLeft(long w, long b, boolean white) {
+        return (white ? (w & ~FIRST_COLUMN) >>> (ROWS + 1) & b
+                : (b & ~FIRST_COLUMN) << (ROWS - 1) & w);
+    }
+
+    /**
+     * Returns destination squares of captures to higher column.
+     */
+    private long captureRight(long w, long b, boolean white) {
+        return (white ? (w & ~lastColumn) >>> (ROWS - 1) & b
+                : (b & ~lastColumn) << (ROWS + 1) & w);
+    }
+
+    /**
+     * Returns true if a player has some movement.
+     */
+    private boolean canMove(long w, long b, boolean white) {
+        return (push(w, b, white) | captureLeft(w, b, white) | captureRight(w, b, white)) != 0;
+    }
+
+    /**
+     * Returns whether game is over, with same checks and order of
+     * {@code PawnBattle.isGameOver}.
+     *
+     * @param w white pawns.
+     * @param b black pawns.
+     * @param whiteToMove true if white moves.
+     * @return {@code WHITE_WINS}, {@code BLACK_WINS} or {@code NOT_OVER}.
+     */
+    private int gameOver(long w, long b, boolean whiteToMove) {
+        if (w == 0) {
+            return BLACK_WINS;
+        }
+        if (b == 0) {
+            return WHITE_WINS;
+        }
+        if ((w & WHITE_LAST_ROW) != 0) {
+            return WHITE_WINS;
+        }
+        if ((b & BLACK_LAST_ROW) != 0) {
+            return BLACK_WINS;
+        }
+        if (!canMove(w, b, whiteToMove)) {
+            return BLACK_WINS;
+        }
+        return NOT_OVER;
+    }
+
+    /**
+     * Returns movements of player to move, each one with origin square in
+     * bits 0 to 5 and destination square in bits 6 to 11. Captures are
+     * first.
+     *
+     * @param w white pawns.
+     * @param b black pawns.
+     * @param white true if white moves.
+     * @param moves array to keep movements.
+     * @return number of movements.
+     */
+    private int generate(long w, long b, boolean white, int[] moves) {
+        int d = (white ? -ROWS : ROWS);
+        int n = add(moves, 0, captureLeft(w, b, white), d - 1);
+        n = add(moves, n, captureRight(w, b, white), d + 1);
+        n = add(moves, n, push(w, b, white), d);
+        return add(moves, n, doublePush(w, b, white), 2 * d);
+    }
+
+    /**
+     * Adds pawn movements to a list.
+     *
+     * @param moves array to keep movements.
+     * @param n number of movements in array.
+     * @param targets destination squares.
+     * @param delta difference from origin square to destination square.
+     * @return number of movements in array.
+     */
+    private static int add(int[] moves, int n, long targets, int delta) {
+        for (; targets != 0; targets &= targets - 1) {
+            int to = Long.numberOfTrailingZeros(targets);
+            moves[n++] = (to - delta) | to << 6;
+        }
+        return n;
+    }
+
+    /**
+     * Limits of a search: node count, deadline and stop condition.
+     */
+    private static final class Limit {
+
+        /**
+         * Solver node count that stops search.
+         */
+        private final long nodeLimit;
+
+        /**
+         * {@code System.nanoTime} value that stops search, or 0 if search
+         * has no time limit.
+         */
+        private final long deadline;
+
+        /**
+         * Returns true when search must stop.
+         */
+        private final BooleanSupplier stop;
+
+        /**
+         * Constructor. Makes search limits.
+         *
+         * @param nodeLimit solver node count that stops search.
+         * @param deadline time that stops search, or 0.
+         * @param stop stop condition.
+         */
+        Limit(long nodeLimit, long deadline, BooleanSupplier stop) {
+            this.nodeLimit = nodeLimit;
+            this.deadline = deadline;
+            this.stop = stop;
+        }
+
+        /**
+         * Returns true if search must stop.
+         *
+         * @param nodes solver node count.
+         * @return true if a limit is reached.
+         */
+        boolean reached(long nodes) {
+            return nodes > nodeLimit || (deadline != 0 && System.nanoTime() - deadline > 0)
+                    || stop.getAsBoolean();
+        }
+    }
+
+    /**
+     * Search of a subtree. A task counts its nodes and solves its position
+     * recursively; root task solves each root movement in a child task.
+     */
+    private final class Search extends RecursiveTask<Integer> {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * White pawns.
+         */
+        private final long w;
+
+        /**
+         * Black pawns.
+         */
+        private final long b;
+
+        /**
+         * True if white moves.
+         */
+        private final boolean white;
+
+        /**
+         * Search limits.
+         */
+        private final Limit limit;
+
+        /**
+         * Movements by search depth.
+         */
+        private final List<int[]> moves = new ArrayList<>();
+
+        /**
+         * Nodes not yet added to solver count.
+         */
+        private int pending;
+
+        /**
+         * Constructor. Makes a search task.
+         *
+         * @param w white pawns.
+         * @param b black pawns.
+         * @param white true if white moves.
+         * @param limit search limits.
+         */
+        Search(long w, long b, boolean white, Limit limit) {
+            this.w = w;
+            this.b = b;
+            this.white = white;
+            this.limit = limit;
+        }
+
+        @Override
+        protected Integer compute() {
+            int value = solve(w, b, white, 0);
+            nodes.addAndGet(pending);
+            return value;
+        }
+
+        /**
+         * Solves a position where game is not over.
+         *
+         * @param w white pawns.
+         * @param b black pawns.
+         * @param white true if white moves.
+         * @param depth search depth.
+         * @return 1 if player to move wins, 0 if it loses, or
+         * {@code UNKNOWN} if a search limit is reached.
+         */
+        private int solve(long w, long b, boolean white, int depth) {
+            if (++pending == NODE_BATCH) {
+                pending = 0;
+                if (limit.reached(nodes.addAndGet(NODE_BATCH))) {
+                    return UNKNOWN;
+                }
+            }
+            long key = key(w, b, white);
+            int known = lookup(key);
+            if (known >= 0) {
+                return known;
+            }
+            if (moves.size() == depth) {
+                moves.add(new int[4 * nColumns]);
+            }
+            int[] list = moves.get(depth);
+            int n = generate(w, b, white, list);
+            boolean win = false;
+            for (int i = 0; i < n && !win; i++) {
+                long from = 1L << (list[i] & 63);
+                long to = 1L << (list[i] >>> 6);
+                long nw = (white ? w ^ from ^ to : w & ~to);
+                long nb = (white ? b & ~to : b ^ from ^ to);
+                int over = gameOver(nw, nb, !white);
+                if (over != NOT_OVER) {
+                    win = (over == WHITE_WINS) == white;
+                } else {
+                    int next = solve(nw, nb, !white, depth + 1);
+                    if (next == UNKNOWN) {
+                        return UNKNOWN;
+                    }
+                    win = (next == 0);
+                }
+            }
+            store(key, win);
+            return (win ? 1 : 0);
+        }
+    }
+
+    /**
+     * Solves value of each movement of a position where game is not over,
+     * solving movements in parallel.
+     *
+     * @param w white pawns.
+     * @param b black pawns.
+     * @param white true if white moves.
+     * @param moves array to keep movements.
+     * @param values array to keep, for each movement, 1 if it wins, 0 if it
+     * loses or {@code UNKNOWN}.
+     * @param limit search limits.
+     * @return number of movements.
+     */
+    private int solveMoves(long w, long b, boolean white, int[] moves, int[] values,
+            Limit limit) {
+        int n = generate(w, b, white, moves);
+        Search[] tasks = new Search[n];
+        for (int i = 0; i < n; i++) {
+            long from = 1L << (moves[i] & 63);
+            long to = 1L << (moves[i] >>> 6);
+            long nw = (white ? w ^ from ^ to : w & ~to);
+            long nb = (white ? b & ~to : b ^ from ^ to);
+            int over = gameOver(nw, nb, !white);
+            if (over != NOT_OVER) {
+                values[i] = ((over == WHITE_WINS) == white ? 1 : 0);
+            } else {
+                tasks[i] = new Search(nw, nb, !white, limit);
+                tasks[i].fork();
+            }
+        }
+        for (int i = n - 1; i >= 0; i--) {
+            if (tasks[i] != null) {
+                int next = tasks[i].join();
+                values[i] = (next == UNKNOWN ? UNKNOWN : 1 - next);
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Solves a position where game is not over, with a node budget, a
+     * deadline and a stop condition.
+     *
+     * @param w white pawns.
+     * @param b black pawns.
+     * @param white true if white moves.
+     * @param budget maximum number of nodes searched.
+     * @param deadline {@code System.nanoTime} value when search gives up, or
+     * 0 if there is no time limit.
+     * @param stop returns true when search must give up.
+     * @param moves array to keep movements.
+     * @param values array to keep movement values.
+     * @return number of movements.
+     */
+    private int solveRoot(long w, long b, boolean white, long budget, long deadline,
+            BooleanSupplier stop, int[] moves, int[] values) {
+        long start = nodes.get();
+        Limit limit = new Limit(Long.MAX_VALUE - start > budget ? start + budget
+                : Long.MAX_VALUE, deadline, stop);
+        return ForkJoinPool.commonPool().invoke(new RecursiveTask<Integer>() {
+            @Override
+            protected Integer compute() {
+                return solveMoves(w, b, white, moves, values, limit);
+            }
+        });
+    }
+
+    /**
+     * Returns pawns of a color as a square set.
+     *
+     * @param pieces pieces of a player.
+     * @return square set.
+     */
+    private static long squares(Piece[] pieces) {
+        long set = 0;
+        for (Piece p : pieces) {
+            if (p.isLiving()) {
+                set |= 1L << (p.getSquare().getInternalRow() * ROWS
+                        + p.getSquare().getInternalColumn());
+            }
+        }
+        return set;
+    }
+
+    /**
+     * Returns a winning movement of a position, if node budget is enough to
+     * find it.
+     *
+     * @param board chessboard of a Pawn Battle game with this solver number
+     * of columns.
+     * @return winning movement, defined in {@code board}, or {@code null} if
+     * game is over, player to move loses or position is not solved within
+     * node budget.
+     * @throws IllegalArgumentException if chessboard size doesn't match.
+     */
+    public Movement bestMove(ChessBoard board) {
+        return bestMove(board, 0, () -> false);
+    }
+
+    /**
+     * Returns a winning movement of a position, if it is found within node
+     * budget, before a deadline and before search must stop. Positions
+     * solved so far are kept, so later calls go on from them.
+     *
+     * @param board chessboard of a Pawn Battle game with this solver number
+     * of columns.
+     * @param deadline {@code System.nanoTime} value when search gives up, or
+     * 0 if there is no time limit.
+     * @param stop returns true when search must give up.
+     * @return winning movement, defined in {@code board}, or {@code null} if
+     * game is over, player to move loses or position is not solved within
+     * limits.
+     * @throws IllegalArgumentException if chessboard size doesn't match.
+     */
+    public Movement bestMove(ChessBoard board, long deadline, BooleanSupplier stop) {
+        if (board.getNRows() != ROWS || board.getNColumns() != nColumns) {
+            throw new IllegalArgumentException("Chessboard size doesn't match solver");
+        }
+        long w = squares(board.getWhitePieces());
+        long b = squares(board.getBlackPieces());
+        boolean white = (board.getCurrentPlayer() == PieceColor.WHITE);
+        if (gameOver(w, b, white) != NOT_OVER) {
+            return null;
+        }
+        int[] moves = new int[4 * nColumns];
+        int[] values = new int[moves.length];
+        int n = solveRoot(w, b, white, nodeBudget, deadline, stop, moves, values);
+        for (int i = 0; i < n; i++) {
+            if (values[i] == 1) {
+                int from = moves[i] & 63;
+                int to = moves[i] >>> 6;
+                Piece piece = board.getSquare(from / ROWS, from % ROWS).getPiece();
+                return new Movement(piece, board.getSquare(to / ROWS, to % ROWS));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Solves start position of a Pawn Battle game.
+     *
+     * @param budget maximum number of nodes searched.
+     * @return true if white wins, or {@code null} if node budget is exceeded.
+     */
+    Boolean solveStart(long budget) {
+        long w = ((1L << nColumns) - 1) << (6 * ROWS);
+        long b = ((1L << nColumns) - 1) << ROWS;
+        int[] moves = new int[4 * nColumns];
+        int[] values = new int[moves.length];
+        int n = solveRoot(w, b, true, budget, 0, () -> false, moves, values);
+        boolean unknown = false;
+        for (int i = 0; i < n; i++) {
+            if (values[i] == 1) {
+                return true;
+            }
+            unknown |= (values[i] == UNKNOWN);
+        }
+        return (unknown ? null : false);
+    }
+
+    /**
+     * Solves start position of Pawn Battle games, reporting progress each
+     * second and metrics at end.
+     *
+     * @param args numbers of columns, by default 4, 5 and 6.
+     * @throws InterruptedException if interrupted while waiting for solver.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        String[] columns = (args.length == 0 ? new String[]{"4", "5", "6"} : args);
+        for (String c : columns) {
+            PawnBattleSolver solver = new PawnBattleSolver(Integer.parseInt(c), 1 << memoBits);
+            Boolean[] result = new Boolean[1];
+            Thread thread = new Thread(() -> result[0] = solver.solveStart(Long.MAX_VALUE));
+            long start = System.nanoTime();
+            thread.start();
+            thread.join(1000);
+            while (thread.isAlive()) {
+                System.out.printf("  %d columns: %d nodes, %d positions stored, %.1f s%n",
+                        solver.nColumns, solver.getNodes(), solver.getStoredPositions(),
+                        (System.nanoTime() - start) / 1e9);
+                thread.join(1000);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%d columns: %s wins, %d nodes, %d positions stored "
+                    + "(%.1f%% of memo), %.1f s, %.0f nodes/s, %.0f positions/s%n",
+                    solver.nColumns, (result[0] ? "white" : "black"), solver.getNodes(),
+                    solver.getStoredPositions(),
+                    100.0 * solver.getStoredPositions() / solver.getMemoSize(), seconds,
+                    solver.getNodes() / seconds, solver.getStoredPositions() / seconds);
+        }
+    }
+
+}
@@ -0,0 +1,443 @@
+package pchess.solver;
+
+import java.util.Arrays;
+import java.util.function.BooleanSupplier;
+import pchess.core.ChessBoard;
+import pchess.core.MoveList;
+import pchess.core.MoveUndo;
+import pchess.core.Movement;
+import pchess.core.enums.PieceColor;
+import pchess.games.PreChessGame;
+
+/**
+ * Depth-first proof-number search (df-pn), which proves that a player (the
+ * attacker) wins a game by force. Search only uses game rules: a position is
+ * proved when {@code isGameOver} finds attacker as winner. Proof numbers and
+ * disproof numbers lead search to the movements that are easiest to prove or
+ * disprove, so deep forced wins are found with fewer nodes than a full width
+ * search.
+ * <p>
+ * Each node keeps proof number of player to move (phi) and of opponent
+ * (delta): a node is won by player to move when phi is 0. Values are kept in
+ * a fixed size table of buckets with two entries, where entry with least
+ * work is replaced.
+ * <p>
+ * Node storage (movements, child keys and fixed child values) is kept in
+ * arrays shared by all nodes of current line, so expanding a node allocates
+ * nothing once arrays have grown.
+ * <p>
+ * Search is bounded by a node budget, a deadline, a stop condition and a
+ * maximum depth. Positions at
+ * maximum depth, or repeated in current line, are taken as not won by
+ * attacker, so a proof is always a forced win, while a disproof only means
+ * that no win was found.
+ */
+public class ProofNumberSearch {
+
+    /**
+     * Infinite proof number.
+     */
+    private static final int INFINITE = 100_000_000;
+
+    /**
+     * Number of nodes searched between checks of deadline and stop
+     * condition.
+     */
+    private static final int CHECK_INTERVAL = 1024;
+
+    /**
+     * Maximum number of nodes of each call of {@code findWin}. Each position
+     * generated when a node is expanded counts as a node.
+     */
+    private static int nodeBudget = 100_000;
+
+    /**
+     * Maximum depth of search.
+     */
+    private static int maxDepth = 16;
+
+    /**
+     * Game with rules.
+     */
+    private final PreChessGame game;
+
+    /**
+     * Position keys of table entries, zero if entry is empty.
+     */
+    private final long[] keys;
+
+    /**
+     * Proof number of player to move of table entries.
+     */
+    private final int[] phis;
+
+    /**
+     * Proof number of opponent of table entries.
+     */
+    private final int[] deltas;
+
+    /**
+     * Number of nodes searched below table entries.
+     */
+    private final int[] works;
+
+    /**
+     * Position keys of current line, by depth.
+     */
+    private final long[] line = new long[256];
+
+    /**
+     * Movements of nodes in current line, packed by {@code Move}. Each node
+     * appends its movements after movements of its parent.
+     */
+    private final MoveList moves = new MoveList(256);
+
+    /**
+     * Position keys of children, by movement index in {@code moves}.
+     */
+    private long[] childKeys = new long[256];
+
+    /**
+     * Fixed proof number of player to move in children, by movement index
+     * in {@code moves}, or -1 if child values are taken from table.
+     */
+    private int[] fixedPhis = new int[256];
+
+    /**
+     * Fixed proof number of opponent in children, by movement index in
+     * {@code moves}.
+     */
+    private int[] fixedDeltas = new int[256];
+
+    /**
+     * Undo objects by depth.
+     */
+    private final MoveUndo[] undos = new MoveUndo[256];
+
+    /**
+     * Chessboard where movements are done.
+     */
+    private ChessBoard board;
+
+    /**
+     * Player that search tries to prove as winner.
+     */
+    private PieceColor attacker;
+
+    /**
+     * Number of nodes searched by current call of {@code findWin}.
+     */
+    private int nodes;
+
+    /**
+     * Node count of next check of deadline and stop condition.
+     */
+    private int nextCheck;
+
+    /**
+     * {@code System.nanoTime} value when current search gives up, or 0 if
+     * search has no time limit.
+     */
+    private long deadline;
+
+    /**
+     * Returns true when current search must give up.
+     */
+    private BooleanSupplier stop;
+
+    /**
+     * True if current search reached its deadline or stop condition.
+     */
+    private boolean stopped;
+
+    /**
+     * Constructor. Makes a proof-number search with an empty table.
+     *
+     * @param game game with rules.
+     * @param tableSize number of table entries, a power of two.
+     * @throws IllegalArgumentException if table size is not a power of two
+     * greater than 1.
+     */
+    public ProofNumberSearch(PreChessGame game, int tableSize) {
+        if (tableSize < 2 || Integer.bitCount(tableSize) != 1) {
+            throw new IllegalArgumentException("Table size must be a power of two");
+        }
+        this.game = game;
+        keys = new long[tableSize];
+        phis = new int[tableSize];
+        deltas = new int[tableSize];
+        works = new int[tableSize];
+        for (int i = 0; i < undos.length; i++) {
+            undos[i] = new MoveUndo();
+        }
+    }
+
+    /**
+     * Sets maximum number of nodes of each call of {@code findWin}.
+     *
+     * @param budget node budget.
+     * @throws IllegalArgumentException if budget is not positive.
+     */
+    public static void setNodeBudget(int budget) {
+        if (budget <= 0) {
+            throw new IllegalArgumentException("Node budget must be positive");
+        }
+        nodeBudget = budget;
+    }
+
+    /**
+     * Sets maximum depth of search, in plies.
+     *
+     * @param depth maximum depth.
+     * @throws IllegalArgumentException if depth is not between 1 and 255.
+     */
+    public static void setMaxDepth(int depth) {
+        if (depth < 1 || depth >= 256) {
+            throw new IllegalArgumentException("Depth must be between 1 and 255");
+        }
+        maxDepth = depth;
+    }
+
+    /**
+     * Returns number of nodes searched by last call of {@code findWin}.
+     *
+     * @return number of nodes.
+     */
+    public int getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Returns first table entry of a key bucket.
+     *
+     * @param key position key.
+     * @return entry index.
+     */
+    private int bucket(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & (keys.length - 2);
+    }
+
+    /**
+     * Returns table entry of a position.
+     *
+     * @param key position key.
+     * @return entry index, or -1 if position is not in table.
+     */
+    private int find(long key) {
+        int i = bucket(key);
+        if (keys[i] == key) {
+            return i;
+        }
+        return (keys[i + 1] == key ? i + 1 : -1);
+    }
+
+    /**
+     * Stores proof numbers of a position.
+     *
+     * @param key position key.
+     * @param phi proof number of player to move.
+     * @param delta proof number of opponent.
+     * @param work number of nodes searched below position.
+     */
+    private void store(long key, int phi, int delta, int work) {
+        int i = find(key);
+        if (i < 0) {
+            i = bucket(key);
+            if (keys[i] != 0 && (keys[i + 1] == 0 || works[i + 1] < works[i])) {
+                i++;
+            }
+        }
+        keys[i] = key;
+        phis[i] = phi;
+        deltas[i] = delta;
+        works[i] = work;
+    }
+
+    /**
+     * Returns sum of proof numbers, up to infinite.
+     *
+     * @param a proof number.
+     * @param b proof number.
+     * @return sum.
+     */
+    private static int add(int a, int b) {
+        return Math.min(INFINITE, a + b);
+    }
+
+    /**
+     * Tries to prove that player to move wins a position.
+     *
+     * @param position chessboard with position.
+     * @return first movement of a forced win, defined in {@code position},
+     * or {@code null} if no win is proved within node budget.
+     */
+    public Movement findWin(ChessBoard position) {
+        return findWin(position, 0, () -> false);
+    }
+
+    /**
+     * Tries to prove that player to move wins a position, giving up when
+     * node budget, a deadline or a stop condition is reached. Proof numbers
+     * found so far are kept in table, so later calls go on from them.
+     *
+     * @param position chessboard with position.
+     * @param deadline {@code System.nanoTime} value when search gives up,
+     * or 0 if there is no time limit.
+     * @param stop returns true when search must give up.
+     * @return first movement of a forced win, defined in {@code position},
+     * or {@code null} if no win is proved within limits.
+     */
+    public Movement findWin(ChessBoard position, long deadline, BooleanSupplier stop) {
+        if (game.isGameOver(position)) {
+            return null;
+        }
+        if (position.getCurrentPlayer() != attacker) {
+            attacker = position.getCurrentPlayer();
+            Arrays.fill(keys, 0);
+        }
+        board = position.copy();
+        nodes = 0;
+        nextCheck = CHECK_INTERVAL;
+        this.deadline = deadline;
+        this.stop = stop;
+        stopped = false;
+        moves.clear();
+        search(0, INFINITE, INFINITE);
+        this.stop = null;
+
+        for (Movement move : board.getMoves()) {
+            MoveUndo undo = board.make(move);
+            boolean over = game.isGameOver(board);
+            boolean won = (over ? board.getWinner() == attacker
+                    : proved(game.getPositionKey(board)));
+            board.unmake(undo);
+            if (won) {
+                return position.translate(move);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns true if a position with opponent to move is proved as a loss
+     * for that opponent.
+     *
+     * @param key position key.
+     * @return true if opponent loses.
+     */
+    private boolean proved(long key) {
+        int i = find(key);
+        return i >= 0 && deltas[i] == 0;
+    }
+
+    /**
+     * Searches a position until one of its proof numbers reaches its
+     * threshold or a search limit is reached (multiple iterative deepening
+     * of df-pn). Children values are taken from table, except for children
+     * where game is over, at maximum depth or repeated, which have fixed
+     * values.
+     *
+     * @param depth distance from search root.
+     * @param thPhi threshold of proof number of player to move.
+     * @param thDelta threshold of proof number of opponent.
+     */
+    private void search(int depth, int thPhi, int thDelta) {
+        int startNodes = nodes;
+        long key = game.getPositionKey(board);
+        line[depth] = key;
+        boolean attackerToMove = (board.getCurrentPlayer() == attacker);
+
+        int first = moves.size();
+        int n = board.generateMoves(moves);
+        int end = first + n;
+        nodes += 1 + n;
+        if (nodes >= nextCheck) {
+            nextCheck = nodes + CHECK_INTERVAL;
+            stopped = (deadline != 0 && System.nanoTime() - deadline > 0)
+                    || stop.getAsBoolean();
+        }
+        if (end > childKeys.length) {
+            int size = Math.max(end, 2 * childKeys.length);
+            childKeys = Arrays.copyOf(childKeys, size);
+            fixedPhis = Arrays.copyOf(fixedPhis, size);
+            fixedDeltas = Arrays.copyOf(fixedDeltas, size);
+        }
+        MoveUndo undo = undos[depth];
+        for (int i = first; i < end; i++) {
+            board.make(moves.get(i), undo);
+            childKeys[i] = game.getPositionKey(board);
+            fixedPhis[i] = -1;
+            if (game.isGameOver(board)) {
+                boolean childWins = (board.getWinner() == board.getCurrentPlayer());
+                fixedPhis[i] = (childWins ? 0 : INFINITE);
+                fixedDeltas[i] = (childWins ? INFINITE : 0);
+            } else if (depth + 1 >= maxDepth || repeated(childKeys[i], depth)) {
+                fixedPhis[i] = (attackerToMove ? 0 : INFINITE);
+                fixedDeltas[i] = (attackerToMove ? INFINITE : 0);
+            }
+            board.unmake(undo);
+        }
+
+        while (true) {
+            int phi = INFINITE;
+            int delta = 0;
+            int best = -1;
+            int bestPhi = 0;
+            int secondDelta = INFINITE;
+            for (int i = first; i < end; i++) {
+                int cPhi = 1;
+                int cDelta = 1;
+                boolean fixed = (fixedPhis[i] >= 0);
+                if (fixed) {
+                    cPhi = fixedPhis[i];
+                    cDelta = fixedDeltas[i];
+                } else {
+                    int e = find(childKeys[i]);
+                    if (e >= 0) {
+                        cPhi = phis[e];
+                        cDelta = deltas[e];
+                    }
+                }
+                delta = add(delta, cPhi);
+                if (cDelta < phi) {
+                    secondDelta = phi;
+                    phi = cDelta;
+                    best = (fixed ? -1 : i);
+                    bestPhi = cPhi;
+                } else if (cDelta < secondDelta) {
+                    secondDelta = cDelta;
+                }
+            }
+            if (n == 0) {
+                phi = (attackerToMove ? INFINITE : 0);
+                delta = (attackerToMove ? 0 : INFINITE);
+            }
+            if (phi >= thPhi || delta >= thDelta || best < 0 || nodes >= nodeBudget
+                    || stopped) {
+                store(key, phi, delta, nodes - startNodes);
+                moves.truncate(first);
+                return;
+            }
+            board.make(moves.get(best), undo);
+            search(depth + 1, add(thDelta, bestPhi) - delta, Math.min(thPhi, add(secondDelta, 1)));
+            board.unmake(undo);
+        }
+    }
+
+    /**
+     * Returns true if a position is in current line.
+     *
+     * @param key position key.
+     * @param depth depth of last position of line.
+     * @return true if position is repeated.
+     */
+    private boolean repeated(long key, int depth) {
+        for (int d = depth; d >= 0; d--) {
+            if (line[d] == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}